@@ -0,0 +1,50 @@
+package smartcity.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.model.CSRGraph;
+import smartcity.util.DataGenerator;
+
+import java.util.*;
+
+/**
+ * Shared benchmark input: a DataGenerator graph of the given size, average out-degree and share
+ * of vertices inside non-trivial SCCs, plus its SCCs and condensation DAG, built once per trial.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+    static final int MAX_COMPONENT_SIZE = 20;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"2", "8"})
+    public double density;
+
+    @Param({"0.0", "0.5"})
+    public double sccRatio;
+
+    public CSRGraph graph;
+    public List<List<Integer>> sccs;
+    public int[] componentId;
+    public CSRGraph condensation;
+    public int sourceComponent;
+    public int sinkComponent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = new DataGenerator(42).generateScaleGraph(size, density, sccRatio, MAX_COMPONENT_SIZE);
+
+        TarjanSCC tarjan = new TarjanSCC(graph);
+        sccs = tarjan.findSCCs();
+        componentId = tarjan.getComponentId().clone();
+        CondensationGraph cg = new CondensationGraph(graph, sccs, componentId);
+        condensation = cg.getCondensationGraph().toCSR();
+
+        List<Integer> sources = cg.findSourceComponents();
+        List<Integer> sinks = cg.findSinkComponents();
+        sourceComponent = sources.isEmpty() ? 0 : sources.get(0);
+        sinkComponent = sinks.isEmpty() ? condensation.getN() - 1 : sinks.get(0);
+    }
+}
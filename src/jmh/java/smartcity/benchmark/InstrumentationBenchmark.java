@@ -0,0 +1,116 @@
+package smartcity.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.dagsp.CountingMetrics;
+import smartcity.graph.dagsp.DetailedMetrics;
+import smartcity.graph.dagsp.Metrics;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.model.CSRGraph;
+import smartcity.util.DataGenerator;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each Metrics implementation. kahnUninstrumented is a copy of
+ * KahnTopological.kahnTopologicalOrder with the metric calls removed; kahnNoOp should match it.
+ * Each benchmark runs in its own fork, so the metric call sites only ever see one implementation,
+ * which is also what a production process that picks one mode sees.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"4"})
+    public double density;
+
+    private CSRGraph dag;
+    private CSRGraph cyclic;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DataGenerator generator = new DataGenerator(42);
+        dag = generator.generateScaleGraph(size, density, 0.0, 1);
+        cyclic = generator.generateScaleGraph(size, density, 0.5, 20);
+    }
+
+    @Benchmark
+    public int[] kahnUninstrumented() {
+        return uninstrumentedKahn(dag);
+    }
+
+    @Benchmark
+    public int[] kahnNoOp() {
+        return new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(dag);
+    }
+
+    @Benchmark
+    public int[] kahnCounting() {
+        return new KahnTopological(new CountingMetrics()).kahnTopologicalOrder(dag);
+    }
+
+    @Benchmark
+    public int[] kahnDetailed() {
+        return new KahnTopological(new DetailedMetrics()).kahnTopologicalOrder(dag);
+    }
+
+    @Benchmark
+    public List<List<Integer>> tarjanNoOp() {
+        return tarjan(NoOpMetrics.INSTANCE);
+    }
+
+    @Benchmark
+    public List<List<Integer>> tarjanCounting() {
+        return tarjan(new CountingMetrics());
+    }
+
+    @Benchmark
+    public List<List<Integer>> tarjanDetailed() {
+        return tarjan(new DetailedMetrics());
+    }
+
+    private List<List<Integer>> tarjan(Metrics metrics) {
+        return new TarjanSCC(cyclic, metrics).findSCCs();
+    }
+
+    private static int[] uninstrumentedKahn(CSRGraph graph) {
+        int n = graph.getN();
+        int[] inDegree = new int[n];
+        int[] targets = graph.getTargets();
+        for (int i = 0; i < targets.length; i++) {
+            inDegree[targets[i]]++;
+        }
+
+        int[] order = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+
+        int head = 0;
+        while (head < tail) {
+            int u = order[head++];
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                int v = graph.target(i);
+                if (--inDegree[v] == 0) {
+                    order[tail++] = v;
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("Graph contains cycles");
+        }
+        return order;
+    }
+}
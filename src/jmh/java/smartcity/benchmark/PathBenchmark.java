@@ -0,0 +1,57 @@
+package smartcity.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.dagsp.CriticalPath;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.NoOpMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortest and longest paths over the condensation DAG. The *64 pair compares 64 independent
+ * single-source queries with one batched call over the same sources.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathBenchmark {
+    private int[] sources;
+
+    @Setup(Level.Trial)
+    public void setup(GraphState state) {
+        int n = state.condensation.getN();
+        sources = new int[64];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = (int) ((long) i * n / sources.length);
+        }
+    }
+
+    @Benchmark
+    public DAGShortestPath.Result shortestPath(GraphState state) {
+        return new DAGShortestPath().findShortestPath(state.condensation, state.sourceComponent, -1);
+    }
+
+    @Benchmark
+    public DAGShortestPath.Result criticalPath(GraphState state) {
+        return new CriticalPath().findCriticalPath(state.condensation, state.sourceComponent, state.sinkComponent);
+    }
+
+    @Benchmark
+    public DAGShortestPath.Result[] singleSource64(GraphState state) {
+        DAGShortestPath shortestPath = new DAGShortestPath(NoOpMetrics.INSTANCE);
+        int[] order = shortestPath.topologicalOrder(state.condensation);
+        DAGShortestPath.Result[] results = new DAGShortestPath.Result[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            results[i] = shortestPath.findShortestPath(state.condensation, order, sources[i], -1);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public DAGShortestPath.BatchResult batch64(GraphState state) {
+        return new DAGShortestPath(NoOpMetrics.INSTANCE).findShortestPaths(state.condensation, sources);
+    }
+}
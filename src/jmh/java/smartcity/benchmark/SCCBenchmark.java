@@ -0,0 +1,26 @@
+package smartcity.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.TarjanSCC;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SCCBenchmark {
+
+    @Benchmark
+    public List<List<Integer>> tarjanFindSCCs(GraphState state) {
+        return new TarjanSCC(state.graph).findSCCs();
+    }
+
+    @Benchmark
+    public CondensationGraph condensationBuild(GraphState state) {
+        return new CondensationGraph(state.graph, state.sccs, state.componentId);
+    }
+}
@@ -0,0 +1,36 @@
+package smartcity.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.topo.ParallelKahnTopological;
+import smartcity.graph.topo.TopologicalSort;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DFS vs Kahn vs level-synchronous parallel Kahn on the condensation DAG. The DFS variant is recursive, so the fork gets a large
+ * thread stack to survive deep DAGs at the biggest sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+public class TopologicalSortBenchmark {
+
+    @Benchmark
+    public List<Integer> dfs(GraphState state) {
+        return new TopologicalSort().dfsTopologicalSort(state.condensation);
+    }
+
+    @Benchmark
+    public int[] kahn(GraphState state) {
+        return new KahnTopological().topologicalOrder(state.condensation);
+    }
+
+    @Benchmark
+    public int[] parallelKahn(GraphState state) {
+        return new ParallelKahnTopological().topologicalOrder(state.condensation);
+    }
+}
@@ -0,0 +1,369 @@
+package smartcity;
+
+import smartcity.model.Graph;
+import smartcity.graph.AnalysisSession;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.dagsp.CriticalPathMethod;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.util.RecordWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Headless analysis: runs only the selected stages on the given graph files and streams the
+ * results as JSON, NDJSON or CSV records, one record per file and stage (see RecordWriter).
+ *
+ * Stages share one AnalysisSession per file, so selecting "critical" alone still computes SCCs
+ * and the component order only once, and unselected stages cost nothing. Records carry summary
+ * values plus the per-vertex or per-component arrays (component ids, orders, distances, slack);
+ * quiet mode drops the arrays and the closing summary on stderr. The stats record comes last
+ * for each file and holds the graph size, the time of the shared passes (componentsMs for Tarjan,
+ * orderMs for the component order) and the time of every stage that ran on top of them, so a
+ * stage's figure does not depend on which other stages were selected.
+ *
+ * Usage: AnalyzeGraphs [--stages scc,condensation,topo,sp,critical,stats] [--format json|ndjson|csv]
+ *                      [--output file] [--source v] [--quiet] [dir | file ...]
+ * Directories contribute their *.json and *.bin files; the default input is data/.
+ */
+public class AnalyzeGraphs {
+    public enum Stage { SCC, CONDENSATION, TOPO, SP, CRITICAL, STATS }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Set<Stage> stages;
+    private final boolean quiet;
+    private int source = -1;
+
+    public AnalyzeGraphs(Set<Stage> stages, boolean quiet) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("No stages selected");
+        }
+        this.stages = EnumSet.copyOf(stages);
+        this.quiet = quiet;
+    }
+
+    /** Source vertex for the sp stage instead of the one stored in each file. */
+    public void setSource(int source) {
+        this.source = source;
+    }
+
+    /** Parses a comma-separated stage list such as "scc,topo"; "all" selects every stage. */
+    public static Set<Stage> parseStages(String list) {
+        Set<Stage> stages = EnumSet.noneOf(Stage.class);
+        for (String name : list.split(",")) {
+            name = name.trim();
+            if (name.equalsIgnoreCase("all")) {
+                stages.addAll(EnumSet.allOf(Stage.class));
+                continue;
+            }
+            try {
+                stages.add(Stage.valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown stage: " + name);
+            }
+        }
+        return stages;
+    }
+
+    public static RecordWriter.Format parseFormat(String name) {
+        try {
+            return RecordWriter.Format.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + name);
+        }
+    }
+
+    public static void main(String[] args) {
+        Set<Stage> stages = EnumSet.allOf(Stage.class);
+        RecordWriter.Format format = RecordWriter.Format.JSON;
+        String output = null;
+        boolean quiet = false;
+        int source = -1;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--stages": stages = parseStages(args[++i]); break;
+                    case "--format": format = parseFormat(args[++i]); break;
+                    case "--output": output = args[++i]; break;
+                    case "--source": source = Integer.parseInt(args[++i]); break;
+                    case "--quiet": quiet = true; break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Error: " + (e instanceof ArrayIndexOutOfBoundsException ? "missing option value" : e.getMessage()));
+            System.err.println("Usage: AnalyzeGraphs [--stages scc,condensation,topo,sp,critical,stats]"
+                    + " [--format json|ndjson|csv] [--output file] [--source v] [--quiet] [dir | file ...]");
+            System.exit(2);
+            return;
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("data");
+        }
+
+        AnalyzeGraphs cli = new AnalyzeGraphs(stages, quiet);
+        cli.setSource(source);
+        int failed;
+        long start = System.nanoTime();
+        try {
+            List<Path> files = BatchAnalysis.collectFiles(inputs);
+            OutputStream stream = output == null ? System.out : Files.newOutputStream(Paths.get(output));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            try (RecordWriter records = RecordWriter.create(format, writer)) {
+                failed = cli.run(files, records);
+            } finally {
+                if (output != null) {
+                    writer.close();
+                }
+            }
+            if (!quiet) {
+                System.err.printf("Analyzed %d files (%d failed) in %.2f ms%n",
+                        files.size(), failed, (System.nanoTime() - start) / 1e6);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            failed = 1;
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** Analyzes the files in order; a file that fails gets an "error" record. Returns the failure count. */
+    public int run(List<Path> files, RecordWriter out) throws IOException {
+        int failed = 0;
+        for (Path file : files) {
+            if (!analyze(file, out)) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private boolean analyze(Path file, RecordWriter out) throws IOException {
+        String name = file.toString();
+        long[] nanos = new long[Stage.values().length];
+        long start = System.nanoTime();
+        Graph graph;
+        AnalysisSession session;
+        long parseNanos;
+        try {
+            graph = BatchAnalysis.loadGraph(file);
+            session = new AnalysisSession(graph);
+            session.csr();
+            parseNanos = System.nanoTime() - start;
+        } catch (Exception e) {
+            error(out, name, e);
+            return false;
+        }
+
+        // Shared intermediates are computed and timed before any stage, so no stage pays for them
+        long componentsNanos = -1;
+        long orderNanos = -1;
+        try {
+            boolean analysis = !EnumSet.of(Stage.STATS).containsAll(stages);
+            if (analysis) {
+                start = System.nanoTime();
+                session.componentIds();
+                session.isDAG();
+                componentsNanos = System.nanoTime() - start;
+            }
+            if (stages.contains(Stage.TOPO) || stages.contains(Stage.SP) || stages.contains(Stage.CRITICAL)) {
+                start = System.nanoTime();
+                session.condensationOrder();
+                orderNanos = System.nanoTime() - start;
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            error(out, name, e);
+            return false;
+        }
+
+        // Stages are timed up to their first write, so the figures exclude output costs
+        for (Stage stage : stages) {
+            if (stage == Stage.STATS) {
+                continue;
+            }
+            try {
+                start = System.nanoTime();
+                switch (stage) {
+                    case SCC: scc(name, session, out, nanos, start); break;
+                    case CONDENSATION: condensation(name, session, out, nanos, start); break;
+                    case TOPO: topo(name, session, out, nanos, start); break;
+                    case SP: shortestPaths(name, session, out, nanos, start); break;
+                    case CRITICAL: critical(name, session, out, nanos, start); break;
+                    default: break;
+                }
+            } catch (RuntimeException | StackOverflowError e) {
+                error(out, name, e);
+                return false;
+            }
+        }
+
+        if (stages.contains(Stage.STATS)) {
+            out.begin(name, "stats");
+            out.field("vertices", graph.getN());
+            out.field("edges", session.csr().getEdgeCount());
+            out.field("weightModel", graph.getWeightModel());
+            out.field("source", graph.getSource());
+            out.field("parseMs", parseNanos / 1e6);
+            if (componentsNanos >= 0) {
+                out.field("componentsMs", componentsNanos / 1e6);
+            }
+            if (orderNanos >= 0) {
+                out.field("orderMs", orderNanos / 1e6);
+            }
+            for (Stage stage : stages) {
+                if (stage != Stage.STATS) {
+                    out.field(stage.name().toLowerCase(Locale.ROOT) + "Ms", nanos[stage.ordinal()] / 1e6);
+                }
+            }
+            out.end();
+        }
+        return true;
+    }
+
+    private static void error(RecordWriter out, String file, Throwable e) throws IOException {
+        out.begin(file, "error");
+        out.field("message", e.getClass().getSimpleName() + ": " + e.getMessage());
+        out.end();
+    }
+
+    private static void stop(long[] nanos, Stage stage, long start) {
+        nanos[stage.ordinal()] = System.nanoTime() - start;
+    }
+
+    private void scc(String file, AnalysisSession session, RecordWriter out, long[] nanos, long start) throws IOException {
+        List<List<Integer>> sccs = session.sccs();
+        int largest = 0;
+        int cyclic = 0;
+        for (List<Integer> scc : sccs) {
+            largest = Math.max(largest, scc.size());
+            if (scc.size() > 1) cyclic++;
+        }
+        boolean dag = session.isDAG();
+        stop(nanos, Stage.SCC, start);
+
+        out.begin(file, "scc");
+        out.field("components", sccs.size());
+        out.field("largestComponent", largest);
+        out.field("cyclicComponents", cyclic);
+        out.field("dag", dag);
+        if (!quiet) {
+            out.array("componentId", session.componentIds());
+        }
+        out.end();
+    }
+
+    private void condensation(String file, AnalysisSession session, RecordWriter out, long[] nanos, long start)
+            throws IOException {
+        CondensationGraph cg = session.condensation();
+        Graph condensation = cg.getCondensationGraph();
+        int[] sources = toArray(cg.findSourceComponents());
+        int[] sinks = toArray(cg.findSinkComponents());
+        stop(nanos, Stage.CONDENSATION, start);
+
+        out.begin(file, "condensation");
+        out.field("components", condensation.getN());
+        out.field("edges", condensation.getEdgeCount());
+        out.field("sourceComponents", sources.length);
+        out.field("sinkComponents", sinks.length);
+        if (!quiet) {
+            out.array("sources", sources);
+            out.array("sinks", sinks);
+        }
+        out.end();
+    }
+
+    private void topo(String file, AnalysisSession session, RecordWriter out, long[] nanos, long start) throws IOException {
+        int[] componentOrder = session.condensationOrder();
+        int levels = session.levelCount();
+        int[] taskOrder = toArray(session.taskOrder());
+        stop(nanos, Stage.TOPO, start);
+
+        out.begin(file, "topo");
+        out.field("components", componentOrder.length);
+        out.field("levels", levels);
+        out.field("dag", session.isDAG());
+        if (!quiet) {
+            out.array("componentOrder", componentOrder);
+            out.array("taskOrder", taskOrder);
+        }
+        out.end();
+    }
+
+    private void shortestPaths(String file, AnalysisSession session, RecordWriter out, long[] nanos, long start)
+            throws IOException {
+        Graph graph = session.getGraph();
+        int from = source >= 0 ? source : graph.getSource();
+        if (from < 0 || from >= graph.getN()) {
+            stop(nanos, Stage.SP, start);
+            out.begin(file, "sp");
+            out.field("skipped", "no source vertex");
+            out.end();
+            return;
+        }
+        // Cyclic graphs are measured between components, as Main does
+        boolean dag = session.isDAG();
+        DAGShortestPath.Result result = dag
+                ? session.shortestPath(from, -1)
+                : session.condensationShortestPath(session.componentIds()[from], -1);
+        int reachable = 0;
+        double farthest = 0;
+        for (double d : result.distances) {
+            if (d != Double.POSITIVE_INFINITY) {
+                reachable++;
+                farthest = Math.max(farthest, d);
+            }
+        }
+        stop(nanos, Stage.SP, start);
+
+        out.begin(file, "sp");
+        out.field("over", dag ? "vertices" : "components");
+        out.field("source", from);
+        out.field("reachable", reachable);
+        out.field("farthest", farthest);
+        if (!quiet) {
+            out.array("distances", result.distances);
+        }
+        out.end();
+    }
+
+    private void critical(String file, AnalysisSession session, RecordWriter out, long[] nanos, long start)
+            throws IOException {
+        CriticalPathMethod.Result cpm = session.criticalPathMethod();
+        int criticalCount = cpm.getCriticalTasks().length;
+        int[] path = toArray(cpm.getCriticalPath());
+        stop(nanos, Stage.CRITICAL, start);
+
+        out.begin(file, "critical");
+        out.field("over", "components");
+        out.field("projectDuration", cpm.projectDuration);
+        out.field("criticalComponents", criticalCount);
+        out.field("pathLength", path.length);
+        if (!quiet) {
+            out.array("criticalPath", path);
+            double[] slack = new double[cpm.earliestStart.length];
+            for (int c = 0; c < slack.length; c++) {
+                slack[c] = cpm.getSlack(c);
+            }
+            out.array("slack", slack);
+        }
+        out.end();
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,293 @@
+package smartcity;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.EdgeWeightAggregation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.dagsp.CriticalPathMethod;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.util.BinaryGraphFile;
+import smartcity.util.StreamingJSONParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Runs parse -> SCC -> condensation -> topological order -> paths on many graph files at once
+ * and writes one aggregated report at the end.
+ *
+ * Files are analyzed on a fixed pool of worker threads. The submitting thread blocks before
+ * handing out another file while maxInFlight files are being analyzed, so at most that many
+ * graphs are in memory however long the file list is. A file that fails to parse or analyze is
+ * recorded with its error and the batch goes on. Stages only record their timings in the file's
+ * result, so workers share no mutable state.
+ *
+ * Usage: BatchAnalysis [--threads N] [--max-in-flight M] [--report file] [dir | file ...]
+ * Directories contribute their *.json and *.bin files; the default input is data/.
+ */
+public class BatchAnalysis {
+    private final int threads;
+    private final int maxInFlight;
+
+    public BatchAnalysis(int threads, int maxInFlight) {
+        if (threads < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("threads and maxInFlight must be positive");
+        }
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = -1;
+        String reportFile = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--max-in-flight": maxInFlight = Integer.parseInt(args[++i]); break;
+                case "--report": reportFile = args[++i]; break;
+                default: inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("data");
+        }
+
+        try {
+            List<Path> files = collectFiles(inputs);
+            BatchAnalysis batch = new BatchAnalysis(threads, maxInFlight > 0 ? maxInFlight : 2 * threads);
+            Report report = batch.run(files);
+            if (reportFile == null) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                report.write(out);
+                out.flush();
+            } else {
+                try (Writer out = Files.newBufferedWriter(Paths.get(reportFile), StandardCharsets.UTF_8)) {
+                    report.write(out);
+                }
+                System.out.println("Report written to " + reportFile + " (" + report.getSucceeded() + " ok, "
+                        + report.getFailed() + " failed)");
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /** Expands directories into their graph files, sorted by name; plain files are kept as given. */
+    public static List<Path> collectFiles(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    entries.filter(p -> p.toString().endsWith(".json") || p.toString().endsWith(".bin"))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    public Report run(List<Path> files) throws InterruptedException {
+        long start = System.nanoTime();
+        FileResult[] results = new FileResult[files.size()];
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                inFlight.acquire();
+                int index = i;
+                executor.execute(() -> {
+                    try {
+                        results[index] = analyze(files.get(index));
+                    } catch (Throwable t) {
+                        // Typically OutOfMemoryError on an oversized file; the others go on
+                        FileResult failed = new FileResult(files.get(index));
+                        failed.error = t.toString();
+                        results[index] = failed;
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Every permit back means every file is done
+            inFlight.acquire(maxInFlight);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Report(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    /** Runs the whole pipeline on one file; never throws, failures end up in the result. */
+    public static FileResult analyze(Path file) {
+        FileResult result = new FileResult(file);
+        long stageStart = System.nanoTime();
+        try {
+            Graph graph = loadGraph(file);
+            CSRGraph csr = graph.toCSR();
+            result.vertices = graph.getN();
+            result.edges = csr.getEdgeCount();
+            stageStart = result.stage(Stage.PARSE, stageStart);
+
+            TarjanSCC tarjan = new TarjanSCC(csr, NoOpMetrics.INSTANCE);
+            List<List<Integer>> sccs = tarjan.findSCCs();
+            result.components = sccs.size();
+            for (List<Integer> scc : sccs) {
+                result.largestComponent = Math.max(result.largestComponent, scc.size());
+            }
+            stageStart = result.stage(Stage.SCC, stageStart);
+
+            // MAX keeps the longest lag between components, which is what CPM needs
+            CondensationGraph condensation = new CondensationGraph(csr, sccs, tarjan.getComponentId(),
+                    EdgeWeightAggregation.MAX);
+            CSRGraph dag = condensation.getCondensationGraph().toCSR();
+            result.condensationEdges = dag.getEdgeCount();
+            stageStart = result.stage(Stage.CONDENSATION, stageStart);
+
+            int[] order = new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(dag);
+            stageStart = result.stage(Stage.TOPOLOGICAL, stageStart);
+
+            if (graph.getSource() >= 0 && graph.getSource() < graph.getN()) {
+                int source = condensation.getComponentId(graph.getSource());
+                DAGShortestPath.Result sp = new DAGShortestPath(NoOpMetrics.INSTANCE)
+                        .findShortestPath(dag, order, source, -1);
+                for (double d : sp.distances) {
+                    if (d != Double.POSITIVE_INFINITY) result.reachableComponents++;
+                }
+            }
+            CriticalPathMethod.Result cpm = new CriticalPathMethod(NoOpMetrics.INSTANCE)
+                    .analyzeCondensation(graph, condensation);
+            result.projectDuration = cpm.projectDuration;
+            result.criticalComponents = cpm.getCriticalTasks().length;
+            result.stage(Stage.PATHS, stageStart);
+            result.succeeded = true;
+        } catch (Exception | StackOverflowError e) {
+            result.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        return result;
+    }
+
+    /** A .bin file through BinaryGraphFile, anything else as JSON. */
+    static Graph loadGraph(Path file) throws IOException {
+        String name = file.toString();
+        return name.endsWith(".bin")
+                ? BinaryGraphFile.loadGraph(name)
+                : new StreamingJSONParser().parseGraph(name);
+    }
+
+    public enum Stage { PARSE, SCC, CONDENSATION, TOPOLOGICAL, PATHS }
+
+    public static class FileResult {
+        private final Path file;
+        private final long[] stageNanos = new long[Stage.values().length];
+        private boolean succeeded;
+        private String error;
+        private int vertices;
+        private int edges;
+        private int components;
+        private int largestComponent;
+        private int condensationEdges;
+        private int reachableComponents;
+        private int criticalComponents;
+        private double projectDuration;
+
+        FileResult(Path file) {
+            this.file = file;
+        }
+
+        private long stage(Stage stage, long start) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] = now - start;
+            return now;
+        }
+
+        public Path getFile() { return file; }
+        public boolean isSucceeded() { return succeeded; }
+        public String getError() { return error; }
+        public int getVertices() { return vertices; }
+        public int getEdges() { return edges; }
+        public int getComponents() { return components; }
+        public int getLargestComponent() { return largestComponent; }
+        public int getCondensationEdges() { return condensationEdges; }
+        public int getReachableComponents() { return reachableComponents; }
+        public int getCriticalComponents() { return criticalComponents; }
+        public double getProjectDuration() { return projectDuration; }
+        public long getStageNanos(Stage stage) { return stageNanos[stage.ordinal()]; }
+
+        public long getTotalNanos() {
+            long total = 0;
+            for (long nanos : stageNanos) total += nanos;
+            return total;
+        }
+    }
+
+    public static class Report {
+        private final List<FileResult> results;
+        private final long wallNanos;
+
+        Report(List<FileResult> results, long wallNanos) {
+            this.results = results;
+            this.wallNanos = wallNanos;
+        }
+
+        /** In input order. */
+        public List<FileResult> getResults() { return Collections.unmodifiableList(results); }
+        public long getWallNanos() { return wallNanos; }
+
+        public int getSucceeded() {
+            int count = 0;
+            for (FileResult result : results) {
+                if (result.succeeded) count++;
+            }
+            return count;
+        }
+
+        public int getFailed() { return results.size() - getSucceeded(); }
+
+        public void write(Writer out) throws IOException {
+            out.write("=== Batch Analysis Report ===\n");
+            out.write(String.format("%-32s %10s %10s %8s %8s %12s %10s%n",
+                    "File", "Vertices", "Edges", "SCCs", "Largest", "Duration", "Time (ms)"));
+            long[] stageTotals = new long[Stage.values().length];
+            long vertices = 0;
+            long edges = 0;
+            for (FileResult r : results) {
+                String name = r.file.getFileName().toString();
+                if (!r.succeeded) {
+                    out.write(String.format("%-32s FAILED: %s%n", name, r.error));
+                    continue;
+                }
+                out.write(String.format("%-32s %10d %10d %8d %8d %12.1f %10.2f%n", name, r.vertices, r.edges,
+                        r.components, r.largestComponent, r.projectDuration, r.getTotalNanos() / 1e6));
+                vertices += r.vertices;
+                edges += r.edges;
+                for (Stage stage : Stage.values()) {
+                    stageTotals[stage.ordinal()] += r.stageNanos[stage.ordinal()];
+                }
+            }
+
+            out.write(String.format("%nFiles: %d ok, %d failed%n", getSucceeded(), getFailed()));
+            out.write(String.format("Total: %d vertices, %d edges%n", vertices, edges));
+            out.write(String.format("Wall time: %.2f ms%n", wallNanos / 1e6));
+            for (Stage stage : Stage.values()) {
+                out.write(String.format("  %-13s %10.2f ms (summed over files)%n",
+                        stage.name().toLowerCase(), stageTotals[stage.ordinal()] / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package smartcity;
+
+import smartcity.util.BinaryGraphFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Converts JSON graph files into the binary format read by BinaryGraphFile.
+ * With no arguments every data/*.json file gets a data/*.bin sibling.
+ *
+ * Usage: ConvertData [file.json ...]
+ */
+public class ConvertData {
+    public static void main(String[] args) {
+        List<String> files = new ArrayList<>(Arrays.asList(args));
+        if (files.isEmpty()) {
+            File[] jsonFiles = new File("data").listFiles((dir, name) -> name.endsWith(".json"));
+            if (jsonFiles != null) {
+                Arrays.sort(jsonFiles);
+                for (File file : jsonFiles) {
+                    files.add(file.getPath());
+                }
+            }
+        }
+
+        for (String json : files) {
+            String binary = json.replaceAll("\\.json$", "") + ".bin";
+            try {
+                long start = System.nanoTime();
+                BinaryGraphFile.convertJSON(json, binary);
+                System.out.printf("%s -> %s (%.2f ms)%n", json, binary, (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.println("Error converting " + json + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package smartcity;
+
+import smartcity.util.ScalableGraphGenerator;
+
+/**
+ * Writes a reproducible large synthetic graph straight to a binary graph file.
+ *
+ * Usage: GenerateScaleGraph [vertices] [avgDegree] [sccRatio] [maxComponentSize] [output.bin] [seed]
+ */
+public class GenerateScaleGraph {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double avgDegree = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        double sccRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.3;
+        int maxComponentSize = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        String output = args.length > 4 ? args[4] : "data/scale_" + n + ".bin";
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+
+        try {
+            ScalableGraphGenerator generator = new ScalableGraphGenerator(n, seed)
+                    .setAverageDegree(avgDegree)
+                    .setComponentStructure(sccRatio, maxComponentSize);
+
+            long start = System.nanoTime();
+            long edges = generator.writeBinary(output);
+            int[] components = generator.getComponentBoundaries();
+            System.out.printf("Generated %s: %d vertices, %d edges, %d SCCs in %.2f s%n",
+                    output, n, edges, components.length - 1, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.err.println("Error generating graph: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package smartcity;
 
 import smartcity.model.Graph;
-import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.AnalysisSession;
 import smartcity.graph.scc.CondensationGraph;
-import smartcity.graph.topo.KahnTopological;
 import smartcity.graph.dagsp.DAGShortestPath;
-import smartcity.graph.dagsp.CriticalPath;
+import smartcity.graph.dagsp.CriticalPathMethod;
 import smartcity.util.JSONParser;
 import smartcity.util.DataGenerator;
 import smartcity.util.PerformanceMetrics;
@@ -17,6 +16,11 @@ import java.util.*;
 
 public class Main {
     public static void main(String[] args) {
+        // With arguments, run headless: selected stages, machine-readable output, no dataset generation
+        if (args.length > 0) {
+            AnalyzeGraphs.main(args);
+            return;
+        }
         try {
 
             createDataDirectory();
@@ -118,9 +122,11 @@ public class Main {
             }
 
 
+            // Every stage below reads SCCs, condensation and orders from here; each is computed once
+            AnalysisSession session = new AnalysisSession(graph);
+
             PerformanceMetrics.start("SCC");
-            TarjanSCC tarjan = new TarjanSCC(graph);
-            List<List<Integer>> sccs = tarjan.findSCCs();
+            List<List<Integer>> sccs = session.sccs();
             PerformanceMetrics.end("SCC");
 
             System.out.println("\nStrongly Connected Components: " + sccs.size());
@@ -130,23 +136,19 @@ public class Main {
 
 
             PerformanceMetrics.start("Condensation");
-            Graph condensation = tarjan.buildCondensationGraph();
-            CondensationGraph cg = tarjan.getCondensationGraphObject();
+            CondensationGraph cg = session.condensation();
+            Graph condensation = cg.getCondensationGraph();
             PerformanceMetrics.end("Condensation");
 
             System.out.println("Condensation graph: " + condensation.getN() + " components, " +
                     condensation.getEdgeCount() + " edges between components");
 
             PerformanceMetrics.start("Topological");
-            KahnTopological topological = new KahnTopological();
-            List<Integer> topoOrder = topological.topologicalSort(condensation);
+            int[] condensationOrder = session.condensationOrder();
             PerformanceMetrics.end("Topological");
 
-            System.out.println("Topological Order of Components: " + topoOrder);
-
-
-            List<Integer> taskOrder = topological.getTaskOrderFromComponents(topoOrder, sccs);
-            System.out.println("Task Execution Order: " + taskOrder);
+            System.out.println("Topological Order of Components: " + Arrays.toString(condensationOrder));
+            System.out.println("Task Execution Order: " + session.taskOrder());
 
 
             CondensationGraph.ComponentStatistics stats = cg.getStatistics();
@@ -159,10 +161,12 @@ public class Main {
             System.out.println("Sink components (can finish last): " + sinkComps);
 
 
-            if (graph.getSource() != -1 && topological.isDAG(graph)) {
+            boolean dag = session.isDAG();
+            if (graph.getSource() != -1 && dag) {
                 PerformanceMetrics.start("ShortestPath");
-                DAGShortestPath shortestPath = new DAGShortestPath();
-                DAGShortestPath.Result spResult = shortestPath.findShortestPath(graph, graph.getSource(), -1);
+                int target = graph.getN() > graph.getSource() + 1 ? graph.getN() - 1 : -1;
+                // One query gives both the distance table and the example path
+                DAGShortestPath.Result spResult = session.shortestPath(graph.getSource(), target);
                 PerformanceMetrics.end("ShortestPath");
 
                 System.out.println("\nShortest distances from source " + graph.getSource() + " in original graph:");
@@ -173,12 +177,8 @@ public class Main {
                 }
 
 
-                if (graph.getN() > graph.getSource() + 1) {
-                    int target = graph.getN() - 1;
-                    DAGShortestPath.Result pathResult = shortestPath.findShortestPath(graph, graph.getSource(), target);
-                    if (!pathResult.path.isEmpty()) {
-                        System.out.println("Example shortest path from " + graph.getSource() + " to " + target + ": " + pathResult.path);
-                    }
+                if (!spResult.path.isEmpty()) {
+                    System.out.println("Example shortest path from " + graph.getSource() + " to " + target + ": " + spResult.path);
                 }
             } else if (graph.getSource() != -1) {
                 System.out.println("\nOriginal graph contains cycles - shortest path analysis skipped for original graph");
@@ -187,11 +187,8 @@ public class Main {
 
 
             PerformanceMetrics.start("CondensationShortestPath");
-            DAGShortestPath condensationSP = new DAGShortestPath();
-
-
             int sourceComponent = cg.getComponentId(graph.getSource());
-            DAGShortestPath.Result condensationResult = condensationSP.findShortestPath(condensation, sourceComponent, -1);
+            DAGShortestPath.Result condensationResult = session.condensationShortestPath(sourceComponent, -1);
             PerformanceMetrics.end("CondensationShortestPath");
 
             System.out.println("\nShortest distances from source component " + sourceComponent + " in condensation graph:");
@@ -204,48 +201,33 @@ public class Main {
 
 
             PerformanceMetrics.start("CriticalPath");
-            CriticalPath criticalPath = new CriticalPath();
-            int startComponent = sourceComps.isEmpty() ? 0 : sourceComps.get(0);
-            int endComponent = sinkComps.isEmpty() ? condensation.getN() - 1 : sinkComps.get(0);
-
-            DAGShortestPath.Result cpResult = criticalPath.findCriticalPath(condensation, startComponent, endComponent);
+            // CPM over the condensation: component durations are the sums of their tasks' durations
+            CriticalPathMethod.Result cpm = session.criticalPathMethod();
             PerformanceMetrics.end("CriticalPath");
 
-            if (!cpResult.path.isEmpty()) {
-                System.out.println("\nCritical path in condensation graph:");
-                System.out.println("  Length: " + cpResult.distances[endComponent]);
-                System.out.println("  Path through components: " + cpResult.path);
-
-
-                List<Integer> nodePath = new ArrayList<>();
-                for (int compId : cpResult.path) {
-                    List<Integer> nodesInComponent = cg.getComponent(compId);
-                    if (nodesInComponent.size() == 1) {
-                        nodePath.add(nodesInComponent.get(0));
-                    } else {
+            List<Integer> criticalComponents = cpm.getCriticalPath();
+            System.out.println("\nCritical path in condensation graph:");
+            System.out.println("  Project duration: " + cpm.projectDuration);
+            System.out.println("  Critical components: " + cpm.getCriticalTasks().length + " of " + condensation.getN());
+            System.out.println("  Path through components: " + criticalComponents);
 
-                        nodePath.addAll(nodesInComponent);
-                    }
-                }
-                System.out.println("  Corresponding node path: " + nodePath);
-            } else {
-                System.out.println("\nNo critical path found from component " + startComponent + " to " + endComponent);
+            List<Integer> nodePath = new ArrayList<>();
+            for (int compId : criticalComponents) {
+                nodePath.addAll(cg.getComponent(compId));
             }
+            System.out.println("  Corresponding node path: " + nodePath);
 
 
-            if (topological.isDAG(graph)) {
+            if (dag) {
                 PerformanceMetrics.start("OriginalCriticalPath");
-                CriticalPath originalCriticalPath = new CriticalPath();
-                int startNode = 0;
-                int endNode = graph.getN() - 1;
-                DAGShortestPath.Result originalCPResult = originalCriticalPath.findCriticalPath(graph, startNode, endNode);
+                CriticalPathMethod.Result originalCPM = new CriticalPathMethod()
+                        .analyze(session.csr(), session.topologicalOrder(), graph.getVertexDurations());
                 PerformanceMetrics.end("OriginalCriticalPath");
 
-                if (!originalCPResult.path.isEmpty()) {
-                    System.out.println("\nCritical path in original graph (DAG):");
-                    System.out.println("  Length: " + originalCPResult.distances[endNode]);
-                    System.out.println("  Path: " + originalCPResult.path);
-                }
+                System.out.println("\nCritical path in original graph (DAG):");
+                System.out.println("  Project duration: " + originalCPM.projectDuration);
+                System.out.println("  Path: " + originalCPM.getCriticalPath());
+                System.out.println("  Critical tasks: " + originalCPM.getCriticalTasks().length + " of " + graph.getN());
             }
 
             PerformanceMetrics.printSummary();
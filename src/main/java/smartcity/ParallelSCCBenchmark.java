@@ -0,0 +1,110 @@
+package smartcity;
+
+import smartcity.graph.scc.ParallelSCC;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.model.CSRGraph;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling benchmark for ParallelSCC: runs the same graph on pools of 1, 2, 4, ... cores
+ * and prints the median time and speedup next to the sequential TarjanSCC baseline.
+ *
+ * Usage: ParallelSCCBenchmark [vertices] [avgDegree] [maxCycleSize]
+ */
+public class ParallelSCCBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int avgDegree = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int maxCycle = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        CSRGraph graph = generate(n, avgDegree, maxCycle, 42);
+        System.out.println("=== Parallel SCC Scaling Benchmark ===");
+        System.out.println("Vertices: " + graph.getN() + ", Edges: " + graph.getEdgeCount());
+
+        TarjanSCC[] tarjan = new TarjanSCC[1];
+        long tarjanTime = median(() -> {
+            tarjan[0] = new TarjanSCC(graph);
+            tarjan[0].findSCCs();
+        });
+        int expected = tarjan[0].findSCCs().size();
+        System.out.printf("TarjanSCC (sequential): %.2f ms, %d components%n", tarjanTime / 1e6, expected);
+
+        System.out.println("Cores | Time (ms) | Speedup vs 1 core | Speedup vs Tarjan");
+        long single = -1;
+        for (int cores : coreCounts(Runtime.getRuntime().availableProcessors())) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            try {
+                ParallelSCC[] parallel = new ParallelSCC[1];
+                long time = median(() -> {
+                    parallel[0] = new ParallelSCC(graph, pool);
+                    parallel[0].findSCCs();
+                });
+                if (parallel[0].findSCCs().size() != expected) {
+                    throw new IllegalStateException("Component count mismatch at " + cores + " cores");
+                }
+                if (single < 0) {
+                    single = time;
+                }
+                System.out.printf("%5d | %9.2f | %17.2f | %17.2f%n",
+                        cores, time / 1e6, (double) single / time, (double) tarjanTime / time);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static List<Integer> coreCounts(int maxCores) {
+        List<Integer> counts = new ArrayList<>();
+        for (int cores = 1; cores < maxCores; cores *= 2) {
+            counts.add(cores);
+        }
+        counts.add(maxCores);
+        return counts;
+    }
+
+    private static long median(Runnable run) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run.run();
+        }
+        long[] times = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[MEASURED_RUNS / 2];
+    }
+
+    // Random cycles of size 1..maxCycle, chained by forward edges so the condensation stays a DAG
+    static CSRGraph generate(int n, int avgDegree, int maxCycle, long seed) {
+        Random random = new Random(seed);
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true, n * avgDegree);
+
+        int start = 0;
+        while (start < n) {
+            int size = Math.min(n - start, 1 + random.nextInt(maxCycle));
+            for (int i = 0; i < size - 1; i++) {
+                builder.addEdge(start + i, start + i + 1, 1 + random.nextInt(10));
+            }
+            if (size > 1) {
+                builder.addEdge(start + size - 1, start, 1 + random.nextInt(10));
+            }
+            start += size;
+        }
+
+        while (builder.getEdgeCount() < (long) n * avgDegree) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if (u < v) {
+                builder.addEdge(u, v, 1 + random.nextInt(10));
+            }
+        }
+        return builder.build();
+    }
+}
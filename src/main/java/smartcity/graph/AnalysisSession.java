@@ -0,0 +1,258 @@
+package smartcity.graph;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.CriticalPathMethod;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.EdgeWeightAggregation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import java.util.*;
+
+/**
+ * Shared intermediates of one graph's analysis, each computed on first use and then handed to
+ * every stage that needs it: SCCs, condensations, the condensation's topological order and
+ * levels, DAG-ness, the task order and the original graph's topological order.
+ *
+ * Everything is derived from one Tarjan pass and one Kahn pass over the component graph. DAG-ness
+ * needs no sort of its own (the graph is a DAG exactly when every component is a single vertex
+ * without a self-loop), and for a DAG the original graph's order is read off the condensation's.
+ * Orders, levels, component paths and CPM run on a primitive component graph that keeps parallel
+ * edges, so the hashed CondensationGraph is only built when a caller asks for it.
+ * Results are keyed on Graph.getVersion(): after addEdge or setVertex every accessor recomputes,
+ * so a session can be kept for as long as the graph lives, provided vertex durations are changed
+ * through setVertex rather than on the Vertex itself. Not thread-safe.
+ */
+public class AnalysisSession {
+    private final Graph graph;
+    private long version;
+
+    private CSRGraph csr;
+    private TarjanSCC tarjan;
+    private List<List<Integer>> sccs;
+    private final Map<EdgeWeightAggregation, CondensationGraph> condensations = new EnumMap<>(EdgeWeightAggregation.class);
+    private CSRGraph componentGraph;
+    private int[] condensationOrder;
+    private int[] levels;
+    private int levelCount;
+    private Boolean dag;
+    private int[] topologicalOrder;
+    private List<Integer> taskOrder;
+    private CriticalPathMethod.Result cpm;
+    private long computations;
+
+    public AnalysisSession(Graph graph) {
+        this.graph = graph;
+        this.version = graph.getVersion();
+    }
+
+    public Graph getGraph() { return graph; }
+
+    public CSRGraph csr() {
+        refresh();
+        if (csr == null) {
+            csr = graph.toCSR();
+        }
+        return csr;
+    }
+
+    /** Components in TarjanSCC order (sinks of the condensation first). */
+    public List<List<Integer>> sccs() {
+        refresh();
+        if (sccs == null) {
+            tarjan = new TarjanSCC(csr(), NoOpMetrics.INSTANCE);
+            sccs = Collections.unmodifiableList(tarjan.findSCCs());
+            computations++;
+        }
+        return sccs;
+    }
+
+    public int[] componentIds() {
+        sccs();
+        return tarjan.getComponentId();
+    }
+
+    /** The condensation with MIN edge weights, as TarjanSCC.buildCondensationGraph builds it. */
+    public CondensationGraph condensation() {
+        return condensation(EdgeWeightAggregation.MIN);
+    }
+
+    public CondensationGraph condensation(EdgeWeightAggregation aggregation) {
+        List<List<Integer>> components = sccs();
+        CondensationGraph condensation = condensations.get(aggregation);
+        if (condensation == null) {
+            condensation = new CondensationGraph(csr(), components, tarjan.getComponentId(), aggregation);
+            condensations.put(aggregation, condensation);
+            computations++;
+        }
+        return condensation;
+    }
+
+    /**
+     * Components joined by every edge that crosses two of them, parallel edges kept. Shortest
+     * paths over it equal those of the MIN condensation and CPM over it equals CPM over the MAX
+     * one, so neither aggregation has to be built for them.
+     */
+    public CSRGraph componentGraph() {
+        refresh();
+        if (componentGraph == null) {
+            CSRGraph g = csr();
+            int[] component = componentIds();
+            int crossing = 0;
+            for (int u = 0; u < g.getN(); u++) {
+                for (int i = g.edgeStart(u), end = g.edgeEnd(u); i < end; i++) {
+                    if (component[g.target(i)] != component[u]) crossing++;
+                }
+            }
+            CSRGraph.Builder builder = new CSRGraph.Builder(sccs().size(), true, crossing);
+            for (int u = 0; u < g.getN(); u++) {
+                for (int i = g.edgeStart(u), end = g.edgeEnd(u); i < end; i++) {
+                    int v = g.target(i);
+                    if (component[v] != component[u]) {
+                        builder.addEdge(component[u], component[v], g.weight(i));
+                    }
+                }
+            }
+            componentGraph = builder.build();
+            computations++;
+        }
+        return componentGraph;
+    }
+
+    public int[] condensationOrder() {
+        refresh();
+        if (condensationOrder == null) {
+            condensationOrder = new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(componentGraph());
+            computations++;
+        }
+        return condensationOrder;
+    }
+
+    /** Level of every component: the number of edges on the longest path reaching it. */
+    public int[] levels() {
+        refresh();
+        if (levels == null) {
+            CSRGraph dag = componentGraph();
+            int[] level = new int[dag.getN()];
+            int deepest = -1;
+            for (int u : condensationOrder()) {
+                deepest = Math.max(deepest, level[u]);
+                for (int i = dag.edgeStart(u), end = dag.edgeEnd(u); i < end; i++) {
+                    level[dag.target(i)] = Math.max(level[dag.target(i)], level[u] + 1);
+                }
+            }
+            levels = level;
+            levelCount = deepest + 1;
+            computations++;
+        }
+        return levels;
+    }
+
+    public int levelCount() {
+        levels();
+        return levelCount;
+    }
+
+    public boolean isDAG() {
+        refresh();
+        if (dag == null) {
+            boolean acyclic = sccs().size() == graph.getN();
+            CSRGraph g = csr();
+            for (int u = 0; u < g.getN() && acyclic; u++) {
+                for (int i = g.edgeStart(u), end = g.edgeEnd(u); i < end; i++) {
+                    if (g.target(i) == u) {
+                        acyclic = false;
+                        break;
+                    }
+                }
+            }
+            dag = acyclic;
+        }
+        return dag;
+    }
+
+    /** Topological order of the original graph; throws IllegalStateException if it has cycles. */
+    public int[] topologicalOrder() {
+        if (!isDAG()) {
+            throw new IllegalStateException("Graph contains cycles; use condensationOrder() or taskOrder()");
+        }
+        if (topologicalOrder == null) {
+            // Every component is a single vertex, so the condensation order is the graph's order
+            int[] componentOrder = condensationOrder();
+            List<List<Integer>> components = sccs();
+            int[] order = new int[componentOrder.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = components.get(componentOrder[i]).get(0);
+            }
+            topologicalOrder = order;
+        }
+        return topologicalOrder;
+    }
+
+    /** Tasks in condensation order, each component's members in component order. */
+    public List<Integer> taskOrder() {
+        refresh();
+        if (taskOrder == null) {
+            List<Integer> componentOrder = new ArrayList<>();
+            for (int c : condensationOrder()) {
+                componentOrder.add(c);
+            }
+            taskOrder = Collections.unmodifiableList(
+                    new KahnTopological(NoOpMetrics.INSTANCE).getTaskOrderFromComponents(componentOrder, sccs()));
+        }
+        return taskOrder;
+    }
+
+    /** Shortest paths in the original graph over the cached order; the graph must be a DAG. */
+    public DAGShortestPath.Result shortestPath(int source, int target) {
+        return new DAGShortestPath(NoOpMetrics.INSTANCE).findShortestPath(csr(), topologicalOrder(), source, target);
+    }
+
+    /** Shortest paths between components, as over the MIN condensation. */
+    public DAGShortestPath.Result condensationShortestPath(int sourceComponent, int targetComponent) {
+        return new DAGShortestPath(NoOpMetrics.INSTANCE)
+                .findShortestPath(componentGraph(), condensationOrder(), sourceComponent, targetComponent);
+    }
+
+    /**
+     * CPM over the components (durations summed), equal to CriticalPathMethod.analyzeCondensation.
+     * Critical edge indices refer to componentGraph().
+     */
+    public CriticalPathMethod.Result criticalPathMethod() {
+        refresh();
+        if (cpm == null) {
+            int[] component = componentIds();
+            double[] durations = new double[sccs().size()];
+            for (int v = 0; v < component.length; v++) {
+                durations[component[v]] += graph.getVertexDuration(v);
+            }
+            cpm = new CriticalPathMethod(NoOpMetrics.INSTANCE).analyze(componentGraph(), condensationOrder(), durations);
+            computations++;
+        }
+        return cpm;
+    }
+
+    /** Number of expensive intermediates computed so far, across versions. */
+    public long getComputations() { return computations; }
+
+    private void refresh() {
+        long current = graph.getVersion();
+        if (current == version) {
+            return;
+        }
+        version = current;
+        csr = null;
+        tarjan = null;
+        sccs = null;
+        condensations.clear();
+        componentGraph = null;
+        condensationOrder = null;
+        levels = null;
+        dag = null;
+        topologicalOrder = null;
+        taskOrder = null;
+        cpm = null;
+    }
+}
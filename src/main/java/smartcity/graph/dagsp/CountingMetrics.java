@@ -0,0 +1,27 @@
+package smartcity.graph.dagsp;
+
+/** Plain long counters; not thread-safe, one instance per algorithm run. */
+public class CountingMetrics implements Metrics {
+    private long dfsCount;
+    private long edgeRelaxations;
+    private long kahnOperations;
+
+    @Override
+    public void incrementDFSCount() { dfsCount++; }
+    @Override
+    public void incrementEdgeRelaxation() { edgeRelaxations++; }
+    @Override
+    public void incrementKahnOperation() { kahnOperations++; }
+    @Override
+    public long getDFSCount() { return dfsCount; }
+    @Override
+    public long getEdgeRelaxations() { return edgeRelaxations; }
+    @Override
+    public long getKahnOperations() { return kahnOperations; }
+    @Override
+    public void reset() {
+        dfsCount = 0;
+        edgeRelaxations = 0;
+        kahnOperations = 0;
+    }
+}
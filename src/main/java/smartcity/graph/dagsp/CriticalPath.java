@@ -1,7 +1,7 @@
 package smartcity.graph.dagsp;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
-import smartcity.model.Edge;
 import java.util.*;
 
 public class CriticalPath {
@@ -11,33 +11,59 @@ public class CriticalPath {
         this.shortestPath = new DAGShortestPath();
     }
 
-    public DAGShortestPath.Result findCriticalPath(Graph graph, int source, int target) {
-
-        Graph negatedGraph = createNegatedGraph(graph);
+    public CriticalPath(Metrics metrics) {
+        this.shortestPath = new DAGShortestPath(metrics);
+    }
 
+    public DAGShortestPath.Result findCriticalPath(Graph graph, int source, int target) {
+        return findCriticalPath(graph.toCSR(), source, target);
+    }
 
-        DAGShortestPath.Result result = shortestPath.findShortestPath(negatedGraph, source, target);
+    public DAGShortestPath.Result findCriticalPath(CSRGraph graph, int source, int target) {
+        shortestPath.reset();
+        return findCriticalPath(graph, shortestPath.topologicalOrder(graph), source, target);
+    }
 
+    /**
+     * Longest-path DP over a topological order, done directly on the graph's weights. The order can
+     * be shared with DAGShortestPath queries on the same graph; early stopping follows the
+     * DAGShortestPath setting.
+     */
+    public DAGShortestPath.Result findCriticalPath(CSRGraph graph, int[] topoOrder, int source, int target) {
+        Metrics metrics = shortestPath.getMetrics();
+        double[] dist = new double[graph.getN()];
+        int[] pred = new int[graph.getN()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(pred, -1);
+        dist[source] = 0;
 
-        for (int i = 0; i < result.distances.length; i++) {
-            if (result.distances[i] != Double.POSITIVE_INFINITY) {
-                result.distances[i] = -result.distances[i];
+        // POSITIVE_INFINITY marks "not reached yet", as in the shortest-path Result
+        int stop = shortestPath.isStopAtTarget() ? target : -1;
+        for (int u : topoOrder) {
+            metrics.incrementDFSCount();
+            if (u == stop) {
+                break;
+            }
+            double du = dist[u];
+            if (du != Double.POSITIVE_INFINITY) {
+                metrics.recordVisit(u);
+                for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                    metrics.incrementEdgeRelaxation();
+                    int v = graph.target(i);
+                    double candidate = du + graph.weight(i);
+                    if (dist[v] == Double.POSITIVE_INFINITY || candidate > dist[v]) {
+                        dist[v] = candidate;
+                        pred[v] = u;
+                    }
+                }
             }
         }
 
-        return result;
+        return new DAGShortestPath.Result(dist, pred, DAGShortestPath.pathTo(dist, pred, source, target));
     }
 
-    private Graph createNegatedGraph(Graph original) {
-        Graph negated = new Graph(original.getN(), original.isDirected());
-        negated.setWeightModel(original.getWeightModel());
-
-        for (int u = 0; u < original.getN(); u++) {
-            for (var edge : original.getEdges(u)) {
-                negated.addEdge(edge.getFrom(), edge.getTo(), -edge.getWeight());
-            }
-        }
-        return negated;
+    public void setStopAtTarget(boolean stopAtTarget) {
+        shortestPath.setStopAtTarget(stopAtTarget);
     }
 
     public DAGShortestPath getShortestPath() {
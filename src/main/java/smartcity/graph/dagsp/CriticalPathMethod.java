@@ -0,0 +1,200 @@
+package smartcity.graph.dagsp;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.EdgeWeightAggregation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import java.util.*;
+
+/**
+ * Critical Path Method over a DAG of tasks: vertex durations plus a finish-to-start lag on
+ * every edge (the edge weight).
+ *
+ * One forward sweep in topological order gives the earliest start and finish of every task, and
+ * one backward sweep gives the latest start and finish that do not delay the project. Both run
+ * over the CSR arrays only, so the whole analysis is O(V + E) and replaces per-pair
+ * CriticalPath queries. A task is critical when its slack is zero, and an edge when it is tight
+ * between two critical tasks; slack comparisons allow a relative error of EPSILON for rounding.
+ */
+public class CriticalPathMethod {
+    static final double EPSILON = 1e-9;
+
+    private final Metrics metrics;
+
+    public CriticalPathMethod() {
+        this(new CountingMetrics());
+    }
+
+    public CriticalPathMethod(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static class Result {
+        public final double[] earliestStart;
+        public final double[] earliestFinish;
+        public final double[] latestStart;
+        public final double[] latestFinish;
+        public final double projectDuration;
+
+        private final CSRGraph graph;
+        private final int[] topoOrder;
+        private final boolean[] critical;
+        private final boolean[] criticalEdge;
+
+        Result(CSRGraph graph, int[] topoOrder, double[] earliestStart, double[] earliestFinish,
+               double[] latestStart, double[] latestFinish, double projectDuration) {
+            this.graph = graph;
+            this.topoOrder = topoOrder;
+            this.earliestStart = earliestStart;
+            this.earliestFinish = earliestFinish;
+            this.latestStart = latestStart;
+            this.latestFinish = latestFinish;
+            this.projectDuration = projectDuration;
+
+            double tolerance = EPSILON * Math.max(1, Math.abs(projectDuration));
+            int n = graph.getN();
+            this.critical = new boolean[n];
+            this.criticalEdge = new boolean[graph.getEdgeCount()];
+            for (int v = 0; v < n; v++) {
+                critical[v] = latestStart[v] - earliestStart[v] <= tolerance;
+            }
+            for (int u = 0; u < n; u++) {
+                if (!critical[u]) {
+                    continue;
+                }
+                for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                    int v = graph.target(i);
+                    criticalEdge[i] = critical[v]
+                            && Math.abs(earliestFinish[u] + graph.weight(i) - earliestStart[v]) <= tolerance;
+                }
+            }
+        }
+
+        public double getSlack(int task) { return latestStart[task] - earliestStart[task]; }
+        public boolean isCritical(int task) { return critical[task]; }
+
+        /** Whether the edge at this CSR index of the analyzed graph is critical. */
+        public boolean isCriticalEdge(int edgeIndex) { return criticalEdge[edgeIndex]; }
+
+        /** Critical tasks in topological order. */
+        public int[] getCriticalTasks() {
+            int count = 0;
+            for (boolean c : critical) {
+                if (c) count++;
+            }
+            int[] tasks = new int[count];
+            int k = 0;
+            for (int v : topoOrder) {
+                if (critical[v]) tasks[k++] = v;
+            }
+            return tasks;
+        }
+
+        /** CSR indices of the critical edges, ascending. */
+        public int[] getCriticalEdges() {
+            int count = 0;
+            for (boolean c : criticalEdge) {
+                if (c) count++;
+            }
+            int[] edges = new int[count];
+            int k = 0;
+            for (int i = 0; i < criticalEdge.length; i++) {
+                if (criticalEdge[i]) edges[k++] = i;
+            }
+            return edges;
+        }
+
+        /**
+         * One chain of critical tasks from the project start to its end, following the first
+         * critical edge at each step. Empty for an empty graph.
+         */
+        public List<Integer> getCriticalPath() {
+            List<Integer> path = new ArrayList<>();
+            int current = -1;
+            for (int v : topoOrder) {
+                if (critical[v]) {
+                    current = v;
+                    break;
+                }
+            }
+            while (current != -1) {
+                path.add(current);
+                int next = -1;
+                for (int i = graph.edgeStart(current), end = graph.edgeEnd(current); i < end && next == -1; i++) {
+                    if (criticalEdge[i]) {
+                        next = graph.target(i);
+                    }
+                }
+                current = next;
+            }
+            return path;
+        }
+    }
+
+    /** Durations from the vertices, lags from the edge weights. Throws IllegalArgumentException on cycles. */
+    public Result analyze(Graph graph) {
+        return analyze(graph.toCSR(), graph.getVertexDurations());
+    }
+
+    public Result analyze(CSRGraph graph, double[] durations) {
+        metrics.reset();
+        return analyze(graph, new KahnTopological(metrics).kahnTopologicalOrder(graph), durations);
+    }
+
+    /** With a topological order that is already known, e.g. shared with path queries. */
+    public Result analyze(CSRGraph graph, int[] topoOrder, double[] durations) {
+        int n = graph.getN();
+        double[] es = new double[n];
+        double[] ef = new double[n];
+        double[] ls = new double[n];
+        double[] lf = new double[n];
+
+        double projectDuration = 0;
+        for (int u : topoOrder) {
+            ef[u] = es[u] + durations[u];
+            projectDuration = Math.max(projectDuration, ef[u]);
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                int v = graph.target(i);
+                es[v] = Math.max(es[v], ef[u] + graph.weight(i));
+                metrics.incrementEdgeRelaxation();
+            }
+        }
+
+        for (int k = n - 1; k >= 0; k--) {
+            int u = topoOrder[k];
+            double finish = projectDuration;
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                finish = Math.min(finish, ls[graph.target(i)] - graph.weight(i));
+                metrics.incrementEdgeRelaxation();
+            }
+            lf[u] = finish;
+            ls[u] = finish - durations[u];
+        }
+        return new Result(graph, topoOrder, es, ef, ls, lf, projectDuration);
+    }
+
+    /**
+     * CPM over the condensation of a graph that may have cycles: each component's tasks run back
+     * to back, so its duration is the sum of theirs, and the lag between two components is the
+     * largest lag of the edges joining them. Result indices are TarjanSCC component ids.
+     */
+    public Result analyzeCondensation(Graph graph) {
+        TarjanSCC tarjan = new TarjanSCC(graph, NoOpMetrics.INSTANCE);
+        return analyzeCondensation(graph, new CondensationGraph(graph.toCSR(), tarjan.findSCCs(),
+                tarjan.getComponentId(), EdgeWeightAggregation.MAX));
+    }
+
+    /** Same, on a condensation that is already built; its edge aggregation decides the lags. */
+    public Result analyzeCondensation(Graph graph, CondensationGraph condensation) {
+        List<List<Integer>> components = condensation.getComponents();
+        double[] durations = new double[components.size()];
+        for (int c = 0; c < durations.length; c++) {
+            for (int v : components.get(c)) {
+                durations[c] += graph.getVertexDuration(v);
+            }
+        }
+        return analyze(condensation.getCondensationGraph().toCSR(), durations);
+    }
+}
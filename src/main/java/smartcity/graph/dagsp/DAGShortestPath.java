@@ -1,15 +1,28 @@
 package smartcity.graph.dagsp;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
-import smartcity.model.Edge;
 import smartcity.graph.topo.KahnTopological;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class DAGShortestPath implements Metrics {
-    private long dfsCount;
-    private long edgeRelaxations;
-    private long kahnOperations;
+    // Sources relaxed together in one sweep; their distances for a vertex sit next to each other
+    private static final int SOURCE_BLOCK = 8;
 
+    private final Metrics metrics;
+    private boolean stopAtTarget;
+
+    public DAGShortestPath() {
+        this(new CountingMetrics());
+    }
+
+    public DAGShortestPath(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** distances[v] is POSITIVE_INFINITY and predecessors[v] is -1 when v is unreachable. */
     public static class Result {
         public double[] distances;
         public int[] predecessors;
@@ -22,33 +35,76 @@ public class DAGShortestPath implements Metrics {
         }
     }
 
-    public Result findShortestPath(Graph graph, int source, int target) {
-        reset();
+    /**
+     * Distances from many sources, one compact row per source: distances[i] and predecessors[i]
+     * belong to sources[i] and follow the same conventions as Result.
+     */
+    public static class BatchResult {
+        public final int[] sources;
+        public final double[][] distances;
+        public final int[][] predecessors;
+
+        public BatchResult(int[] sources, double[][] distances, int[][] predecessors) {
+            this.sources = sources;
+            this.distances = distances;
+            this.predecessors = predecessors;
+        }
 
+        public List<Integer> path(int index, int target) {
+            return pathTo(distances[index], predecessors[index], sources[index], target);
+        }
 
-        KahnTopological topological = new KahnTopological();
-        List<Integer> topoOrder = topological.topologicalSort(graph);
+        public Result result(int index, int target) {
+            return new Result(distances[index], predecessors[index], path(index, target));
+        }
+    }
 
+    /**
+     * When set, a query with a target stops as soon as the target comes up in topological order:
+     * its distance is final by then, but vertices after it in the order are left partially relaxed.
+     */
+    public void setStopAtTarget(boolean stopAtTarget) {
+        this.stopAtTarget = stopAtTarget;
+    }
+
+    public boolean isStopAtTarget() {
+        return stopAtTarget;
+    }
 
-        this.dfsCount += topological.getDFSCount();
-        this.edgeRelaxations += topological.getEdgeRelaxations();
-        this.kahnOperations += topological.getKahnOperations();
+    /** Kahn order of the graph, counted in this instance's metrics; reusable across queries. */
+    public int[] topologicalOrder(CSRGraph graph) {
+        return new KahnTopological(metrics).kahnTopologicalOrder(graph);
+    }
 
+    public Result findShortestPath(Graph graph, int source, int target) {
+        return findShortestPath(graph.toCSR(), source, target);
+    }
+
+    public Result findShortestPath(CSRGraph graph, int source, int target) {
+        reset();
+        return findShortestPath(graph, topologicalOrder(graph), source, target);
+    }
+
+    /** Same as findShortestPath(graph, source, target) with a precomputed topological order. */
+    public Result findShortestPath(CSRGraph graph, int[] topoOrder, int source, int target) {
         double[] dist = new double[graph.getN()];
         int[] pred = new int[graph.getN()];
         Arrays.fill(dist, Double.POSITIVE_INFINITY);
         Arrays.fill(pred, -1);
         dist[source] = 0;
 
-
-
+        int stop = stopAtTarget ? target : -1;
         for (int u : topoOrder) {
-            incrementDFSCount();
+            metrics.incrementDFSCount();
+            if (u == stop) {
+                break;
+            }
             if (dist[u] != Double.POSITIVE_INFINITY) {
-                for (var edge : graph.getEdges(u)) {
-                    incrementEdgeRelaxation();
-                    int v = edge.getTo();
-                    double weight = edge.getWeight();
+                metrics.recordVisit(u);
+                for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                    metrics.incrementEdgeRelaxation();
+                    int v = graph.target(i);
+                    double weight = graph.weight(i);
                     if (dist[u] + weight < dist[v]) {
                         dist[v] = dist[u] + weight;
                         pred[v] = u;
@@ -57,16 +113,189 @@ public class DAGShortestPath implements Metrics {
             }
         }
 
+        return new Result(dist, pred, pathTo(dist, pred, source, target));
+    }
+
+    public BatchResult findShortestPaths(CSRGraph graph, int[] sources) {
+        return findShortestPaths(graph, sources, ForkJoinPool.commonPool());
+    }
+
+    public BatchResult findShortestPaths(CSRGraph graph, int[] sources, ForkJoinPool pool) {
+        reset();
+        return findShortestPaths(graph, topologicalOrder(graph), sources, pool);
+    }
 
-        List<Integer> path = Collections.emptyList();
-        if (target != -1 && target < graph.getN() && dist[target] != Double.POSITIVE_INFINITY) {
-            path = reconstructPath(pred, source, target);
+    /**
+     * Single-source distances for every vertex in sources, sharing one topological order.
+     *
+     * Sources are relaxed in blocks of SOURCE_BLOCK: the block's distances are stored vertex-major
+     * (dist[v * width + s], one cache line per vertex), so each edge is read once per block and
+     * relaxed for every source that has reached its tail. Blocks are independent and run on the pool.
+     * Only the topological sort is counted in this instance's metrics, since the blocks run
+     * concurrently and Metrics implementations are single-threaded.
+     */
+    public BatchResult findShortestPaths(CSRGraph graph, int[] topoOrder, int[] sources, ForkJoinPool pool) {
+        int k = sources.length;
+        double[][] dist = new double[k][];
+        int[][] pred = new int[k][];
+        int[] position = new int[graph.getN()];
+        for (int i = 0; i < topoOrder.length; i++) {
+            position[topoOrder[i]] = i;
         }
 
-        return new Result(dist, pred, path);
+        // Blocks take sources that are close in topological order, so their lanes start and fill
+        // up together instead of a single early source keeping the whole block busy
+        long[] keys = new long[k];
+        for (int i = 0; i < k; i++) {
+            keys[i] = (long) position[sources[i]] << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] byPosition = new int[k];
+        for (int i = 0; i < k; i++) {
+            byPosition[i] = (int) keys[i];
+        }
+
+        Batch batch = new Batch(graph, topoOrder, position, sources, byPosition, dist, pred);
+        int blocks = (k + SOURCE_BLOCK - 1) / SOURCE_BLOCK;
+        // A few chunks per worker; each chunk reuses one scratch matrix for all of its blocks
+        int grain = Math.max(1, blocks / (4 * pool.getParallelism()));
+        if (blocks <= grain) {
+            batch.relaxBlocks(0, blocks);
+        } else {
+            pool.invoke(new BlockTask(batch, 0, blocks, grain));
+        }
+        return new BatchResult(sources, dist, pred);
+    }
+
+    private static final class Batch {
+        private final CSRGraph graph;
+        private final int[] topoOrder;
+        private final int[] position;
+        private final int[] sources;
+        private final int[] byPosition;
+        private final double[][] dist;
+        private final int[][] pred;
+
+        Batch(CSRGraph graph, int[] topoOrder, int[] position, int[] sources, int[] byPosition,
+              double[][] dist, int[][] pred) {
+            this.graph = graph;
+            this.topoOrder = topoOrder;
+            this.position = position;
+            this.sources = sources;
+            this.byPosition = byPosition;
+            this.dist = dist;
+            this.pred = pred;
+        }
+
+        void relaxBlocks(int from, int to) {
+            int n = graph.getN();
+            double[] d = new double[n * SOURCE_BLOCK];
+            int[] p = new int[n * SOURCE_BLOCK];
+            byte[] lanes = new byte[n];
+            for (int block = from; block < to; block++) {
+                relaxBlock(block, d, p, lanes);
+            }
+        }
+
+        // Fills dist/pred for sources[byPosition[block * SOURCE_BLOCK ...]]
+        private void relaxBlock(int block, double[] d, int[] p, byte[] lanes) {
+            int n = graph.getN();
+            int first = block * SOURCE_BLOCK;
+            int width = Math.min(SOURCE_BLOCK, sources.length - first);
+            Arrays.fill(d, 0, n * width, Double.POSITIVE_INFINITY);
+            Arrays.fill(p, 0, n * width, -1);
+            Arrays.fill(lanes, (byte) 0);
+
+            // lanes[v] has bit s set once v is reached from the block's s-th source, so each vertex
+            // only does the work of the sources that reach it
+            int full = (1 << width) - 1;
+            // Nothing before the earliest source in the order is reachable from the block
+            int start = topoOrder.length;
+            for (int s = 0; s < width; s++) {
+                int source = sources[byPosition[first + s]];
+                d[source * width + s] = 0;
+                lanes[source] |= (byte) (1 << s);
+                start = Math.min(start, position[source]);
+            }
+
+            for (int k = start; k < topoOrder.length; k++) {
+                int u = topoOrder[k];
+                int mask = lanes[u] & 0xFF;
+                if (mask == 0) {
+                    continue;
+                }
+                int base = u * width;
+                for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                    int v = graph.target(i);
+                    int vBase = v * width;
+                    double weight = graph.weight(i);
+                    lanes[v] |= (byte) mask;
+                    if (mask == full) {
+                        for (int s = 0; s < width; s++) {
+                            double candidate = d[base + s] + weight;
+                            if (candidate < d[vBase + s]) {
+                                d[vBase + s] = candidate;
+                                p[vBase + s] = u;
+                            }
+                        }
+                    } else {
+                        for (int m = mask; m != 0; m &= m - 1) {
+                            int s = Integer.numberOfTrailingZeros(m);
+                            double candidate = d[base + s] + weight;
+                            if (candidate < d[vBase + s]) {
+                                d[vBase + s] = candidate;
+                                p[vBase + s] = u;
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int s = 0; s < width; s++) {
+                double[] rowDist = new double[n];
+                int[] rowPred = new int[n];
+                for (int v = 0, idx = s; v < n; v++, idx += width) {
+                    rowDist[v] = d[idx];
+                    rowPred[v] = p[idx];
+                }
+                dist[byPosition[first + s]] = rowDist;
+                pred[byPosition[first + s]] = rowPred;
+            }
+        }
     }
 
-    private List<Integer> reconstructPath(int[] pred, int source, int target) {
+    private static final class BlockTask extends RecursiveAction {
+        private final Batch batch;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        BlockTask(Batch batch, int from, int to, int grain) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                batch.relaxBlocks(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BlockTask(batch, from, mid, grain), new BlockTask(batch, mid, to, grain));
+        }
+    }
+
+    static List<Integer> pathTo(double[] dist, int[] pred, int source, int target) {
+        if (target != -1 && target < dist.length && dist[target] != Double.POSITIVE_INFINITY) {
+            return reconstructPath(pred, source, target);
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<Integer> reconstructPath(int[] pred, int source, int target) {
         List<Integer> path = new ArrayList<>();
         if (pred[target] == -1 && target != source) {
             return path;
@@ -87,22 +316,23 @@ public class DAGShortestPath implements Metrics {
     }
 
 
+    // Metrics implementation
     @Override
-    public void incrementDFSCount() { dfsCount++; }
+    public void incrementDFSCount() { metrics.incrementDFSCount(); }
     @Override
-    public void incrementEdgeRelaxation() { edgeRelaxations++; }
+    public void incrementEdgeRelaxation() { metrics.incrementEdgeRelaxation(); }
     @Override
-    public void incrementKahnOperation() { kahnOperations++; }
+    public void incrementKahnOperation() { metrics.incrementKahnOperation(); }
     @Override
-    public long getDFSCount() { return dfsCount; }
+    public void recordVisit(int vertex) { metrics.recordVisit(vertex); }
     @Override
-    public long getEdgeRelaxations() { return edgeRelaxations; }
+    public long getDFSCount() { return metrics.getDFSCount(); }
     @Override
-    public long getKahnOperations() { return kahnOperations; }
+    public long getEdgeRelaxations() { return metrics.getEdgeRelaxations(); }
     @Override
-    public void reset() {
-        dfsCount = 0;
-        edgeRelaxations = 0;
-        kahnOperations = 0;
-    }
+    public long getKahnOperations() { return metrics.getKahnOperations(); }
+    @Override
+    public void reset() { metrics.reset(); }
+
+    public Metrics getMetrics() { return metrics; }
 }
\ No newline at end of file
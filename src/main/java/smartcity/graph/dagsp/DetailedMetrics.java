@@ -0,0 +1,35 @@
+package smartcity.graph.dagsp;
+
+import java.util.*;
+
+/**
+ * Counts like CountingMetrics and additionally logs every reported vertex visit, in order.
+ * When algorithms share an instance (DAGShortestPath passes its metrics to KahnTopological)
+ * their visits are appended one after the other.
+ */
+public class DetailedMetrics extends CountingMetrics {
+    private int[] visits = new int[16];
+    private int visitCount;
+
+    @Override
+    public void recordVisit(int vertex) {
+        if (visitCount == visits.length) {
+            visits = Arrays.copyOf(visits, visitCount * 2);
+        }
+        visits[visitCount++] = vertex;
+    }
+
+    public int[] getVisitOrder() {
+        return Arrays.copyOf(visits, visitCount);
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        visitCount = 0;
+    }
+}
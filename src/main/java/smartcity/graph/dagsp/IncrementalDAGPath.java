@@ -0,0 +1,286 @@
+package smartcity.graph.dagsp;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.topo.OnlineTopologicalOrder;
+import java.util.*;
+
+/**
+ * Single-source shortest or longest path distances on a DAG, kept current under edge weight
+ * changes, insertions and deletions.
+ *
+ * An update only touches the part of the graph downstream of the changed edge: affected vertices
+ * are re-evaluated from their in-edges in topological order, and a vertex's successors are only
+ * queued when its distance actually changed. Each update returns the vertices whose distance or
+ * predecessor changed, in topological order.
+ * The order itself is an OnlineTopologicalOrder, so an insertion that goes against it only moves
+ * vertices between the two endpoints, and one that would close a cycle is rejected.
+ *
+ * Distances follow DAGShortestPath.Result: POSITIVE_INFINITY and predecessor -1 mark unreachable
+ * vertices in both modes. Among equally good predecessors the one earliest in the current order
+ * wins, which is what a full recomputation over that order picks.
+ */
+public class IncrementalDAGPath {
+    public enum Objective { SHORTEST, LONGEST }
+
+    private static final int[] NO_CHANGES = new int[0];
+
+    private final int n;
+    private final int source;
+    private final boolean longest;
+
+    private final int[][] out;
+    private final double[][] outWeight;
+    private final int[] outSize;
+    private final int[][] in;
+    private final double[][] inWeight;
+    private final int[] inSize;
+
+    private final OnlineTopologicalOrder topo;
+    private final double[] dist;
+    private final int[] pred;
+
+    // Scratch for propagate(): a min-heap of topological positions plus membership flags
+    private int[] heap = new int[16];
+    private final boolean[] queued;
+    private long updateWork;
+
+    public IncrementalDAGPath(Graph graph, int source, Objective objective) {
+        this(graph.toCSR(), source, objective);
+    }
+
+    public IncrementalDAGPath(CSRGraph graph, int source, Objective objective) {
+        this.n = graph.getN();
+        if (source < 0 || source >= n) {
+            throw new IllegalArgumentException("Source out of range: " + source);
+        }
+        this.source = source;
+        this.longest = objective == Objective.LONGEST;
+        this.out = new int[n][];
+        this.outWeight = new double[n][];
+        this.outSize = new int[n];
+        this.in = new int[n][];
+        this.inWeight = new double[n][];
+        this.inSize = new int[n];
+        this.queued = new boolean[n];
+
+        for (int u = 0; u < n; u++) {
+            int start = graph.edgeStart(u);
+            int degree = graph.outDegree(u);
+            out[u] = Arrays.copyOfRange(graph.getTargets(), start, start + Math.max(degree, 2));
+            outWeight[u] = Arrays.copyOfRange(graph.getWeights(), start, start + Math.max(degree, 2));
+            outSize[u] = degree;
+            in[u] = new int[2];
+            inWeight[u] = new double[2];
+        }
+        for (int u = 0; u < n; u++) {
+            for (int i = 0; i < outSize[u]; i++) {
+                appendIn(out[u][i], u, outWeight[u][i]);
+            }
+        }
+
+        this.topo = new OnlineTopologicalOrder(graph);
+        int[] order = topo.getOrder();
+
+        DAGShortestPath.Result initial = longest
+                ? new CriticalPath(NoOpMetrics.INSTANCE).findCriticalPath(graph, order, source, -1)
+                : new DAGShortestPath(NoOpMetrics.INSTANCE).findShortestPath(graph, order, source, -1);
+        this.dist = initial.distances;
+        this.pred = initial.predecessors;
+    }
+
+
+    /** Sets the weight of the edge u -> v (the first one, if there are parallel edges). */
+    public int[] updateWeight(int u, int v, double weight) {
+        checkVertex(u);
+        checkVertex(v);
+        int i = indexOf(out[u], outSize[u], v);
+        if (i < 0) {
+            throw new IllegalArgumentException("Edge not found: " + u + "->" + v);
+        }
+        inWeight[v][indexOf(in[v], inWeight[v], inSize[v], u, outWeight[u][i])] = weight;
+        outWeight[u][i] = weight;
+        return propagate(v);
+    }
+
+    public int[] insertEdge(int u, int v, double weight) {
+        checkVertex(u);
+        checkVertex(v);
+        List<Integer> cycle = topo.insertEdge(u, v);
+        if (!cycle.isEmpty()) {
+            throw new IllegalArgumentException("Edge " + u + "->" + v + " would create a cycle: " + cycle);
+        }
+        appendOut(u, v, weight);
+        appendIn(v, u, weight);
+        return propagate(v);
+    }
+
+    public int[] deleteEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        int i = indexOf(out[u], outSize[u], v);
+        if (i < 0) {
+            throw new IllegalArgumentException("Edge not found: " + u + "->" + v);
+        }
+        int j = indexOf(in[v], inWeight[v], inSize[v], u, outWeight[u][i]);
+        removeAt(out[u], outWeight[u], outSize[u]--, i);
+        removeAt(in[v], inWeight[v], inSize[v]--, j);
+        topo.deleteEdge(u, v);
+        return propagate(v);
+    }
+
+
+    // Re-evaluates start and everything downstream of a change, in topological order
+    private int[] propagate(int start) {
+        int size = push(0, start);
+        int[] changed = NO_CHANGES;
+        int changedCount = 0;
+
+        while (size > 0) {
+            int x = topo.vertexAt(heap[0]);
+            size = pop(size);
+            queued[x] = false;
+            updateWork++;
+
+            double best = x == source ? 0 : Double.POSITIVE_INFINITY;
+            int bestPred = -1;
+            if (x != source) {
+                for (int i = 0; i < inSize[x]; i++) {
+                    int p = in[x][i];
+                    if (dist[p] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    double candidate = dist[p] + inWeight[x][i];
+                    if (bestPred == -1 || better(candidate, best)
+                            || (candidate == best && topo.precedes(p, bestPred))) {
+                        best = candidate;
+                        bestPred = p;
+                    }
+                }
+            }
+
+            if (best == dist[x] && bestPred == pred[x]) {
+                continue;
+            }
+            boolean distanceChanged = best != dist[x];
+            dist[x] = best;
+            pred[x] = bestPred;
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, Math.max(8, changedCount * 2));
+            }
+            changed[changedCount++] = x;
+            if (!distanceChanged) {
+                continue;
+            }
+            for (int i = 0; i < outSize[x]; i++) {
+                if (!queued[out[x][i]]) {
+                    size = push(size, out[x][i]);
+                }
+            }
+        }
+        return Arrays.copyOf(changed, changedCount);
+    }
+
+    private boolean better(double candidate, double current) {
+        return longest ? candidate > current : candidate < current;
+    }
+
+    private int push(int size, int x) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        queued[x] = true;
+        int key = topo.getPosition(x);
+        int i = size;
+        while (i > 0 && heap[(i - 1) >>> 1] > key) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = key;
+        return size + 1;
+    }
+
+    private int pop(int size) {
+        int key = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= key) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+        return size;
+    }
+
+    private void appendOut(int u, int v, double weight) {
+        if (outSize[u] == out[u].length) {
+            out[u] = Arrays.copyOf(out[u], out[u].length * 2);
+            outWeight[u] = Arrays.copyOf(outWeight[u], out[u].length);
+        }
+        out[u][outSize[u]] = v;
+        outWeight[u][outSize[u]] = weight;
+        outSize[u]++;
+    }
+
+    private void appendIn(int v, int u, double weight) {
+        if (inSize[v] == in[v].length) {
+            in[v] = Arrays.copyOf(in[v], in[v].length * 2);
+            inWeight[v] = Arrays.copyOf(inWeight[v], in[v].length);
+        }
+        in[v][inSize[v]] = u;
+        inWeight[v][inSize[v]] = weight;
+        inSize[v]++;
+    }
+
+    private static int indexOf(int[] list, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (list[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // In-list entry mirroring a given out-edge, so parallel edges stay paired by weight
+    private static int indexOf(int[] list, double[] weights, int size, int value, double weight) {
+        for (int i = 0; i < size; i++) {
+            if (list[i] == value && Double.compare(weights[i], weight) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void removeAt(int[] list, double[] weights, int size, int i) {
+        list[i] = list[size - 1];
+        weights[i] = weights[size - 1];
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Vertex out of range: " + v);
+        }
+    }
+
+
+    public double getDistance(int v) { return dist[v]; }
+    public int getPredecessor(int v) { return pred[v]; }
+    public int getSource() { return source; }
+
+    public List<Integer> getPath(int target) {
+        return DAGShortestPath.pathTo(dist, pred, source, target);
+    }
+
+    /** Snapshot of the current state; the arrays are copies. */
+    public DAGShortestPath.Result getResult(int target) {
+        return new DAGShortestPath.Result(dist.clone(), pred.clone(), getPath(target));
+    }
+
+    public int[] getTopologicalOrder() { return topo.getOrder(); }
+
+    /** Vertices re-evaluated or moved by updates so far. */
+    public long getUpdateWork() { return updateWork + topo.getUpdateWork(); }
+}
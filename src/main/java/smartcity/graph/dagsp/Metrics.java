@@ -1,9 +1,15 @@
 package smartcity.graph.dagsp;
 
+/**
+ * Operation counters reported by the graph algorithms. Algorithms take an implementation at
+ * construction: NoOpMetrics (calls compile away), CountingMetrics (the default) or
+ * DetailedMetrics (counts plus the order in which vertices were visited).
+ */
 public interface Metrics {
     void incrementDFSCount();
     void incrementEdgeRelaxation();
     void incrementKahnOperation();
+    default void recordVisit(int vertex) {}
     long getDFSCount();
     long getEdgeRelaxations();
     long getKahnOperations();
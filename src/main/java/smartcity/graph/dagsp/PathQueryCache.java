@@ -0,0 +1,167 @@
+package smartcity.graph.dagsp;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of shortest-path and critical-path results, keyed on Graph.getVersion() plus
+ * the query. Adding an edge gives the graph a new version, so stale entries are never returned;
+ * they simply age out. Entries hold full distance tables, so one entry answers every target for
+ * its source. The topological order of the most recently queried version is kept outside the LRU
+ * and shared by both kinds of query, so evicting path results never forces a re-sort.
+ *
+ * Eviction happens when either the entry count or the estimated retained bytes of the path
+ * results exceed their limits. Returned distance and predecessor arrays are shared between callers and must not be
+ * modified. Safe for concurrent use; a miss is computed outside the lock.
+ */
+public class PathQueryCache {
+    private static final int SHORTEST = 0;
+    private static final int CRITICAL = 1;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private volatile Order order;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder sorts = new LongAdder();
+
+    public PathQueryCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public DAGShortestPath.Result findShortestPath(Graph graph, int source, int target) {
+        return query(graph, SHORTEST, source, target);
+    }
+
+    public DAGShortestPath.Result findCriticalPath(Graph graph, int source, int target) {
+        return query(graph, CRITICAL, source, target);
+    }
+
+    private DAGShortestPath.Result query(Graph graph, int kind, int source, int target) {
+        long version = graph.getVersion();
+        Entry entry = lookup(new Key(version, kind, source));
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            CSRGraph csr = graph.toCSR();
+            int[] order = topologicalOrder(csr, version);
+            DAGShortestPath.Result result = kind == SHORTEST
+                    ? new DAGShortestPath().findShortestPath(csr, order, source, -1)
+                    : new CriticalPath().findCriticalPath(csr, order, source, -1);
+            entry = new Entry(result.distances, result.predecessors);
+            store(new Key(version, kind, source), entry);
+        }
+        return new DAGShortestPath.Result(entry.distances, entry.predecessors,
+                DAGShortestPath.pathTo(entry.distances, entry.predecessors, source, target));
+    }
+
+    private int[] topologicalOrder(CSRGraph csr, long version) {
+        Order current = order;
+        if (current == null || current.version != version) {
+            current = new Order(version, new DAGShortestPath(NoOpMetrics.INSTANCE).topologicalOrder(csr));
+            order = current;
+            sorts.increment();
+        }
+        return current.order;
+    }
+
+    private synchronized Entry lookup(Key key) {
+        return entries.get(key);
+    }
+
+    private synchronized void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += entry.bytes;
+
+        // Least recently used first; the entry just stored is kept even if it alone is over budget
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && entries.size() > 1) {
+            Entry eldest = it.next();
+            bytes -= eldest.bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+        order = null;
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getEstimatedBytes() { return bytes; }
+    /** Hits and misses count path queries; the shared topological order is not counted. */
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    /** Topological sorts run so far; one per graph version while a single graph is queried. */
+    public long getSorts() { return sorts.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private static final class Key {
+        private final long version;
+        private final int kind;
+        private final int source;
+
+        Key(long version, int kind, int source) {
+            this.version = version;
+            this.kind = kind;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return version == other.version && kind == other.kind && source == other.source;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version) * 31 * 31 + kind * 31 + source;
+        }
+    }
+
+    private static final class Entry {
+        private final double[] distances;
+        private final int[] predecessors;
+        private final long bytes;
+
+        Entry(double[] distances, int[] predecessors) {
+            this.distances = distances;
+            this.predecessors = predecessors;
+            // Array payloads plus headers, the key and the map node
+            this.bytes = 96 + 16 + 8L * distances.length + 16 + 4L * predecessors.length;
+        }
+    }
+
+    private static final class Order {
+        private final long version;
+        private final int[] order;
+
+        Order(long version, int[] order) {
+            this.version = version;
+            this.order = order;
+        }
+    }
+}
@@ -1,74 +1,101 @@
 package smartcity.graph.scc;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
 import smartcity.model.Edge;
+import smartcity.util.LongIntHashMap;
 import java.util.*;
 
 
 public class CondensationGraph {
-    private final Graph originalGraph;
+    private final CSRGraph originalGraph;
     private final List<List<Integer>> components;
     private final int[] componentId;
+    private final EdgeWeightAggregation aggregation;
     private Graph condensationGraph;
 
     public CondensationGraph(Graph originalGraph, List<List<Integer>> components, int[] componentId) {
+        this(originalGraph.toCSR(), components, componentId, EdgeWeightAggregation.MIN);
+    }
+
+    public CondensationGraph(CSRGraph originalGraph, List<List<Integer>> components, int[] componentId) {
+        this(originalGraph, components, componentId, EdgeWeightAggregation.MIN);
+    }
+
+    public CondensationGraph(CSRGraph originalGraph, List<List<Integer>> components, int[] componentId,
+                             EdgeWeightAggregation aggregation) {
         this.originalGraph = originalGraph;
         this.components = components;
         this.componentId = componentId;
+        this.aggregation = aggregation;
         buildCondensationGraph();
     }
 
 
+    // One pass over all edges: each (compU, compV) pair gets a slot on first sight, keyed by the
+    // packed pair in a primitive hash map, and its min/max/sum/count are accumulated in place.
+    // Condensation edges are emitted in first-seen order.
     private void buildCondensationGraph() {
         int numComponents = components.size();
         this.condensationGraph = new Graph(numComponents, true);
         this.condensationGraph.setWeightModel("component");
 
-
-        Set<String> addedEdges = new HashSet<>();
-
+        LongIntHashMap slots = new LongIntHashMap(Math.max(16, numComponents));
+        int capacity = 16;
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        double[] min = new double[capacity];
+        double[] max = new double[capacity];
+        double[] sum = new double[capacity];
+        int[] count = new int[capacity];
+        int pairs = 0;
 
         for (int u = 0; u < originalGraph.getN(); u++) {
             int compU = componentId[u];
 
-            for (Edge edge : originalGraph.getEdges(u)) {
-                int v = edge.getTo();
-                int compV = componentId[v];
+            for (int i = originalGraph.edgeStart(u), end = originalGraph.edgeEnd(u); i < end; i++) {
+                int compV = componentId[originalGraph.target(i)];
+                if (compU == compV) {
+                    continue;
+                }
 
-                // Добавляем ребро только если компоненты разные и ребро ещё не добавлено
-                if (compU != compV) {
-                    String edgeKey = compU + "->" + compV;
-                    if (!addedEdges.contains(edgeKey)) {
-                        condensationGraph.addEdge(compU, compV, calculateComponentEdgeWeight(compU, compV));
-                        addedEdges.add(edgeKey);
+                double weight = originalGraph.weight(i);
+                long key = LongIntHashMap.pack(compU, compV);
+                int slot = slots.getOrDefault(key, -1);
+                if (slot == -1) {
+                    if (pairs == capacity) {
+                        capacity += capacity >> 1;
+                        from = Arrays.copyOf(from, capacity);
+                        to = Arrays.copyOf(to, capacity);
+                        min = Arrays.copyOf(min, capacity);
+                        max = Arrays.copyOf(max, capacity);
+                        sum = Arrays.copyOf(sum, capacity);
+                        count = Arrays.copyOf(count, capacity);
                     }
+                    slot = pairs++;
+                    slots.put(key, slot);
+                    from[slot] = compU;
+                    to[slot] = compV;
+                    min[slot] = weight;
+                    max[slot] = weight;
+                } else {
+                    min[slot] = Math.min(min[slot], weight);
+                    max[slot] = Math.max(max[slot], weight);
                 }
+                sum[slot] += weight;
+                count[slot]++;
             }
         }
-    }
-
-
-    private double calculateComponentEdgeWeight(int compU, int compV) {
-        double minWeight = Double.MAX_VALUE;
-        double maxWeight = Double.MIN_VALUE;
-        double sumWeight = 0;
-        int edgeCount = 0;
-
-        for (int u : components.get(compU)) {
 
-            for (Edge edge : originalGraph.getEdges(u)) {
-                if (componentId[edge.getTo()] == compV) {
-                    double weight = edge.getWeight();
-                    minWeight = Math.min(minWeight, weight);
-                    maxWeight = Math.max(maxWeight, weight);
-                    sumWeight += weight;
-                    edgeCount++;
-                }
-            }
+        for (int slot = 0; slot < pairs; slot++) {
+            condensationGraph.addEdge(from[slot], to[slot],
+                    aggregation.apply(min[slot], max[slot], sum[slot], count[slot]));
         }
+    }
 
 
-        return edgeCount > 0 ? minWeight : 0;
+    public EdgeWeightAggregation getAggregation() {
+        return aggregation;
     }
 
 
@@ -202,12 +229,12 @@ public class CondensationGraph {
 
         // Добавляем рёбра внутри компоненты
         for (int globalU : vertices) {
-            for (Edge edge : originalGraph.getEdges(globalU)) {
-                int globalV = edge.getTo();
+            for (int i = originalGraph.edgeStart(globalU), end = originalGraph.edgeEnd(globalU); i < end; i++) {
+                int globalV = originalGraph.target(i);
                 if (localIndex.containsKey(globalV)) {
                     int localU = localIndex.get(globalU);
                     int localV = localIndex.get(globalV);
-                    subgraph.addEdge(localU, localV, edge.getWeight());
+                    subgraph.addEdge(localU, localV, originalGraph.weight(i));
                 }
             }
         }
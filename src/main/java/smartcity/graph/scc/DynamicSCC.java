@@ -0,0 +1,580 @@
+package smartcity.graph.scc;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.SCCResult;
+import java.util.*;
+
+/**
+ * SCC decomposition and condensation DAG maintained under edge insertions and deletions.
+ *
+ * Components keep a topological label (Pearce-Kelly style). Inserting an edge that agrees with
+ * the labels costs O(1); otherwise only the components between the two labels are searched,
+ * and either relabelled or merged when the edge closes a cycle. Deleting an edge inside a
+ * component re-runs Tarjan on that component alone and splits it if needed.
+ *
+ * Component ids are stable slots: a merge keeps the id of the largest merged component, a split
+ * keeps the old id for one piece, and freed ids are reused. Use toSCCResult() for dense ids.
+ */
+public class DynamicSCC {
+    private static final long GAP = 1L << 20;
+
+    private final int n;
+    private final int[][] out;
+    private final double[][] outWeight;
+    private final int[] outSize;
+    private final int[][] in;
+    private final int[] inSize;
+    private long edgeCount;
+
+    private final int[] componentId;
+    private final List<List<Integer>> members = new ArrayList<>();
+    private final List<Map<Integer, Integer>> compOut = new ArrayList<>();
+    private final List<Map<Integer, Integer>> compIn = new ArrayList<>();
+    private long[] ord = new long[16];
+    private final TreeMap<Long, Integer> order = new TreeMap<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private int liveComponents;
+
+    private long updateWork;
+
+
+    public enum ChangeKind { NONE, MERGE, SPLIT }
+
+    /**
+     * Structural effect of one update. For MERGE, before lists the merged component ids and
+     * after holds the surviving id; for SPLIT, before holds the old id and after the new pieces.
+     */
+    public static class ComponentChange {
+        private final ChangeKind kind;
+        private final List<Integer> before;
+        private final List<Integer> after;
+
+        ComponentChange(ChangeKind kind, List<Integer> before, List<Integer> after) {
+            this.kind = kind;
+            this.before = before;
+            this.after = after;
+        }
+
+        static ComponentChange none() {
+            return new ComponentChange(ChangeKind.NONE, Collections.emptyList(), Collections.emptyList());
+        }
+
+        public ChangeKind getKind() { return kind; }
+        public List<Integer> getBefore() { return before; }
+        public List<Integer> getAfter() { return after; }
+
+        @Override
+        public String toString() {
+            return kind == ChangeKind.NONE ? "NONE" : kind + " " + before + " -> " + after;
+        }
+    }
+
+
+    public DynamicSCC(Graph graph) {
+        this(graph.toCSR());
+    }
+
+    public DynamicSCC(CSRGraph graph) {
+        this.n = graph.getN();
+        this.out = new int[n][];
+        this.outWeight = new double[n][];
+        this.outSize = new int[n];
+        this.in = new int[n][];
+        this.inSize = new int[n];
+        this.componentId = new int[n];
+
+        CSRGraph reverse = graph.reverse();
+        for (int u = 0; u < n; u++) {
+            int start = graph.edgeStart(u);
+            int degree = graph.outDegree(u);
+            out[u] = Arrays.copyOfRange(graph.getTargets(), start, start + Math.max(degree, 2));
+            outWeight[u] = Arrays.copyOfRange(graph.getWeights(), start, start + Math.max(degree, 2));
+            outSize[u] = degree;
+
+            int revStart = reverse.edgeStart(u);
+            int inDegree = reverse.outDegree(u);
+            in[u] = Arrays.copyOfRange(reverse.getTargets(), revStart, revStart + Math.max(inDegree, 2));
+            inSize[u] = inDegree;
+        }
+        this.edgeCount = graph.getEdgeCount();
+
+        TarjanSCC tarjan = new TarjanSCC(graph);
+        List<List<Integer>> sccs = tarjan.findSCCs();
+        int count = sccs.size();
+        for (int c = 0; c < count; c++) {
+            int id = allocateComponent();
+            members.set(id, new ArrayList<>(sccs.get(c)));
+            // Tarjan numbers sinks first, so the label runs the other way
+            setLabel(id, (count - c) * GAP);
+        }
+        System.arraycopy(tarjan.getComponentId(), 0, componentId, 0, n);
+
+        for (int u = 0; u < n; u++) {
+            for (int i = 0; i < outSize[u]; i++) {
+                int cu = componentId[u];
+                int cv = componentId[out[u][i]];
+                if (cu != cv) {
+                    addComponentEdge(cu, cv);
+                }
+            }
+        }
+    }
+
+
+    public ComponentChange insertEdge(int u, int v, double weight) {
+        checkVertex(u);
+        checkVertex(v);
+        appendOut(u, v, weight);
+        appendIn(v, u);
+        edgeCount++;
+
+        int cu = componentId[u];
+        int cv = componentId[v];
+        if (cu == cv || !addComponentEdge(cu, cv) || ord[cu] < ord[cv]) {
+            return ComponentChange.none();
+        }
+
+        // The new condensation edge cu -> cv violates the order: search only between the two labels
+        long lower = ord[cv];
+        long upper = ord[cu];
+        Set<Integer> forward = search(cv, compOut, c -> ord[c] <= upper);
+        Set<Integer> backward = search(cu, compIn, c -> ord[c] >= lower);
+
+        List<Integer> merged = new ArrayList<>();
+        if (forward.contains(cu)) {
+            for (int c : forward) {
+                if (backward.contains(c)) {
+                    merged.add(c);
+                }
+            }
+        }
+
+        List<Integer> before = new ArrayList<>(backward);
+        List<Integer> after = new ArrayList<>(forward);
+        before.removeAll(merged);
+        after.removeAll(merged);
+        before.sort(Comparator.comparingLong(c -> ord[c]));
+        after.sort(Comparator.comparingLong(c -> ord[c]));
+
+        List<Long> labels = new ArrayList<>();
+        for (int c : forward) labels.add(ord[c]);
+        for (int c : backward) if (!forward.contains(c)) labels.add(ord[c]);
+        Collections.sort(labels);
+        for (long label : labels) order.remove(label);
+
+        // Backward set takes the lowest pooled labels and forward set the highest, so forward
+        // components only move later and backward ones only earlier; the merged component sits between
+        int keeper = -1;
+        if (!merged.isEmpty()) {
+            merged.sort(Comparator.comparingLong(c -> ord[c]));
+            keeper = mergeComponents(merged);
+            setLabel(keeper, labels.get(before.size()));
+        }
+        for (int i = 0; i < before.size(); i++) {
+            setLabel(before.get(i), labels.get(i));
+        }
+        int offset = labels.size() - after.size();
+        for (int i = 0; i < after.size(); i++) {
+            setLabel(after.get(i), labels.get(offset + i));
+        }
+
+        if (keeper == -1) {
+            return ComponentChange.none();
+        }
+        return new ComponentChange(ChangeKind.MERGE, merged, Collections.singletonList(keeper));
+    }
+
+
+    public ComponentChange deleteEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        if (!removeOut(u, v)) {
+            throw new IllegalArgumentException("Edge not found: " + u + "->" + v);
+        }
+        removeIn(v, u);
+        edgeCount--;
+
+        int cu = componentId[u];
+        int cv = componentId[v];
+        if (cu != cv) {
+            removeComponentEdge(cu, cv);
+            return ComponentChange.none();
+        }
+        return splitIfNeeded(cu);
+    }
+
+
+    private ComponentChange splitIfNeeded(int c) {
+        List<Integer> vertices = members.get(c);
+        List<List<Integer>> pieces = tarjanWithin(vertices, c);
+        if (pieces.size() == 1) {
+            return ComponentChange.none();
+        }
+
+        // Detach c from the condensation; edges are rebuilt from the old component's vertices
+        for (int d : compOut.get(c).keySet()) compIn.get(d).remove(c);
+        for (int d : compIn.get(c).keySet()) compOut.get(d).remove(c);
+        compOut.get(c).clear();
+        compIn.get(c).clear();
+
+        long[] bounds = freeLabelsAround(ord[c], pieces.size());
+        if (bounds[1] - bounds[0] <= pieces.size()) {
+            relabelAll();
+            bounds = freeLabelsAround(ord[c], pieces.size());
+        }
+        return applySplit(c, pieces, bounds[0], bounds[1]);
+    }
+
+    // Open interval of labels around label that no other component uses
+    private long[] freeLabelsAround(long label, int needed) {
+        Long lowerKey = order.lowerKey(label);
+        Long higherKey = order.higherKey(label);
+        long low = lowerKey != null ? lowerKey : label - (needed + 1) * GAP;
+        long high = higherKey != null ? higherKey : label + (needed + 1) * GAP;
+        return new long[]{low, high};
+    }
+
+    private ComponentChange applySplit(int c, List<List<Integer>> pieces, long low, long high) {
+        order.remove(ord[c]);
+        int k = pieces.size();
+        long step = (high - low) / (k + 1);
+        List<Integer> ids = new ArrayList<>(k);
+        Set<Integer> idSet = new HashSet<>();
+
+        // Tarjan returns pieces sinks first; the last piece is topologically first
+        for (int i = 0; i < k; i++) {
+            List<Integer> piece = pieces.get(k - 1 - i);
+            int id = i == 0 ? c : allocateComponent();
+            members.set(id, piece);
+            for (int x : piece) {
+                componentId[x] = id;
+            }
+            setLabel(id, low + step * (i + 1));
+            ids.add(id);
+            idSet.add(id);
+        }
+
+        for (int id : ids) {
+            for (int x : members.get(id)) {
+                for (int i = 0; i < outSize[x]; i++) {
+                    int cy = componentId[out[x][i]];
+                    if (cy != id) {
+                        addComponentEdge(id, cy);
+                    }
+                }
+                for (int i = 0; i < inSize[x]; i++) {
+                    int cy = componentId[in[x][i]];
+                    if (!idSet.contains(cy)) {
+                        addComponentEdge(cy, id);
+                    }
+                }
+            }
+        }
+        return new ComponentChange(ChangeKind.SPLIT, Collections.singletonList(c), ids);
+    }
+
+    // Iterative Tarjan over the vertices of component c, following only edges that stay inside it
+    private List<List<Integer>> tarjanWithin(List<Integer> vertices, int c) {
+        Map<Integer, Integer> local = new HashMap<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            local.put(vertices.get(i), i);
+        }
+        int size = vertices.size();
+        int[] index = new int[size];
+        int[] lowlink = new int[size];
+        int[] cursor = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int[] callStack = new int[size];
+        int stackTop = 0;
+        int next = 1;
+        List<List<Integer>> pieces = new ArrayList<>();
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int callTop = 0;
+            index[root] = lowlink[root] = next++;
+            stack[stackTop++] = root;
+            onStack[root] = true;
+            callStack[callTop++] = root;
+
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                int x = vertices.get(v);
+                if (cursor[v] < outSize[x]) {
+                    int y = out[x][cursor[v]++];
+                    updateWork++;
+                    if (componentId[y] != c) {
+                        continue;
+                    }
+                    int w = local.get(y);
+                    if (index[w] == 0) {
+                        index[w] = lowlink[w] = next++;
+                        stack[stackTop++] = w;
+                        onStack[w] = true;
+                        callStack[callTop++] = w;
+                    } else if (onStack[w]) {
+                        lowlink[v] = Math.min(lowlink[v], index[w]);
+                    }
+                    continue;
+                }
+
+                callTop--;
+                if (lowlink[v] == index[v]) {
+                    List<Integer> piece = new ArrayList<>();
+                    int w;
+                    do {
+                        w = stack[--stackTop];
+                        onStack[w] = false;
+                        piece.add(vertices.get(w));
+                    } while (w != v);
+                    pieces.add(piece);
+                }
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[v]);
+                }
+            }
+        }
+        return pieces;
+    }
+
+    private Set<Integer> search(int start, List<Map<Integer, Integer>> adjacency,
+                                java.util.function.IntPredicate inRange) {
+        Set<Integer> visited = new HashSet<>();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        visited.add(start);
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            int c = stack.pop();
+            updateWork++;
+            for (int d : adjacency.get(c).keySet()) {
+                if (inRange.test(d) && visited.add(d)) {
+                    stack.push(d);
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Folds the given components into the largest one and returns its id
+    private int mergeComponents(List<Integer> merged) {
+        int keeper = merged.get(0);
+        for (int c : merged) {
+            if (members.get(c).size() > members.get(keeper).size()) {
+                keeper = c;
+            }
+        }
+        Set<Integer> mergedSet = new HashSet<>(merged);
+
+        for (int c : merged) {
+            if (c == keeper) {
+                continue;
+            }
+            for (Map.Entry<Integer, Integer> e : compOut.get(c).entrySet()) {
+                int d = e.getKey();
+                compIn.get(d).remove(c);
+                if (!mergedSet.contains(d)) {
+                    compOut.get(keeper).merge(d, e.getValue(), Integer::sum);
+                    compIn.get(d).merge(keeper, e.getValue(), Integer::sum);
+                }
+            }
+            for (Map.Entry<Integer, Integer> e : compIn.get(c).entrySet()) {
+                int d = e.getKey();
+                compOut.get(d).remove(c);
+                if (!mergedSet.contains(d)) {
+                    compIn.get(keeper).merge(d, e.getValue(), Integer::sum);
+                    compOut.get(d).merge(keeper, e.getValue(), Integer::sum);
+                }
+            }
+        }
+        compOut.get(keeper).keySet().removeAll(mergedSet);
+        compIn.get(keeper).keySet().removeAll(mergedSet);
+
+        for (int c : merged) {
+            if (c == keeper) {
+                continue;
+            }
+            for (int x : members.get(c)) {
+                componentId[x] = keeper;
+            }
+            members.get(keeper).addAll(members.get(c));
+            freeComponent(c);
+        }
+        return keeper;
+    }
+
+    // Returns true when the condensation edge cu -> cv is new
+    private boolean addComponentEdge(int cu, int cv) {
+        compIn.get(cv).merge(cu, 1, Integer::sum);
+        return compOut.get(cu).merge(cv, 1, Integer::sum) == 1;
+    }
+
+    private void removeComponentEdge(int cu, int cv) {
+        if (compOut.get(cu).merge(cv, -1, Integer::sum) == 0) {
+            compOut.get(cu).remove(cv);
+        }
+        if (compIn.get(cv).merge(cu, -1, Integer::sum) == 0) {
+            compIn.get(cv).remove(cu);
+        }
+    }
+
+    private int allocateComponent() {
+        liveComponents++;
+        if (!freeIds.isEmpty()) {
+            return freeIds.pop();
+        }
+        int id = members.size();
+        members.add(new ArrayList<>());
+        compOut.add(new HashMap<>());
+        compIn.add(new HashMap<>());
+        if (id == ord.length) {
+            ord = Arrays.copyOf(ord, ord.length * 2);
+        }
+        return id;
+    }
+
+    private void freeComponent(int c) {
+        members.set(c, null);
+        compOut.get(c).clear();
+        compIn.get(c).clear();
+        order.remove(ord[c]);
+        freeIds.push(c);
+        liveComponents--;
+    }
+
+    private void setLabel(int c, long label) {
+        ord[c] = label;
+        order.put(label, c);
+    }
+
+    private void relabelAll() {
+        List<Integer> sequence = new ArrayList<>(order.values());
+        order.clear();
+        for (int i = 0; i < sequence.size(); i++) {
+            setLabel(sequence.get(i), (i + 1) * GAP);
+        }
+    }
+
+    private void appendOut(int u, int v, double weight) {
+        if (outSize[u] == out[u].length) {
+            out[u] = Arrays.copyOf(out[u], out[u].length * 2);
+            outWeight[u] = Arrays.copyOf(outWeight[u], out[u].length);
+        }
+        out[u][outSize[u]] = v;
+        outWeight[u][outSize[u]] = weight;
+        outSize[u]++;
+    }
+
+    private void appendIn(int v, int u) {
+        if (inSize[v] == in[v].length) {
+            in[v] = Arrays.copyOf(in[v], in[v].length * 2);
+        }
+        in[v][inSize[v]++] = u;
+    }
+
+    private boolean removeOut(int u, int v) {
+        for (int i = 0; i < outSize[u]; i++) {
+            if (out[u][i] == v) {
+                int last = --outSize[u];
+                out[u][i] = out[u][last];
+                outWeight[u][i] = outWeight[u][last];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeIn(int v, int u) {
+        for (int i = 0; i < inSize[v]; i++) {
+            if (in[v][i] == u) {
+                in[v][i] = in[v][--inSize[v]];
+                return;
+            }
+        }
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Invalid vertex index: " + v);
+        }
+    }
+
+
+    public int getComponentId(int vertex) {
+        return componentId[vertex];
+    }
+
+    public int[] getComponentId() {
+        return componentId;
+    }
+
+    public List<Integer> getComponent(int id) {
+        return Collections.unmodifiableList(members.get(id));
+    }
+
+    public int getComponentCount() {
+        return liveComponents;
+    }
+
+    public Set<Integer> getCondensationSuccessors(int id) {
+        return Collections.unmodifiableSet(compOut.get(id).keySet());
+    }
+
+    public Set<Integer> getCondensationPredecessors(int id) {
+        return Collections.unmodifiableSet(compIn.get(id).keySet());
+    }
+
+    public boolean isSameComponent(int u, int v) {
+        return componentId[u] == componentId[v];
+    }
+
+    /** Live component ids in topological order of the condensation. */
+    public List<Integer> getTopologicalOrder() {
+        return new ArrayList<>(order.values());
+    }
+
+    /** Components and edges touched by updates so far; grows with the edited regions, not the graph. */
+    public long getUpdateWork() {
+        return updateWork;
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+
+    public CSRGraph toCSR() {
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true, (int) edgeCount);
+        for (int u = 0; u < n; u++) {
+            for (int i = 0; i < outSize[u]; i++) {
+                builder.addEdge(u, out[u][i], outWeight[u][i]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Snapshot with dense component ids numbered in reverse topological order, like TarjanSCC.
+     * Costs O(V + E); use the incremental accessors on hot paths.
+     */
+    public SCCResult toSCCResult() {
+        List<Integer> topo = getTopologicalOrder();
+        int count = topo.size();
+        Map<Integer, Integer> dense = new HashMap<>();
+        List<List<Integer>> components = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            dense.put(topo.get(i), components.size());
+            components.add(new ArrayList<>(members.get(topo.get(i))));
+        }
+        int[] ids = new int[n];
+        for (int v = 0; v < n; v++) {
+            ids[v] = dense.get(componentId[v]);
+        }
+        CondensationGraph condensation = new CondensationGraph(toCSR(), components, ids);
+        return new SCCResult(components, ids, condensation.getCondensationGraph());
+    }
+}
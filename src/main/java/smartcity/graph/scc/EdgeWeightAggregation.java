@@ -0,0 +1,27 @@
+package smartcity.graph.scc;
+
+/**
+ * How the weights of all original edges between two components are combined
+ * into the weight of the single condensation edge.
+ */
+public enum EdgeWeightAggregation {
+    MIN,
+    MAX,
+    SUM,
+    COUNT,
+    MEAN;
+
+    public double apply(double min, double max, double sum, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        switch (this) {
+            case MIN: return min;
+            case MAX: return max;
+            case SUM: return sum;
+            case COUNT: return count;
+            case MEAN: return sum / count;
+            default: throw new IllegalStateException("Unknown aggregation: " + this);
+        }
+    }
+}
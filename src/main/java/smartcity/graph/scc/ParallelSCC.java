@@ -0,0 +1,478 @@
+package smartcity.graph.scc;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.SCCResult;
+import smartcity.graph.dagsp.Metrics;
+import java.util.*;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forward-backward SCC decomposition with trimming, run on a ForkJoinPool.
+ *
+ * Every vertex carries the id of the partition it currently belongs to. The whole graph is first
+ * trimmed (vertices without an in- or out-neighbour are singleton SCCs), then each partition is split
+ * by a forward and a backward search from a pivot into FW\SCC, BW\SCC and the remainder, which are
+ * independent and processed concurrently. The pivot is chosen pseudo-randomly, which splits long
+ * chains of SCCs roughly in half like a quicksort partition. Partitions are only split until every
+ * worker has a few of them; smaller ones are finished with a sequential Tarjan pass restricted to
+ * the partition. Partitions never share
+ * vertices, so the per-vertex arrays are written without synchronization.
+ *
+ * Component ids are renumbered in reverse topological order of the condensation, the same
+ * convention TarjanSCC produces, so downstream code can use either implementation.
+ */
+public class ParallelSCC implements Metrics {
+    private static final int DONE = -1;
+    private static final int MIN_SEQUENTIAL_THRESHOLD = 2048;
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    private final Graph graph;
+    private CSRGraph csr;
+    private final ForkJoinPool pool;
+
+    private int[] part;
+    private int[] label;
+    private int[] inDeg;
+    private int[] outDeg;
+    private int[] cursor;
+    private CSRGraph reverse;
+    private int sequentialThreshold;
+    private final AtomicInteger partitionIds = new AtomicInteger();
+    private final AtomicInteger componentCount = new AtomicInteger();
+
+    private List<List<Integer>> sccs;
+    private int[] componentId;
+    private CondensationGraph condensationGraph;
+
+    private final LongAdder dfsCount = new LongAdder();
+    private final LongAdder edgeRelaxations = new LongAdder();
+    private final LongAdder kahnOperations = new LongAdder();
+
+    public ParallelSCC(Graph graph) {
+        this(graph, null, ForkJoinPool.commonPool());
+    }
+
+    public ParallelSCC(CSRGraph csr) {
+        this(null, csr, ForkJoinPool.commonPool());
+    }
+
+    public ParallelSCC(CSRGraph csr, ForkJoinPool pool) {
+        this(null, csr, pool);
+    }
+
+    private ParallelSCC(Graph graph, CSRGraph csr, ForkJoinPool pool) {
+        this.graph = graph;
+        this.csr = csr;
+        this.pool = pool;
+    }
+
+    public List<List<Integer>> findSCCs() {
+        reset();
+        if (csr == null) {
+            csr = graph.toCSR();
+        }
+        int n = csr.getN();
+        part = new int[n];
+        label = new int[n];
+        inDeg = new int[n];
+        outDeg = new int[n];
+        cursor = new int[n];
+        reverse = csr.reverse();
+        // Split only until every worker has a few partitions; past that Tarjan is cheaper than more FW-BW rounds
+        sequentialThreshold = Math.max(MIN_SEQUENTIAL_THRESHOLD, n / (PARTITIONS_PER_WORKER * pool.getParallelism()));
+        partitionIds.set(1);
+        componentCount.set(0);
+
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) {
+            all[v] = v;
+        }
+        if (n > 0) {
+            pool.invoke(new PartitionTask(null, all, 0));
+        }
+
+        renumberInReverseTopologicalOrder();
+
+        part = null;
+        inDeg = null;
+        outDeg = null;
+        cursor = null;
+        reverse = null;
+        return sccs;
+    }
+
+    private void renumberInReverseTopologicalOrder() {
+        int n = csr.getN();
+        int count = componentCount.get();
+
+        int[] start = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            start[label[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] members = new int[n];
+        int[] cursor = Arrays.copyOf(start, count);
+        for (int v = 0; v < n; v++) {
+            members[cursor[label[v]]++] = v;
+        }
+
+        int[] compInDeg = new int[count];
+        for (int u = 0; u < n; u++) {
+            for (int i = csr.edgeStart(u), end = csr.edgeEnd(u); i < end; i++) {
+                int cv = label[csr.target(i)];
+                if (cv != label[u]) {
+                    compInDeg[cv]++;
+                }
+            }
+        }
+
+        int[] order = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < count; c++) {
+            if (compInDeg[c] == 0) {
+                order[tail++] = c;
+            }
+        }
+        while (head < tail) {
+            incrementKahnOperation();
+            int c = order[head++];
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                int u = members[k];
+                for (int i = csr.edgeStart(u), end = csr.edgeEnd(u); i < end; i++) {
+                    int cv = label[csr.target(i)];
+                    if (cv != c && --compInDeg[cv] == 0) {
+                        order[tail++] = cv;
+                    }
+                }
+            }
+        }
+
+        // Sources get the highest ids, sinks the lowest - the order Tarjan completes components in
+        int[] newId = new int[count];
+        sccs = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            int c = order[count - 1 - id];
+            newId[c] = id;
+            List<Integer> scc = new ArrayList<>(start[c + 1] - start[c]);
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                scc.add(members[k]);
+            }
+            sccs.add(scc);
+        }
+
+        componentId = new int[n];
+        for (int v = 0; v < n; v++) {
+            componentId[v] = newId[label[v]];
+        }
+        label = null;
+    }
+
+
+    private final class PartitionTask extends CountedCompleter<Void> {
+        private final int[] vertices;
+        private final int id;
+
+        PartitionTask(CountedCompleter<?> parent, int[] vertices, int id) {
+            super(parent);
+            this.vertices = vertices;
+            this.id = id;
+        }
+
+        @Override
+        public void compute() {
+            ArrayDeque<int[]> localVertices = new ArrayDeque<>();
+            ArrayDeque<Integer> localIds = new ArrayDeque<>();
+            localVertices.push(vertices);
+            localIds.push(id);
+
+            long[] counters = new long[2];
+            while (!localVertices.isEmpty()) {
+                int[] subset = localVertices.pop();
+                int subsetId = localIds.pop();
+                int[][] pieces = decompose(subset, subsetId, counters);
+                for (int k = 0; k < pieces.length; k += 2) {
+                    int[] piece = pieces[k];
+                    if (piece.length == 0) {
+                        continue;
+                    }
+                    int pieceId = pieces[k + 1][0];
+                    if (piece.length > sequentialThreshold) {
+                        addToPendingCount(1);
+                        new PartitionTask(this, piece, pieceId).fork();
+                    } else {
+                        localVertices.push(piece);
+                        localIds.push(pieceId);
+                    }
+                }
+            }
+            dfsCount.add(counters[0]);
+            edgeRelaxations.add(counters[1]);
+            tryComplete();
+        }
+    }
+
+    // Returns {fw, {fwId}, bw, {bwId}, rest, {id}} - vertex sets still to decompose and their partition ids
+    private int[][] decompose(int[] vertices, int p, long[] counters) {
+        int[] queue = new int[vertices.length];
+        int tail = vertices.length == csr.getN() ? trim(vertices, p, queue, counters) : 0;
+        if (tail > 0) {
+            int base = componentCount.getAndAdd(tail);
+            for (int i = 0; i < tail; i++) {
+                label[queue[i]] = base + i;
+            }
+        }
+
+        int remaining = 0;
+        for (int v : vertices) {
+            if (part[v] == p) remaining++;
+        }
+        if (remaining == 0) {
+            return new int[0][];
+        }
+        if (remaining <= sequentialThreshold) {
+            sequentialTarjan(vertices, p, remaining, counters);
+            return new int[0][];
+        }
+
+        int pivot = -1;
+        int skip = pivotIndex(p, remaining);
+        for (int v : vertices) {
+            if (part[v] == p && skip-- == 0) {
+                pivot = v;
+                break;
+            }
+        }
+
+        int fwId = partitionIds.getAndIncrement();
+        int bwId = partitionIds.getAndIncrement();
+
+        // Forward search inside the partition
+        int head = 0;
+        tail = 0;
+        part[pivot] = fwId;
+        queue[tail++] = pivot;
+        while (head < tail) {
+            int u = queue[head++];
+            counters[0]++;
+            for (int i = csr.edgeStart(u), end = csr.edgeEnd(u); i < end; i++) {
+                counters[1]++;
+                int w = csr.target(i);
+                if (part[w] == p) {
+                    part[w] = fwId;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        // Backward search: vertices reached that were also reached forward form the pivot's SCC
+        int component = componentCount.getAndIncrement();
+        head = 0;
+        tail = 0;
+        part[pivot] = DONE;
+        label[pivot] = component;
+        queue[tail++] = pivot;
+        while (head < tail) {
+            int u = queue[head++];
+            counters[0]++;
+            for (int i = reverse.edgeStart(u), end = reverse.edgeEnd(u); i < end; i++) {
+                counters[1]++;
+                int w = reverse.target(i);
+                if (part[w] == fwId) {
+                    part[w] = DONE;
+                    label[w] = component;
+                    queue[tail++] = w;
+                } else if (part[w] == p) {
+                    part[w] = bwId;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        int fwSize = 0;
+        int bwSize = 0;
+        int restSize = 0;
+        for (int v : vertices) {
+            int pv = part[v];
+            if (pv == fwId) fwSize++;
+            else if (pv == bwId) bwSize++;
+            else if (pv == p) restSize++;
+        }
+        int[] fw = new int[fwSize];
+        int[] bw = new int[bwSize];
+        int[] rest = new int[restSize];
+        fwSize = 0;
+        bwSize = 0;
+        restSize = 0;
+        for (int v : vertices) {
+            int pv = part[v];
+            if (pv == fwId) fw[fwSize++] = v;
+            else if (pv == bwId) bw[bwSize++] = v;
+            else if (pv == p) rest[restSize++] = v;
+        }
+        return new int[][]{fw, {fwId}, bw, {bwId}, rest, {p}};
+    }
+
+    private static int pivotIndex(int partitionId, int remaining) {
+        int h = partitionId * 0x9E3779B9;
+        h ^= h >>> 16;
+        return Math.floorMod(h, remaining);
+    }
+
+    // Tarjan restricted to partition p. inDeg/outDeg are reused as DFS index + 1 and lowlink;
+    // a vertex with part == p and a non-zero index is on the component stack.
+    private void sequentialTarjan(int[] vertices, int p, int remaining, long[] counters) {
+        for (int v : vertices) {
+            if (part[v] == p) inDeg[v] = 0;
+        }
+        int[] callStack = new int[remaining];
+        int[] sccStack = new int[remaining];
+        int sccTop = 0;
+        int next = 1;
+
+        for (int root : vertices) {
+            if (part[root] != p || inDeg[root] != 0) {
+                continue;
+            }
+            int callTop = 0;
+            inDeg[root] = next;
+            outDeg[root] = next++;
+            cursor[root] = csr.edgeStart(root);
+            sccStack[sccTop++] = root;
+            callStack[callTop++] = root;
+
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                int i = cursor[v];
+                if (i < csr.edgeEnd(v)) {
+                    cursor[v] = i + 1;
+                    counters[1]++;
+                    int w = csr.target(i);
+                    if (part[w] != p) {
+                        continue;
+                    }
+                    if (inDeg[w] == 0) {
+                        inDeg[w] = next;
+                        outDeg[w] = next++;
+                        cursor[w] = csr.edgeStart(w);
+                        sccStack[sccTop++] = w;
+                        callStack[callTop++] = w;
+                    } else {
+                        outDeg[v] = Math.min(outDeg[v], inDeg[w]);
+                    }
+                    continue;
+                }
+
+                callTop--;
+                counters[0]++;
+                if (outDeg[v] == inDeg[v]) {
+                    int component = componentCount.getAndIncrement();
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        part[w] = DONE;
+                        label[w] = component;
+                    } while (w != v);
+                }
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    outDeg[parent] = Math.min(outDeg[parent], outDeg[v]);
+                }
+            }
+        }
+    }
+
+    // Peels off vertices with no in- or out-neighbour left; they land in queue[0..result).
+    // Only run on the whole graph, where the starting degrees come straight from the CSR offsets.
+    private int trim(int[] vertices, int p, int[] queue, long[] counters) {
+        int tail = 0;
+        for (int v : vertices) {
+            inDeg[v] = reverse.outDegree(v);
+            outDeg[v] = csr.outDegree(v);
+        }
+        for (int v : vertices) {
+            if (inDeg[v] == 0 || outDeg[v] == 0) {
+                part[v] = DONE;
+                queue[tail++] = v;
+            }
+        }
+
+        int head = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            counters[0]++;
+            for (int i = csr.edgeStart(v), end = csr.edgeEnd(v); i < end; i++) {
+                int w = csr.target(i);
+                if (part[w] == p && --inDeg[w] == 0) {
+                    part[w] = DONE;
+                    queue[tail++] = w;
+                }
+            }
+            for (int i = reverse.edgeStart(v), end = reverse.edgeEnd(v); i < end; i++) {
+                int w = reverse.target(i);
+                if (part[w] == p && --outDeg[w] == 0) {
+                    part[w] = DONE;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return tail;
+    }
+
+
+    public Graph buildCondensationGraph() {
+        return buildCondensationGraph(EdgeWeightAggregation.MIN);
+    }
+
+
+    public Graph buildCondensationGraph(EdgeWeightAggregation aggregation) {
+        if (sccs == null) {
+            findSCCs();
+        }
+        this.condensationGraph = new CondensationGraph(csr, sccs, componentId, aggregation);
+        return condensationGraph.getCondensationGraph();
+    }
+
+
+    public CondensationGraph getCondensationGraphObject() {
+        if (condensationGraph == null) {
+            buildCondensationGraph();
+        }
+        return condensationGraph;
+    }
+
+
+    public SCCResult getResult() {
+        return new SCCResult(sccs, componentId, buildCondensationGraph());
+    }
+
+    public int[] getComponentId() {
+        return componentId;
+    }
+
+    // Metrics implementation
+    @Override
+    public void incrementDFSCount() { dfsCount.increment(); }
+    @Override
+    public void incrementEdgeRelaxation() { edgeRelaxations.increment(); }
+    @Override
+    public void incrementKahnOperation() { kahnOperations.increment(); }
+    @Override
+    public long getDFSCount() { return dfsCount.sum(); }
+    @Override
+    public long getEdgeRelaxations() { return edgeRelaxations.sum(); }
+    @Override
+    public long getKahnOperations() { return kahnOperations.sum(); }
+    @Override
+    public void reset() {
+        dfsCount.reset();
+        edgeRelaxations.reset();
+        kahnOperations.reset();
+    }
+}
@@ -1,7 +1,8 @@
 package smartcity.graph.scc;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
-import smartcity.model.Edge;
+import smartcity.graph.dagsp.CountingMetrics;
 import smartcity.graph.dagsp.Metrics;
 import java.util.*;
 
@@ -10,32 +11,61 @@ public class TarjanSCC implements Metrics {
     private int[] indices;
     private int[] lowlinks;
     private boolean[] onStack;
-    private Stack<Integer> stack;
+    private int[] stack;
+    private int stackTop;
+    private int[] callStack;
+    private int[] edgeCursor;
     private List<List<Integer>> sccs;
     private int[] componentId;
     private Graph graph;
+    private CSRGraph csr;
     private CondensationGraph condensationGraph;
-
-    private long dfsCount;
-    private long edgeRelaxations;
-    private long kahnOperations;
+    private final Metrics metrics;
 
     public TarjanSCC(Graph graph) {
+        this(graph, new CountingMetrics());
+    }
+
+    public TarjanSCC(CSRGraph csr) {
+        this(csr, new CountingMetrics());
+    }
+
+    public TarjanSCC(Graph graph, Metrics metrics) {
+        this(graph, graph.getN(), metrics);
+    }
+
+    public TarjanSCC(CSRGraph csr, Metrics metrics) {
+        this((Graph) null, csr.getN(), metrics);
+        this.csr = csr;
+    }
+
+    private TarjanSCC(Graph graph, int n, Metrics metrics) {
         this.graph = graph;
+        this.metrics = metrics;
         this.index = 0;
-        this.indices = new int[graph.getN()];
-        this.lowlinks = new int[graph.getN()];
-        this.onStack = new boolean[graph.getN()];
-        this.stack = new Stack<>();
+        this.indices = new int[n];
+        this.lowlinks = new int[n];
+        this.onStack = new boolean[n];
+        this.stack = new int[n];
+        this.callStack = new int[n];
+        this.edgeCursor = new int[n];
         this.sccs = new ArrayList<>();
-        this.componentId = new int[graph.getN()];
+        this.componentId = new int[n];
         Arrays.fill(indices, -1);
         Arrays.fill(componentId, -1);
     }
 
+    private CSRGraph csr() {
+        if (csr == null) {
+            csr = graph.toCSR();
+        }
+        return csr;
+    }
+
     public List<List<Integer>> findSCCs() {
         reset();
-        for (int v = 0; v < graph.getN(); v++) {
+        csr();
+        for (int v = 0; v < csr.getN(); v++) {
             if (indices[v] == -1) {
                 strongConnect(v);
             }
@@ -43,42 +73,75 @@ public class TarjanSCC implements Metrics {
         return sccs;
     }
 
-    private void strongConnect(int v) {
-        incrementDFSCount();
+    // Iterative DFS: callStack holds the active path, edgeCursor[v] the next out-edge of v to explore.
+    // Visit order and component numbering are identical to the recursive formulation.
+    private void strongConnect(int root) {
+        int callTop = 0;
+        visit(root);
+        callStack[callTop++] = root;
+
+        while (callTop > 0) {
+            int v = callStack[callTop - 1];
+            int i = edgeCursor[v];
+
+            if (i < csr.edgeEnd(v)) {
+                edgeCursor[v] = i + 1;
+                metrics.incrementEdgeRelaxation();
+                int w = csr.target(i);
+                if (indices[w] == -1) {
+                    visit(w);
+                    callStack[callTop++] = w;
+                } else if (onStack[w]) {
+                    lowlinks[v] = Math.min(lowlinks[v], indices[w]);
+                }
+                continue;
+            }
+
+            callTop--;
+            if (lowlinks[v] == indices[v]) {
+                popComponent(v);
+            }
+            if (callTop > 0) {
+                int parent = callStack[callTop - 1];
+                lowlinks[parent] = Math.min(lowlinks[parent], lowlinks[v]);
+            }
+        }
+    }
+
+    private void visit(int v) {
+        metrics.incrementDFSCount();
+        metrics.recordVisit(v);
         indices[v] = index;
         lowlinks[v] = index;
         index++;
-        stack.push(v);
+        edgeCursor[v] = csr.edgeStart(v);
+        stack[stackTop++] = v;
         onStack[v] = true;
+    }
 
-        for (var edge : graph.getEdges(v)) {
-            incrementEdgeRelaxation();
-            int w = edge.getTo();
-            if (indices[w] == -1) {
-                strongConnect(w);
-                lowlinks[v] = Math.min(lowlinks[v], lowlinks[w]);
-            } else if (onStack[w]) {
-                lowlinks[v] = Math.min(lowlinks[v], indices[w]);
-            }
-        }
-
-        if (lowlinks[v] == indices[v]) {
-            List<Integer> scc = new ArrayList<>();
-            int w;
-            do {
-                w = stack.pop();
-                onStack[w] = false;
-                scc.add(w);
-                componentId[w] = sccs.size();
-            } while (w != v);
-            sccs.add(scc);
-        }
+    private void popComponent(int v) {
+        List<Integer> scc = new ArrayList<>();
+        int w;
+        do {
+            w = stack[--stackTop];
+            onStack[w] = false;
+            scc.add(w);
+            componentId[w] = sccs.size();
+        } while (w != v);
+        sccs.add(scc);
     }
 
 
     public Graph buildCondensationGraph() {
-        findSCCs(); // Убедимся, что SCC найдены
-        this.condensationGraph = new CondensationGraph(graph, sccs, componentId);
+        return buildCondensationGraph(EdgeWeightAggregation.MIN);
+    }
+
+
+    public Graph buildCondensationGraph(EdgeWeightAggregation aggregation) {
+        if (index == 0 && csr().getN() > 0) {
+            findSCCs(); // SCCs are not found yet
+        }
+        this.condensationGraph = new CondensationGraph(csr, sccs, componentId, aggregation);
         return condensationGraph.getCondensationGraph();
     }
 
@@ -104,33 +167,21 @@ public class TarjanSCC implements Metrics {
 
     // Metrics implementation
     @Override
-    public void incrementDFSCount() {
-        dfsCount++;
-    }
+    public void incrementDFSCount() { metrics.incrementDFSCount(); }
     @Override
-    public void incrementEdgeRelaxation() {
-        edgeRelaxations++;
-    }
+    public void incrementEdgeRelaxation() { metrics.incrementEdgeRelaxation(); }
     @Override
-    public void incrementKahnOperation() {
-        kahnOperations++;
-    }
+    public void incrementKahnOperation() { metrics.incrementKahnOperation(); }
     @Override
-    public long getDFSCount() {
-        return dfsCount;
-    }
+    public void recordVisit(int vertex) { metrics.recordVisit(vertex); }
     @Override
-    public long getEdgeRelaxations() {
-        return edgeRelaxations;
-    }
+    public long getDFSCount() { return metrics.getDFSCount(); }
     @Override
-    public long getKahnOperations() {
-        return kahnOperations;
-    }
+    public long getEdgeRelaxations() { return metrics.getEdgeRelaxations(); }
     @Override
-    public void reset() {
-        dfsCount = 0;
-        edgeRelaxations = 0;
-        kahnOperations = 0;
-    }
+    public long getKahnOperations() { return metrics.getKahnOperations(); }
+    @Override
+    public void reset() { metrics.reset(); }
+
+    public Metrics getMetrics() { return metrics; }
 }
\ No newline at end of file
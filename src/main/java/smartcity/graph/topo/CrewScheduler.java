@@ -0,0 +1,277 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.util.IntPriorityQueue;
+import java.util.*;
+
+/**
+ * Event-driven list scheduling of tasks onto a fixed set of crews, each allowed to work only on
+ * certain Vertex task types.
+ *
+ * Precedence comes from the condensation DAG: the tasks of a strongly connected component run
+ * one after another in the component's own order, and a component starts only when every
+ * component before it has finished. Whenever crews are idle, the highest-ranked ready task that
+ * one of them may take is started on the eligible idle crew with the fewest task types, keeping
+ * generalists free for work nobody else can do. Time then jumps to the next finish.
+ *
+ * Ready tasks are kept in one IntPriorityQueue per task type and busy crews in one ordered by
+ * finish time, so each dispatch costs O(log n + types + crews) and nothing is re-scanned. The
+ * default rank is the downstream critical-path length (the task's own duration plus the longest
+ * chain of durations after it), which is the usual highest-level-first rule.
+ */
+public class CrewScheduler {
+    private final List<Crew> crews;
+
+    public CrewScheduler(List<Crew> crews) {
+        if (crews.isEmpty()) {
+            throw new IllegalArgumentException("At least one crew is required");
+        }
+        this.crews = new ArrayList<>(crews);
+    }
+
+    /** A crew that may take any task whose type is in taskTypes, or any task at all if it is empty. */
+    public static final class Crew {
+        private final String name;
+        private final Set<String> taskTypes;
+
+        public Crew(String name, Set<String> taskTypes) {
+            this.name = name;
+            this.taskTypes = Collections.unmodifiableSet(new HashSet<>(taskTypes));
+        }
+
+        public Crew(String name, String... taskTypes) {
+            this(name, new HashSet<>(Arrays.asList(taskTypes)));
+        }
+
+        public boolean canDo(String taskType) {
+            return taskTypes.isEmpty() || taskTypes.contains(taskType);
+        }
+
+        public String getName() { return name; }
+        public Set<String> getTaskTypes() { return taskTypes; }
+
+        @Override
+        public String toString() {
+            return name + (taskTypes.isEmpty() ? "[any]" : taskTypes.toString());
+        }
+    }
+
+    public static class Schedule {
+        private final double[] start;
+        private final double[] finish;
+        private final int[] crewOf;
+        private final int[] dispatchOrder;
+        private final double[] busyTime;
+        private final double makespan;
+
+        Schedule(double[] start, double[] finish, int[] crewOf, int[] dispatchOrder, double[] busyTime, double makespan) {
+            this.start = start;
+            this.finish = finish;
+            this.crewOf = crewOf;
+            this.dispatchOrder = dispatchOrder;
+            this.busyTime = busyTime;
+            this.makespan = makespan;
+        }
+
+        public double getStart(int task) { return start[task]; }
+        public double getFinish(int task) { return finish[task]; }
+        /** Index into the scheduler's crew list. */
+        public int getCrew(int task) { return crewOf[task]; }
+        public double getMakespan() { return makespan; }
+        public double[] getStartTimes() { return start.clone(); }
+        public double[] getFinishTimes() { return finish.clone(); }
+        public int[] getCrewAssignment() { return crewOf.clone(); }
+        /** Tasks in the order they were started. */
+        public int[] getDispatchOrder() { return dispatchOrder.clone(); }
+
+        /** Fraction of the makespan a crew spent working. */
+        public double getUtilization(int crew) {
+            return makespan == 0 ? 0 : busyTime[crew] / makespan;
+        }
+    }
+
+    public Schedule schedule(Graph graph) {
+        CSRGraph precedence = precedenceGraph(graph);
+        double[] durations = graph.getVertexDurations();
+        return schedule(graph, precedence, durations, PriorityScheduler.downstreamLength(precedence, durations));
+    }
+
+    /** Same, with caller-supplied ranks (higher starts first). */
+    public Schedule schedule(Graph graph, double[] rank) {
+        return schedule(graph, precedenceGraph(graph), graph.getVertexDurations(), rank);
+    }
+
+    /**
+     * Task-level DAG of the condensation: the members of each component chained in component order,
+     * and every edge between components running from the last task of one to the first of the other.
+     * All edge weights are zero.
+     */
+    public static CSRGraph precedenceGraph(Graph graph) {
+        int n = graph.getN();
+        TarjanSCC tarjan = new TarjanSCC(graph, NoOpMetrics.INSTANCE);
+        List<List<Integer>> components = tarjan.findSCCs();
+        int[] componentId = tarjan.getComponentId();
+        int[] first = new int[components.size()];
+        int[] last = new int[components.size()];
+        int[] next = new int[n];
+        Arrays.fill(next, -1);
+        for (int c = 0; c < components.size(); c++) {
+            List<Integer> members = components.get(c);
+            first[c] = members.get(0);
+            last[c] = members.get(members.size() - 1);
+            for (int i = 0; i + 1 < members.size(); i++) {
+                next[members.get(i)] = members.get(i + 1);
+            }
+        }
+
+        CSRGraph csr = graph.toCSR();
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true, csr.getEdgeCount() + n);
+        for (int u = 0; u < n; u++) {
+            if (next[u] >= 0) {
+                builder.addEdge(u, next[u], 0);
+            }
+            int cu = componentId[u];
+            for (int i = csr.edgeStart(u), end = csr.edgeEnd(u); i < end; i++) {
+                int cv = componentId[csr.target(i)];
+                if (cu != cv) {
+                    builder.addEdge(last[cu], first[cv], 0);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private Schedule schedule(Graph graph, CSRGraph precedence, double[] durations, double[] rank) {
+        int n = graph.getN();
+        int k = crews.size();
+
+        Map<String, Integer> typeIds = new HashMap<>();
+        int[] typeOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            typeOf[v] = typeIds.computeIfAbsent(graph.getVertexTaskType(v), t -> typeIds.size());
+        }
+        int types = typeIds.size();
+        boolean[][] eligible = new boolean[k][types];
+        int[] skills = new int[k];
+        for (Map.Entry<String, Integer> type : typeIds.entrySet()) {
+            boolean covered = false;
+            for (int c = 0; c < k; c++) {
+                if (crews.get(c).canDo(type.getKey())) {
+                    eligible[c][type.getValue()] = true;
+                    skills[c]++;
+                    covered = true;
+                }
+            }
+            if (!covered) {
+                throw new IllegalArgumentException("No crew can perform task type '" + type.getKey() + "'");
+            }
+        }
+
+        double[] readyKey = new double[n];
+        for (int v = 0; v < n; v++) {
+            readyKey[v] = -rank[v];
+        }
+        IntPriorityQueue[] ready = new IntPriorityQueue[types];
+        for (int t = 0; t < types; t++) {
+            ready[t] = new IntPriorityQueue(readyKey);
+        }
+        int[] inDegree = new int[n];
+        for (int target : precedence.getTargets()) {
+            inDegree[target]++;
+        }
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                ready[typeOf[v]].offer(v);
+            }
+        }
+
+        boolean[] idle = new boolean[k];
+        Arrays.fill(idle, true);
+        int[] idleEligible = new int[types];
+        for (int c = 0; c < k; c++) {
+            for (int t = 0; t < types; t++) {
+                if (eligible[c][t]) idleEligible[t]++;
+            }
+        }
+        double[] crewFinish = new double[k];
+        int[] crewTask = new int[k];
+        IntPriorityQueue busy = new IntPriorityQueue(crewFinish, k);
+
+        double[] start = new double[n];
+        double[] finish = new double[n];
+        int[] crewOf = new int[n];
+        int[] dispatchOrder = new int[n];
+        double[] busyTime = new double[k];
+        int dispatched = 0;
+        int completed = 0;
+        double now = 0;
+
+        while (completed < n) {
+            // Start the best ready task some idle crew may take, until none is left
+            while (true) {
+                int bestType = -1;
+                for (int t = 0; t < types; t++) {
+                    if (idleEligible[t] > 0 && !ready[t].isEmpty()
+                            && (bestType < 0 || before(ready[t].peek(), ready[bestType].peek(), readyKey))) {
+                        bestType = t;
+                    }
+                }
+                if (bestType < 0) {
+                    break;
+                }
+                int task = ready[bestType].poll();
+                int crew = -1;
+                for (int c = 0; c < k; c++) {
+                    if (idle[c] && eligible[c][bestType] && (crew < 0 || skills[c] < skills[crew])) {
+                        crew = c;
+                    }
+                }
+                idle[crew] = false;
+                for (int t = 0; t < types; t++) {
+                    if (eligible[crew][t]) idleEligible[t]--;
+                }
+                start[task] = now;
+                finish[task] = now + durations[task];
+                crewOf[task] = crew;
+                busyTime[crew] += durations[task];
+                dispatchOrder[dispatched++] = task;
+                crewTask[crew] = task;
+                crewFinish[crew] = finish[task];
+                busy.offer(crew);
+            }
+
+            if (busy.isEmpty()) {
+                throw new IllegalStateException("Scheduling stalled with " + (n - completed) + " tasks left");
+            }
+            // Jump to the next finish and release every crew finishing at that instant
+            now = busy.peekKey();
+            while (!busy.isEmpty() && busy.peekKey() == now) {
+                int crew = busy.poll();
+                int task = crewTask[crew];
+                completed++;
+                idle[crew] = true;
+                for (int t = 0; t < types; t++) {
+                    if (eligible[crew][t]) idleEligible[t]++;
+                }
+                for (int i = precedence.edgeStart(task), end = precedence.edgeEnd(task); i < end; i++) {
+                    int v = precedence.target(i);
+                    if (--inDegree[v] == 0) {
+                        ready[typeOf[v]].offer(v);
+                    }
+                }
+            }
+        }
+        return new Schedule(start, finish, crewOf, dispatchOrder, busyTime, now);
+    }
+
+    private static boolean before(int a, int b, double[] keys) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    public List<Crew> getCrews() {
+        return Collections.unmodifiableList(crews);
+    }
+}
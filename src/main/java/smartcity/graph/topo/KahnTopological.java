@@ -1,14 +1,22 @@
 package smartcity.graph.topo;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
+import smartcity.graph.dagsp.CountingMetrics;
 import smartcity.graph.dagsp.Metrics;
 import java.util.*;
 
 
 public class KahnTopological implements Metrics {
-    private long dfsCount;
-    private long edgeRelaxations;
-    private long kahnOperations;
+    private final Metrics metrics;
+
+    public KahnTopological() {
+        this(new CountingMetrics());
+    }
+
+    public KahnTopological(Metrics metrics) {
+        this.metrics = metrics;
+    }
 
     public List<Integer> topologicalSort(Graph graph) {
         reset();
@@ -16,72 +24,83 @@ public class KahnTopological implements Metrics {
     }
 
     public List<Integer> kahnTopologicalSort(Graph graph) {
-        int n = graph.getN();
-        int[] inDegree = new int[n];
+        int[] order = kahnTopologicalOrder(graph.toCSR());
 
-
-        calculateInDegrees(graph, inDegree);
+        List<Integer> result = new ArrayList<>(order.length);
+        for (int v : order) {
+            result.add(v);
+        }
+        return result;
+    }
 
 
-        Queue<Integer> queue = initializeQueue(inDegree);
+    public int[] topologicalOrder(CSRGraph graph) {
+        reset();
+        return kahnTopologicalOrder(graph);
+    }
 
+    public int[] kahnTopologicalOrder(CSRGraph graph) {
+        int[] order = new int[graph.getN()];
+        validateAcyclicGraph(sortPrefix(graph, order), graph.getN());
+        return order;
+    }
 
-        List<Integer> result = processVertices(graph, inDegree, queue);
+    // Kahn's algorithm into order; returns how many vertices it placed (all of them iff acyclic)
+    private int sortPrefix(CSRGraph graph, int[] order) {
+        int n = graph.getN();
+        int[] inDegree = new int[n];
 
 
-        validateAcyclicGraph(result, n);
+        calculateInDegrees(graph, inDegree);
 
-        return result;
-    }
 
-    private void calculateInDegrees(Graph graph, int[] inDegree) {
-        for (int u = 0; u < graph.getN(); u++) {
-            for (var edge : graph.getEdges(u)) {
-                incrementEdgeRelaxation();
-                inDegree[edge.getTo()]++;
+        // order doubles as the FIFO queue: [head, tail) holds ready vertices
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
             }
         }
-    }
 
-    private Queue<Integer> initializeQueue(int[] inDegree) {
-        Queue<Integer> queue = new LinkedList<>();
-        for (int i = 0; i < inDegree.length; i++) {
-            if (inDegree[i] == 0) {
-                queue.offer(i);
-            }
+
+        int head = 0;
+        while (head < tail) {
+            int u = order[head++];
+            metrics.incrementKahnOperation();
+            metrics.recordVisit(u);
+            tail = processNeighbors(graph, u, inDegree, order, tail);
         }
-        return queue;
+        return tail;
     }
 
-    private List<Integer> processVertices(Graph graph, int[] inDegree, Queue<Integer> queue) {
-        List<Integer> result = new ArrayList<>();
-
-        while (!queue.isEmpty()) {
-            incrementKahnOperation();
-            int u = queue.poll();
-            result.add(u);
+    private void calculateInDegrees(Graph graph, int[] inDegree) {
+        calculateInDegrees(graph.toCSR(), inDegree);
+    }
 
-            processNeighbors(graph, u, inDegree, queue);
+    private void calculateInDegrees(CSRGraph graph, int[] inDegree) {
+        int[] targets = graph.getTargets();
+        for (int i = 0; i < targets.length; i++) {
+            metrics.incrementEdgeRelaxation();
+            inDegree[targets[i]]++;
         }
-
-        return result;
     }
 
-    private void processNeighbors(Graph graph, int u, int[] inDegree, Queue<Integer> queue) {
-        for (var edge : graph.getEdges(u)) {
-            incrementEdgeRelaxation();
-            int v = edge.getTo();
+    private int processNeighbors(CSRGraph graph, int u, int[] inDegree, int[] queue, int tail) {
+        for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+            metrics.incrementEdgeRelaxation();
+            int v = graph.target(i);
             inDegree[v]--;
             if (inDegree[v] == 0) {
-                queue.offer(v);
+                queue[tail++] = v;
             }
         }
+        return tail;
     }
 
-    private void validateAcyclicGraph(List<Integer> result, int totalVertices) {
-        if (result.size() != totalVertices) {
+    private void validateAcyclicGraph(int processed, int totalVertices) {
+        if (processed != totalVertices) {
             throw new IllegalArgumentException(
-                    "Graph contains cycles. Processed " + result.size() +
+                    "Graph contains cycles. Processed " + processed +
                             " of " + totalVertices + " vertices. " +
                             "Remaining vertices form cycles."
             );
@@ -107,47 +126,14 @@ public class KahnTopological implements Metrics {
     }
 
 
+    /** Kahn order that dispatches the ready vertex with the highest (or lowest) out-degree first. */
     public List<Integer> topologicalSortWithPriority(Graph graph, boolean preferHighDegree) {
-        int n = graph.getN();
-        int[] inDegree = new int[n];
-        calculateInDegrees(graph, inDegree);
-
-
-        PriorityQueue<Integer> queue = new PriorityQueue<>(
-                (a, b) -> preferHighDegree ?
-                        Integer.compare(getOutDegree(graph, b), getOutDegree(graph, a)) :
-                        Integer.compare(getOutDegree(graph, a), getOutDegree(graph, b))
-        );
-
-        for (int i = 0; i < n; i++) {
-            if (inDegree[i] == 0) {
-                queue.offer(i);
-            }
-        }
-
-        List<Integer> result = new ArrayList<>();
-        while (!queue.isEmpty()) {
-            int u = queue.poll();
-            result.add(u);
-
-            for (var edge : graph.getEdges(u)) {
-                int v = edge.getTo();
-                inDegree[v]--;
-                if (inDegree[v] == 0) {
-                    queue.offer(v);
-                }
-            }
-        }
-
-        validateAcyclicGraph(result, n);
-        return result;
-    }
-
-    private int getOutDegree(Graph graph, int vertex) {
-        return graph.getEdges(vertex).size();
+        return new PriorityScheduler(Collections.singletonMap(PriorityScheduler.Key.OUT_DEGREE,
+                preferHighDegree ? 1.0 : -1.0)).schedule(graph);
     }
 
 
+    /** Materializes every order; use enumerateTopologicalSorts for anything beyond small graphs. */
     public List<List<Integer>> findAllTopologicalSorts(Graph graph) {
         List<List<Integer>> allSorts = new ArrayList<>();
         int n = graph.getN();
@@ -163,6 +149,11 @@ public class KahnTopological implements Metrics {
         return allSorts;
     }
 
+    /** The orders of findAllTopologicalSorts, produced lazily with O(V) state; see TopologicalOrderEnumerator. */
+    public TopologicalOrderEnumerator enumerateTopologicalSorts(Graph graph) {
+        return new TopologicalOrderEnumerator(graph);
+    }
+
     private void findAllTopologicalSortsUtil(Graph graph, int[] inDegree,
                                              boolean[] visited, List<Integer> currentSort,
                                              List<List<Integer>> allSorts) {
@@ -200,13 +191,14 @@ public class KahnTopological implements Metrics {
     }
 
 
+    /** One Kahn pass without building an exception for cyclic graphs. */
     public boolean isDAG(Graph graph) {
-        try {
-            topologicalSort(graph);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+        return isDAG(graph.toCSR());
+    }
+
+    public boolean isDAG(CSRGraph graph) {
+        reset();
+        return sortPrefix(graph, new int[graph.getN()]) == graph.getN();
     }
 
 
@@ -237,21 +229,21 @@ public class KahnTopological implements Metrics {
 
     // Metrics implementation
     @Override
-    public void incrementDFSCount() { dfsCount++; }
+    public void incrementDFSCount() { metrics.incrementDFSCount(); }
     @Override
-    public void incrementEdgeRelaxation() { edgeRelaxations++; }
+    public void incrementEdgeRelaxation() { metrics.incrementEdgeRelaxation(); }
     @Override
-    public void incrementKahnOperation() { kahnOperations++; }
+    public void incrementKahnOperation() { metrics.incrementKahnOperation(); }
     @Override
-    public long getDFSCount() { return dfsCount; }
+    public void recordVisit(int vertex) { metrics.recordVisit(vertex); }
     @Override
-    public long getEdgeRelaxations() { return edgeRelaxations; }
+    public long getDFSCount() { return metrics.getDFSCount(); }
     @Override
-    public long getKahnOperations() { return kahnOperations; }
+    public long getEdgeRelaxations() { return metrics.getEdgeRelaxations(); }
     @Override
-    public void reset() {
-        dfsCount = 0;
-        edgeRelaxations = 0;
-        kahnOperations = 0;
-    }
+    public long getKahnOperations() { return metrics.getKahnOperations(); }
+    @Override
+    public void reset() { metrics.reset(); }
+
+    public Metrics getMetrics() { return metrics; }
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.NoOpMetrics;
+import java.util.*;
+
+/**
+ * Topological order of a DAG kept current under edge insertions and deletions (Pearce-Kelly).
+ *
+ * Every vertex owns a slot in the order. An inserted edge u -> v that already agrees with the
+ * order costs O(1). Otherwise only the vertices whose slots lie between v and u are examined:
+ * those reachable from v and those reaching u are found by two bounded searches and rearranged
+ * into the same set of slots, backward set first. If the forward search reaches u, the edge
+ * would close a cycle; it is then not added and the cycle is returned. Deletions never
+ * invalidate an order and cost only the adjacency update.
+ */
+public class OnlineTopologicalOrder {
+    private final int n;
+    private final int[][] out;
+    private final int[] outSize;
+    private final int[][] in;
+    private final int[] inSize;
+    private long edgeCount;
+
+    private final int[] order;
+    private final int[] position;
+
+    // Bounded searches mark vertices with the current epoch, so no O(V) array is cleared per insert
+    private final int[] mark;
+    private final int[] parent;
+    private int epoch;
+    private long updateWork;
+
+    /** Empty graph on n vertices, ordered by id. */
+    public OnlineTopologicalOrder(int n) {
+        this.n = n;
+        this.out = new int[n][];
+        this.outSize = new int[n];
+        this.in = new int[n][];
+        this.inSize = new int[n];
+        this.order = new int[n];
+        this.position = new int[n];
+        this.mark = new int[n];
+        this.parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            out[v] = new int[2];
+            in[v] = new int[2];
+            order[v] = v;
+            position[v] = v;
+        }
+    }
+
+    public OnlineTopologicalOrder(Graph graph) {
+        this(graph.toCSR());
+    }
+
+    /** Starts from the graph's Kahn order; throws IllegalArgumentException if it has a cycle. */
+    public OnlineTopologicalOrder(CSRGraph graph) {
+        this(graph.getN());
+        int[] initial = new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(graph);
+        for (int i = 0; i < n; i++) {
+            order[i] = initial[i];
+            position[initial[i]] = i;
+        }
+        for (int u = 0; u < n; u++) {
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                append(u, graph.target(i));
+            }
+        }
+    }
+
+
+    /**
+     * Adds u -> v and returns an empty list, or, if the edge would close a cycle, leaves the
+     * graph unchanged and returns that cycle as u, v, ..., u.
+     */
+    public List<Integer> insertEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        if (u == v) {
+            return Arrays.asList(u, u);
+        }
+        if (position[u] > position[v]) {
+            List<Integer> cycle = reorder(u, v);
+            if (!cycle.isEmpty()) {
+                return cycle;
+            }
+        }
+        append(u, v);
+        return Collections.emptyList();
+    }
+
+    public void deleteEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        if (!remove(out[u], outSize[u], v)) {
+            throw new IllegalArgumentException("Edge not found: " + u + "->" + v);
+        }
+        outSize[u]--;
+        remove(in[v], inSize[v], u);
+        inSize[v]--;
+        edgeCount--;
+    }
+
+    private List<Integer> reorder(int u, int v) {
+        int lower = position[v];
+        int upper = position[u];
+        epoch++;
+
+        // Forward from v, only through slots before u's
+        List<Integer> forward = new ArrayList<>();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        mark[v] = epoch;
+        parent[v] = -1;
+        stack.push(v);
+        while (!stack.isEmpty()) {
+            int x = stack.pop();
+            forward.add(x);
+            updateWork++;
+            for (int i = 0; i < outSize[x]; i++) {
+                int y = out[x][i];
+                if (y == u) {
+                    return cycleThrough(u, x);
+                }
+                if (mark[y] != epoch && position[y] < upper) {
+                    mark[y] = epoch;
+                    parent[y] = x;
+                    stack.push(y);
+                }
+            }
+        }
+
+        // Backward from u, only through slots after v's
+        List<Integer> backward = new ArrayList<>();
+        mark[u] = epoch;
+        stack.push(u);
+        while (!stack.isEmpty()) {
+            int x = stack.pop();
+            backward.add(x);
+            updateWork++;
+            for (int i = 0; i < inSize[x]; i++) {
+                int y = in[x][i];
+                if (mark[y] != epoch && position[y] > lower) {
+                    mark[y] = epoch;
+                    stack.push(y);
+                }
+            }
+        }
+
+        Comparator<Integer> byPosition = Comparator.comparingInt(x -> position[x]);
+        backward.sort(byPosition);
+        forward.sort(byPosition);
+        int[] slots = new int[backward.size() + forward.size()];
+        int k = 0;
+        for (int x : backward) slots[k++] = position[x];
+        for (int x : forward) slots[k++] = position[x];
+        Arrays.sort(slots);
+
+        k = 0;
+        for (int x : backward) place(x, slots[k++]);
+        for (int x : forward) place(x, slots[k++]);
+        return Collections.emptyList();
+    }
+
+    // u -> v -> ... -> last -> u, following the forward search's parent links back to v
+    private List<Integer> cycleThrough(int u, int last) {
+        List<Integer> path = new ArrayList<>();
+        for (int x = last; x != -1; x = parent[x]) {
+            path.add(x);
+        }
+        path.add(u);
+        Collections.reverse(path);
+        path.add(u);
+        return path;
+    }
+
+    private void place(int x, int slot) {
+        position[x] = slot;
+        order[slot] = x;
+    }
+
+    private void append(int u, int v) {
+        if (outSize[u] == out[u].length) {
+            out[u] = Arrays.copyOf(out[u], out[u].length * 2);
+        }
+        out[u][outSize[u]++] = v;
+        if (inSize[v] == in[v].length) {
+            in[v] = Arrays.copyOf(in[v], in[v].length * 2);
+        }
+        in[v][inSize[v]++] = u;
+        edgeCount++;
+    }
+
+    private static boolean remove(int[] list, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (list[i] == value) {
+                list[i] = list[size - 1];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Vertex out of range: " + v);
+        }
+    }
+
+
+    public int getN() { return n; }
+    public int getPosition(int vertex) { return position[vertex]; }
+    public int vertexAt(int position) { return order[position]; }
+    public int[] getOrder() { return order.clone(); }
+    public boolean precedes(int a, int b) { return position[a] < position[b]; }
+    public long getEdgeCount() { return edgeCount; }
+
+    public List<Integer> getTopologicalOrder() {
+        List<Integer> result = new ArrayList<>(n);
+        for (int v : order) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    /** Vertices visited by reordering searches so far; grows with the edited regions, not the graph. */
+    public long getUpdateWork() {
+        return updateWork;
+    }
+}
@@ -0,0 +1,286 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.Metrics;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Level-synchronous Kahn sort on a ForkJoinPool.
+ *
+ * Each round takes the whole frontier of zero in-degree vertices, splits it into chunks and
+ * lets the workers decrement their successors' in-degrees atomically; whoever brings a vertex
+ * to zero adds it to its chunk's part of the next frontier. Which chunk that is depends on thread
+ * scheduling, so every level is sorted by vertex id once it is complete; the order is then the
+ * same for any pool size and any run. Frontiers too small to be worth splitting run on the calling
+ * thread, and a single-worker pool or a small graph skips the atomics entirely.
+ *
+ * The order is emitted level by level: level k holds the vertices whose longest path from a
+ * source has k edges, and getLevelOffsets() gives the boundaries inside the order. Edge
+ * relaxations count the in-degree pass plus every edge leaving a processed vertex.
+ */
+public class ParallelKahnTopological implements Metrics {
+    private static final int CHUNK = 1024;
+
+    private final ForkJoinPool pool;
+    private int[] levelOffsets = new int[]{0};
+
+    private final LongAdder dfsCount = new LongAdder();
+    private final LongAdder edgeRelaxations = new LongAdder();
+    private final LongAdder kahnOperations = new LongAdder();
+
+    public ParallelKahnTopological() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelKahnTopological(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public List<Integer> topologicalSort(Graph graph) {
+        int[] order = topologicalOrder(graph.toCSR());
+        List<Integer> result = new ArrayList<>(order.length);
+        for (int v : order) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    public int[] topologicalOrder(CSRGraph graph) {
+        reset();
+        int n = graph.getN();
+        if (pool.getParallelism() == 1 || n <= CHUNK * 4) {
+            return sequentialOrder(graph);
+        }
+        AtomicIntegerArray inDegree = countInDegrees(graph);
+
+        int[] order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree.get(v) == 0) {
+                order[tail++] = v;
+            }
+        }
+
+        int[] offsets = new int[16];
+        int levels = 0;
+        int head = 0;
+        while (head < tail) {
+            if (levels + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[levels++] = head;
+            int end = tail;
+            if (end - head <= CHUNK) {
+                tail = expand(graph, inDegree, order, head, end, order, tail);
+            } else {
+                int chunks = (end - head + CHUNK - 1) / CHUNK;
+                int[][] next = new int[chunks][];
+                int[] counts = new int[chunks];
+                pool.invoke(new FrontierTask(graph, inDegree, order, head, end, 0, chunks, next, counts));
+                for (int c = 0; c < chunks; c++) {
+                    System.arraycopy(next[c], 0, order, tail, counts[c]);
+                    tail += counts[c];
+                }
+            }
+            Arrays.sort(order, end, tail);
+            head = end;
+        }
+        offsets[levels] = head;
+        levelOffsets = Arrays.copyOf(offsets, levels + 1);
+        validateAcyclicGraph(tail, n);
+        return order;
+    }
+
+    // Same levels with plain in-degree counters, for one worker or graphs too small to split
+    private int[] sequentialOrder(CSRGraph graph) {
+        int n = graph.getN();
+        int[] inDegree = new int[n];
+        int[] targets = graph.getTargets();
+        for (int target : targets) {
+            inDegree[target]++;
+        }
+        long relaxed = targets.length;
+
+        int[] order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+
+        int[] offsets = new int[16];
+        int levels = 0;
+        int head = 0;
+        while (head < tail) {
+            if (levels + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[levels++] = head;
+            int end = tail;
+            for (; head < end; head++) {
+                int u = order[head];
+                for (int i = graph.edgeStart(u), stop = graph.edgeEnd(u); i < stop; i++) {
+                    if (--inDegree[graph.target(i)] == 0) {
+                        order[tail++] = graph.target(i);
+                    }
+                }
+                relaxed += graph.outDegree(u);
+            }
+            Arrays.sort(order, end, tail);
+        }
+        offsets[levels] = head;
+        levelOffsets = Arrays.copyOf(offsets, levels + 1);
+        kahnOperations.add(head);
+        edgeRelaxations.add(relaxed);
+        validateAcyclicGraph(tail, n);
+        return order;
+    }
+
+    private void validateAcyclicGraph(int processed, int totalVertices) {
+        if (processed != totalVertices) {
+            throw new IllegalArgumentException(
+                    "Graph contains cycles. Processed " + processed +
+                            " of " + totalVertices + " vertices. " +
+                            "Remaining vertices form cycles."
+            );
+        }
+    }
+
+    private AtomicIntegerArray countInDegrees(CSRGraph graph) {
+        AtomicIntegerArray inDegree = new AtomicIntegerArray(graph.getN());
+        int[] targets = graph.getTargets();
+        if (targets.length <= CHUNK * 4) {
+            for (int target : targets) {
+                inDegree.lazySet(target, inDegree.get(target) + 1);
+            }
+        } else {
+            pool.invoke(new InDegreeTask(targets, inDegree, 0, targets.length));
+        }
+        edgeRelaxations.add(targets.length);
+        return inDegree;
+    }
+
+    // Processes frontier[from, to) and appends newly freed vertices to out; returns the new length
+    private int expand(CSRGraph graph, AtomicIntegerArray inDegree, int[] frontier, int from, int to,
+                       int[] out, int length) {
+        long relaxed = 0;
+        for (int k = from; k < to; k++) {
+            int u = frontier[k];
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                int v = graph.target(i);
+                if (inDegree.decrementAndGet(v) == 0) {
+                    out[length++] = v;
+                }
+            }
+            relaxed += graph.outDegree(u);
+        }
+        kahnOperations.add(to - from);
+        edgeRelaxations.add(relaxed);
+        return length;
+    }
+
+    private final class FrontierTask extends RecursiveAction {
+        private final CSRGraph graph;
+        private final AtomicIntegerArray inDegree;
+        private final int[] frontier;
+        private final int start;
+        private final int end;
+        private final int fromChunk;
+        private final int toChunk;
+        private final int[][] next;
+        private final int[] counts;
+
+        FrontierTask(CSRGraph graph, AtomicIntegerArray inDegree, int[] frontier, int start, int end,
+                     int fromChunk, int toChunk, int[][] next, int[] counts) {
+            this.graph = graph;
+            this.inDegree = inDegree;
+            this.frontier = frontier;
+            this.start = start;
+            this.end = end;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.next = next;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                invokeAll(new FrontierTask(graph, inDegree, frontier, start, end, fromChunk, mid, next, counts),
+                        new FrontierTask(graph, inDegree, frontier, start, end, mid, toChunk, next, counts));
+                return;
+            }
+            int from = start + fromChunk * CHUNK;
+            int to = Math.min(end, from + CHUNK);
+            int degrees = 0;
+            for (int k = from; k < to; k++) {
+                degrees += graph.outDegree(frontier[k]);
+            }
+            int[] out = new int[degrees];
+            counts[fromChunk] = expand(graph, inDegree, frontier, from, to, out, 0);
+            next[fromChunk] = out;
+        }
+    }
+
+    private static final class InDegreeTask extends RecursiveAction {
+        private final int[] targets;
+        private final AtomicIntegerArray inDegree;
+        private final int from;
+        private final int to;
+
+        InDegreeTask(int[] targets, AtomicIntegerArray inDegree, int from, int to) {
+            this.targets = targets;
+            this.inDegree = inDegree;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK * 16) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new InDegreeTask(targets, inDegree, from, mid), new InDegreeTask(targets, inDegree, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                inDegree.incrementAndGet(targets[i]);
+            }
+        }
+    }
+
+    /** Level k occupies order[offsets[k] .. offsets[k + 1] - 1] of the last computed order. */
+    public int[] getLevelOffsets() {
+        return levelOffsets.clone();
+    }
+
+    public int getLevelCount() {
+        return levelOffsets.length - 1;
+    }
+
+    // Metrics implementation
+    @Override
+    public void incrementDFSCount() { dfsCount.increment(); }
+    @Override
+    public void incrementEdgeRelaxation() { edgeRelaxations.increment(); }
+    @Override
+    public void incrementKahnOperation() { kahnOperations.increment(); }
+    @Override
+    public long getDFSCount() { return dfsCount.sum(); }
+    @Override
+    public long getEdgeRelaxations() { return edgeRelaxations.sum(); }
+    @Override
+    public long getKahnOperations() { return kahnOperations.sum(); }
+    @Override
+    public void reset() {
+        dfsCount.reset();
+        edgeRelaxations.reset();
+        kahnOperations.reset();
+    }
+}
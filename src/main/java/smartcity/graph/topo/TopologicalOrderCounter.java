@@ -0,0 +1,319 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.graph.scc.TarjanSCC;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Exact number of topological orders of a DAG, without enumerating them.
+ *
+ * The graph is split into weakly connected components, which are independent: the total is the
+ * multinomial coefficient n! / (n1! ... nk!) times the product of the component counts. Each
+ * component is then counted by the cheapest exact method that applies:
+ *  - forests (every vertex has at most one parent, or at most one child) by the hook length
+ *    formula k! / product of subtree sizes, in O(k);
+ *  - up to BITMASK_LIMIT vertices by a DP over bitmasks of already placed vertices;
+ *  - otherwise by the same DP over sets of placed vertices stored sparsely, one layer per set
+ *    size. This is polynomial for narrow DAGs (few mutually independent tasks), but counting is
+ *    #P-complete in general, so a layer over MAX_LAYER_STATES sets throws IllegalStateException.
+ */
+public class TopologicalOrderCounter {
+    static final int BITMASK_LIMIT = 20;
+    private static final int MAX_LAYER_STATES = 1 << 16;
+
+    public BigInteger count(Graph graph) {
+        return count(graph.toCSR());
+    }
+
+    /** Throws IllegalArgumentException if the graph has a cycle. */
+    public BigInteger count(CSRGraph graph) {
+        new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(graph);
+        int[][] components = weakComponents(graph);
+        int[] local = new int[graph.getN()];
+
+        BigInteger total = multinomial(graph.getN(), components);
+        for (int[] component : components) {
+            total = total.multiply(countComponent(subgraph(graph, component, local)));
+        }
+        return total;
+    }
+
+    /** Orders of the condensation DAG, i.e. of the strongly connected components as units. */
+    public BigInteger countComponentOrders(Graph graph) {
+        return count(new TarjanSCC(graph).buildCondensationGraph());
+    }
+
+    private BigInteger countComponent(CSRGraph component) {
+        int k = component.getN();
+        if (isForest(component)) {
+            return hookLength(component);
+        }
+        if (k <= BITMASK_LIMIT) {
+            return BigInteger.valueOf(completions(component)[0]);
+        }
+        return layeredCount(component);
+    }
+
+    // In-forest (out-degree <= 1) is an out-forest once reversed; both have the same count
+    private static boolean isForest(CSRGraph graph) {
+        return maxInDegree(graph) <= 1 || maxOutDegree(graph) <= 1;
+    }
+
+    private BigInteger hookLength(CSRGraph forest) {
+        int[] sizes = subtreeSizes(maxInDegree(forest) <= 1 ? forest : forest.reverse());
+        long[] hooks = new long[sizes.length];
+        for (int v = 0; v < sizes.length; v++) {
+            hooks[v] = sizes[v];
+        }
+        return factorial(forest.getN()).divide(product(hooks, 0, hooks.length));
+    }
+
+    /**
+     * completions[mask] = number of ways to order the vertices outside mask, given that the
+     * vertices in mask are already placed (0 for masks that are not downward closed).
+     */
+    static long[] completions(CSRGraph component) {
+        int k = component.getN();
+        int[] predMask = predecessorMasks(component);
+        int full = (1 << k) - 1;
+        long[] ways = new long[1 << k];
+        ways[full] = 1;
+        for (int mask = full - 1; mask >= 0; mask--) {
+            long sum = 0;
+            for (int v = 0; v < k; v++) {
+                if ((mask & (1 << v)) == 0 && (predMask[v] & ~mask) == 0) {
+                    sum += ways[mask | (1 << v)];
+                }
+            }
+            ways[mask] = sum;
+        }
+        return ways;
+    }
+
+    static int[] predecessorMasks(CSRGraph component) {
+        int[] predMask = new int[component.getN()];
+        for (int u = 0; u < component.getN(); u++) {
+            for (int i = component.edgeStart(u), end = component.edgeEnd(u); i < end; i++) {
+                predMask[component.target(i)] |= 1 << u;
+            }
+        }
+        return predMask;
+    }
+
+    // Counts paths through the lattice of placed sets, keeping only one set size in memory
+    private BigInteger layeredCount(CSRGraph component) {
+        int k = component.getN();
+        CSRGraph reverse = component.reverse();
+        int words = (k + 63) >>> 6;
+        Map<PlacedSet, BigInteger> layer = new HashMap<>();
+        layer.put(new PlacedSet(new long[words]), BigInteger.ONE);
+
+        for (int size = 0; size < k; size++) {
+            Map<PlacedSet, BigInteger> next = new HashMap<>();
+            for (Map.Entry<PlacedSet, BigInteger> entry : layer.entrySet()) {
+                long[] placed = entry.getKey().bits;
+                for (int v = 0; v < k; v++) {
+                    if (contains(placed, v) || !allPlaced(reverse, v, placed)) {
+                        continue;
+                    }
+                    long[] bits = placed.clone();
+                    bits[v >>> 6] |= 1L << v;
+                    next.merge(new PlacedSet(bits), entry.getValue(), BigInteger::add);
+                }
+                if (next.size() > MAX_LAYER_STATES) {
+                    throw new IllegalStateException("Component of " + k + " vertices is too wide to count exactly ("
+                            + next.size() + "+ partial schedules of length " + (size + 1) + ")");
+                }
+            }
+            layer = next;
+        }
+        return layer.values().iterator().next();
+    }
+
+    private static boolean allPlaced(CSRGraph reverse, int v, long[] placed) {
+        for (int i = reverse.edgeStart(v), end = reverse.edgeEnd(v); i < end; i++) {
+            if (!contains(placed, reverse.target(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(long[] bits, int v) {
+        return (bits[v >>> 6] & (1L << v)) != 0;
+    }
+
+    private static final class PlacedSet {
+        private final long[] bits;
+        private final int hash;
+
+        PlacedSet(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PlacedSet && Arrays.equals(bits, ((PlacedSet) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+
+    // Shared with TopologicalOrderSampler
+
+    /** Weakly connected components, each as an ascending array of vertex ids. */
+    static int[][] weakComponents(CSRGraph graph) {
+        int n = graph.getN();
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+        }
+        for (int u = 0; u < n; u++) {
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                int a = find(parent, u);
+                int b = find(parent, graph.target(i));
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        int[] sizes = new int[n];
+        for (int v = 0; v < n; v++) {
+            sizes[find(parent, v)]++;
+        }
+        int[][] components = new int[n][];
+        int count = 0;
+        int[] fill = new int[n];
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            if (components[root] == null) {
+                components[root] = new int[sizes[root]];
+                count++;
+            }
+            components[root][fill[root]++] = v;
+        }
+
+        int[][] result = new int[count][];
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            if (components[v] != null) {
+                result[k++] = components[v];
+            }
+        }
+        return result;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /** Induced subgraph on vertices (local id = index in the array), parallel edges merged. */
+    static CSRGraph subgraph(CSRGraph graph, int[] vertices, int[] local) {
+        for (int i = 0; i < vertices.length; i++) {
+            local[vertices[i]] = i;
+        }
+        int[] offsets = new int[vertices.length + 1];
+        int[] targets = new int[16];
+        int size = 0;
+        for (int i = 0; i < vertices.length; i++) {
+            int u = vertices[i];
+            int start = size;
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                if (size == targets.length) {
+                    targets = Arrays.copyOf(targets, size * 2);
+                }
+                targets[size++] = local[graph.target(e)];
+            }
+            Arrays.sort(targets, start, size);
+            int unique = start;
+            for (int e = start; e < size; e++) {
+                if (unique == start || targets[unique - 1] != targets[e]) {
+                    targets[unique++] = targets[e];
+                }
+            }
+            size = unique;
+            offsets[i + 1] = size;
+        }
+        return new CSRGraph(vertices.length, offsets, Arrays.copyOf(targets, size), new double[size], true);
+    }
+
+    static int maxInDegree(CSRGraph graph) {
+        int[] inDegree = new int[graph.getN()];
+        int max = 0;
+        for (int target : graph.getTargets()) {
+            max = Math.max(max, ++inDegree[target]);
+        }
+        return max;
+    }
+
+    static int maxOutDegree(CSRGraph graph) {
+        int max = 0;
+        for (int u = 0; u < graph.getN(); u++) {
+            max = Math.max(max, graph.outDegree(u));
+        }
+        return max;
+    }
+
+    /** Subtree sizes of an out-forest (every vertex has at most one parent). */
+    static int[] subtreeSizes(CSRGraph outForest) {
+        int[] order = new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(outForest);
+        int[] sizes = new int[outForest.getN()];
+        for (int k = order.length - 1; k >= 0; k--) {
+            int u = order[k];
+            sizes[u] = 1;
+            for (int i = outForest.edgeStart(u), end = outForest.edgeEnd(u); i < end; i++) {
+                sizes[u] += sizes[outForest.target(i)];
+            }
+        }
+        return sizes;
+    }
+
+    static BigInteger multinomial(int n, int[][] components) {
+        BigInteger denominator = BigInteger.ONE;
+        for (int[] component : components) {
+            if (component.length > 1) {
+                denominator = denominator.multiply(factorial(component.length));
+            }
+        }
+        return factorial(n).divide(denominator);
+    }
+
+    static BigInteger factorial(int n) {
+        long[] factors = new long[Math.max(0, n - 1)];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = i + 2;
+        }
+        return product(factors, 0, factors.length);
+    }
+
+    // Balanced product tree, so huge factorials multiply numbers of similar size
+    private static BigInteger product(long[] factors, int from, int to) {
+        if (to - from <= 16) {
+            BigInteger result = BigInteger.ONE;
+            long chunk = 1;
+            for (int i = from; i < to; i++) {
+                if (chunk > Long.MAX_VALUE / factors[i]) {
+                    result = result.multiply(BigInteger.valueOf(chunk));
+                    chunk = 1;
+                }
+                chunk *= factors[i];
+            }
+            return result.multiply(BigInteger.valueOf(chunk));
+        }
+        int mid = (from + to) >>> 1;
+        return product(factors, from, mid).multiply(product(factors, mid, to));
+    }
+}
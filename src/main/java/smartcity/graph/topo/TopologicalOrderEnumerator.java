@@ -0,0 +1,182 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.NoOpMetrics;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy enumeration of all topological orders of a DAG, one at a time.
+ *
+ * A backtracking cursor over the current order: advancing undoes the deepest choice that still
+ * has a larger ready vertex, takes that vertex and completes the order greedily with the smallest
+ * ready vertex at each step. Ready vertices live in a BitSet, so the state is a handful of O(V)
+ * arrays however many orders exist. Orders come in lexicographic order, the same sequence
+ * KahnTopological.findAllTopologicalSorts produces.
+ *
+ * Enumeration ends when every order has been produced, the limit is reached, the deadline has
+ * passed or cancel() was called (from any thread); getStopReason() tells which.
+ */
+public class TopologicalOrderEnumerator implements Iterator<int[]> {
+    public enum StopReason { EXHAUSTED, LIMIT, DEADLINE, CANCELLED }
+
+    private final CSRGraph graph;
+    private final int n;
+    private final int[] inDegree;
+    private final BitSet ready;
+    private final int[] prefix;
+    private int depth;
+    // No ready vertex has a smaller id, so scans for the smallest one start here
+    private int lowestReady;
+
+    private boolean pending;
+    // hasNext() returned true and next() has not consumed it yet; bounds are not re-checked
+    private boolean confirmed;
+    private long count;
+    private long limit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private volatile boolean cancelled;
+    private StopReason stopReason;
+
+    public TopologicalOrderEnumerator(Graph graph) {
+        this(graph.toCSR());
+    }
+
+    /** Throws IllegalArgumentException if the graph has a cycle, as KahnTopological does. */
+    public TopologicalOrderEnumerator(CSRGraph graph) {
+        new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(graph);
+        this.graph = graph;
+        this.n = graph.getN();
+        this.inDegree = new int[n];
+        this.ready = new BitSet(n);
+        this.prefix = new int[n];
+        for (int target : graph.getTargets()) {
+            inDegree[target]++;
+        }
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                ready.set(v);
+            }
+        }
+        complete();
+        pending = true;
+    }
+
+    public TopologicalOrderEnumerator limit(long maxOrders) {
+        this.limit = maxOrders;
+        return this;
+    }
+
+    /** Stops once timeoutNanos have passed from this call. */
+    public TopologicalOrderEnumerator deadline(long timeoutNanos) {
+        this.deadline = System.nanoTime() + timeoutNanos;
+        this.hasDeadline = true;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (confirmed) {
+            return true;
+        }
+        if (stopReason != null) {
+            return false;
+        }
+        if (cancelled) {
+            stopReason = StopReason.CANCELLED;
+        } else if (count >= limit) {
+            stopReason = StopReason.LIMIT;
+        } else if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            stopReason = StopReason.DEADLINE;
+        } else if (!pending && !advance()) {
+            stopReason = StopReason.EXHAUSTED;
+        } else {
+            pending = true;
+        }
+        confirmed = stopReason == null;
+        return confirmed;
+    }
+
+    /** The next order as a fresh array. */
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        confirmed = false;
+        pending = false;
+        count++;
+        return prefix.clone();
+    }
+
+    public Stream<int[]> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public Stream<List<Integer>> streamLists() {
+        return stream().map(order -> {
+            List<Integer> list = new ArrayList<>(order.length);
+            for (int v : order) {
+                list.add(v);
+            }
+            return list;
+        });
+    }
+
+    // Moves to the lexicographically next order; false when the current one was the last
+    private boolean advance() {
+        while (depth > 0) {
+            int v = prefix[--depth];
+            undo(v);
+            int w = ready.nextSetBit(v + 1);
+            if (w >= 0) {
+                take(w);
+                complete();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void complete() {
+        while (depth < n) {
+            lowestReady = ready.nextSetBit(lowestReady);
+            take(lowestReady);
+        }
+    }
+
+    private void take(int v) {
+        prefix[depth++] = v;
+        ready.clear(v);
+        for (int i = graph.edgeStart(v), end = graph.edgeEnd(v); i < end; i++) {
+            int w = graph.target(i);
+            if (--inDegree[w] == 0) {
+                ready.set(w);
+                lowestReady = Math.min(lowestReady, w);
+            }
+        }
+    }
+
+    private void undo(int v) {
+        for (int i = graph.edgeStart(v), end = graph.edgeEnd(v); i < end; i++) {
+            if (inDegree[graph.target(i)]++ == 0) {
+                ready.clear(graph.target(i));
+            }
+        }
+        ready.set(v);
+        lowestReady = Math.min(lowestReady, v);
+    }
+
+    public long getCount() { return count; }
+
+    /** Why enumeration ended, or null while more orders may follow. */
+    public StopReason getStopReason() { return stopReason; }
+}
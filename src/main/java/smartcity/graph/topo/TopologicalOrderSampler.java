@@ -0,0 +1,248 @@
+package smartcity.graph.topo;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.util.LongIntHashMap;
+import java.util.*;
+
+/**
+ * Random topological orders of a DAG, for Monte Carlo estimates over all valid schedules.
+ *
+ * Weakly connected components are sampled independently and then interleaved by a uniformly
+ * shuffled sequence of component labels, which is exactly how a uniform order of the whole graph
+ * decomposes. Per component:
+ *  - forests are sampled exactly by repeatedly taking an available root with probability
+ *    proportional to its remaining subtree size;
+ *  - components of up to TopologicalOrderCounter.BITMASK_LIMIT vertices are sampled exactly by
+ *    walking the table of completion counts, one vertex at a time;
+ *  - larger components run a Markov chain that swaps a random pair of adjacent, unrelated
+ *    vertices. Its stationary distribution is uniform, but a finite number of steps only gets
+ *    close to it, so isExact() is false. The chain continues from the previous sample.
+ */
+public class TopologicalOrderSampler {
+    private final int n;
+    private final SplittableRandom random;
+    private final int[] labels;
+    private final ComponentSampler[] samplers;
+    private final int[][] components;
+    private long mixingSteps = -1;
+
+    public TopologicalOrderSampler(Graph graph, long seed) {
+        this(graph.toCSR(), seed);
+    }
+
+    /** Throws IllegalArgumentException if the graph has a cycle. */
+    public TopologicalOrderSampler(CSRGraph graph, long seed) {
+        new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(graph);
+        this.n = graph.getN();
+        this.random = new SplittableRandom(seed);
+        this.components = TopologicalOrderCounter.weakComponents(graph);
+        this.samplers = new ComponentSampler[components.length];
+        this.labels = new int[n];
+
+        int[] local = new int[n];
+        int k = 0;
+        for (int c = 0; c < components.length; c++) {
+            samplers[c] = samplerFor(TopologicalOrderCounter.subgraph(graph, components[c], local));
+            for (int i = 0; i < components[c].length; i++) {
+                labels[k++] = c;
+            }
+        }
+    }
+
+    /** Chain steps per sample for large non-forest components; defaults to 16 k^2 capped at 10^7. */
+    public TopologicalOrderSampler setMixingSteps(long steps) {
+        this.mixingSteps = steps;
+        return this;
+    }
+
+    /** True when every sample is drawn from exactly the uniform distribution. */
+    public boolean isExact() {
+        for (ComponentSampler sampler : samplers) {
+            if (sampler instanceof ChainSampler) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int[] sample() {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = labels[i];
+            labels[i] = labels[j];
+            labels[j] = t;
+        }
+        int[][] local = new int[samplers.length][];
+        for (int c = 0; c < samplers.length; c++) {
+            local[c] = samplers[c].sample();
+        }
+        int[] next = new int[samplers.length];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int c = labels[i];
+            order[i] = components[c][local[c][next[c]++]];
+        }
+        return order;
+    }
+
+    public List<int[]> sample(int count) {
+        List<int[]> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(sample());
+        }
+        return result;
+    }
+
+    private ComponentSampler samplerFor(CSRGraph component) {
+        if (TopologicalOrderCounter.maxInDegree(component) <= 1) {
+            return new ForestSampler(component, false);
+        }
+        if (TopologicalOrderCounter.maxOutDegree(component) <= 1) {
+            return new ForestSampler(component.reverse(), true);
+        }
+        if (component.getN() <= TopologicalOrderCounter.BITMASK_LIMIT) {
+            return new BitmaskSampler(component);
+        }
+        return new ChainSampler(component);
+    }
+
+    private interface ComponentSampler {
+        /** A random order of local vertex ids. */
+        int[] sample();
+    }
+
+    // Weighted draw among available roots, with weights kept in a Fenwick tree
+    private final class ForestSampler implements ComponentSampler {
+        private final CSRGraph forest;
+        private final boolean reversed;
+        private final int[] sizes;
+        private final int[] roots;
+
+        ForestSampler(CSRGraph outForest, boolean reversed) {
+            this.forest = outForest;
+            this.reversed = reversed;
+            this.sizes = TopologicalOrderCounter.subtreeSizes(outForest);
+            boolean[] child = new boolean[outForest.getN()];
+            for (int target : outForest.getTargets()) {
+                child[target] = true;
+            }
+            int count = 0;
+            int[] found = new int[outForest.getN()];
+            for (int v = 0; v < child.length; v++) {
+                if (!child[v]) {
+                    found[count++] = v;
+                }
+            }
+            this.roots = Arrays.copyOf(found, count);
+        }
+
+        @Override
+        public int[] sample() {
+            int k = forest.getN();
+            long[] tree = new long[k + 1];
+            long total = 0;
+            for (int root : roots) {
+                add(tree, root, sizes[root]);
+                total += sizes[root];
+            }
+            int[] order = new int[k];
+            for (int i = 0; i < k; i++) {
+                int v = find(tree, random.nextLong(total));
+                add(tree, v, -sizes[v]);
+                total -= sizes[v];
+                for (int e = forest.edgeStart(v), end = forest.edgeEnd(v); e < end; e++) {
+                    int w = forest.target(e);
+                    add(tree, w, sizes[w]);
+                    total += sizes[w];
+                }
+                order[reversed ? k - 1 - i : i] = v;
+            }
+            return order;
+        }
+
+        private void add(long[] tree, int v, long delta) {
+            for (int i = v + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        // Vertex whose weight interval contains target
+        private int find(long[] tree, long target) {
+            int position = 0;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] <= target) {
+                    position = next;
+                    target -= tree[next];
+                }
+            }
+            return position;
+        }
+    }
+
+    private final class BitmaskSampler implements ComponentSampler {
+        private final int[] predMask;
+        private final long[] ways;
+
+        BitmaskSampler(CSRGraph component) {
+            this.predMask = TopologicalOrderCounter.predecessorMasks(component);
+            this.ways = TopologicalOrderCounter.completions(component);
+        }
+
+        @Override
+        public int[] sample() {
+            int k = predMask.length;
+            int[] order = new int[k];
+            int mask = 0;
+            for (int i = 0; i < k; i++) {
+                long r = random.nextLong(ways[mask]);
+                for (int v = 0; v < k; v++) {
+                    if ((mask & (1 << v)) != 0 || (predMask[v] & ~mask) != 0) {
+                        continue;
+                    }
+                    r -= ways[mask | (1 << v)];
+                    if (r < 0) {
+                        order[i] = v;
+                        mask |= 1 << v;
+                        break;
+                    }
+                }
+            }
+            return order;
+        }
+    }
+
+    private final class ChainSampler implements ComponentSampler {
+        private final int[] order;
+        private final LongIntHashMap edges;
+
+        ChainSampler(CSRGraph component) {
+            this.order = new KahnTopological(NoOpMetrics.INSTANCE).kahnTopologicalOrder(component);
+            this.edges = new LongIntHashMap(component.getTargets().length);
+            for (int u = 0; u < component.getN(); u++) {
+                for (int i = component.edgeStart(u), end = component.edgeEnd(u); i < end; i++) {
+                    edges.put(LongIntHashMap.pack(u, component.target(i)), 1);
+                }
+            }
+        }
+
+        @Override
+        public int[] sample() {
+            int k = order.length;
+            long steps = mixingSteps >= 0 ? mixingSteps : Math.min(16L * k * k, 10_000_000L);
+            for (long s = 0; s < steps; s++) {
+                int i = random.nextInt(k - 1);
+                int a = order[i];
+                int b = order[i + 1];
+                // Lazy chain: half of the steps stay put, which makes it aperiodic
+                if (random.nextBoolean() && !edges.containsKey(LongIntHashMap.pack(a, b))) {
+                    order[i] = b;
+                    order[i + 1] = a;
+                }
+            }
+            return order.clone();
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package smartcity.graph.topo;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
+import smartcity.graph.dagsp.CountingMetrics;
 import smartcity.graph.dagsp.Metrics;
 import java.util.*;
 
 public class TopologicalSort implements Metrics {
-    private long dfsCount;
-    private long edgeRelaxations;
-    private long kahnOperations;
+    private final Metrics metrics;
+
+    public TopologicalSort() {
+        this(new CountingMetrics());
+    }
+
+    public TopologicalSort(Metrics metrics) {
+        this.metrics = metrics;
+    }
 
     public List<Integer> topologicalSort(Graph graph) {
         reset();
@@ -16,6 +24,10 @@ public class TopologicalSort implements Metrics {
 
 
     public List<Integer> dfsTopologicalSort(Graph graph) {
+        return dfsTopologicalSort(graph.toCSR());
+    }
+
+    public List<Integer> dfsTopologicalSort(CSRGraph graph) {
         int n = graph.getN();
         boolean[] visited = new boolean[n];
         boolean[] inStack = new boolean[n];
@@ -33,8 +45,8 @@ public class TopologicalSort implements Metrics {
         return order;
     }
 
-    private boolean dfsVisit(Graph graph, int node, boolean[] visited, boolean[] inStack, List<Integer> order) {
-        incrementDFSCount();
+    private boolean dfsVisit(CSRGraph graph, int node, boolean[] visited, boolean[] inStack, List<Integer> order) {
+        metrics.incrementDFSCount();
 
         if (inStack[node]) {
             return false; // Cycle detected
@@ -45,10 +57,11 @@ public class TopologicalSort implements Metrics {
 
         visited[node] = true;
         inStack[node] = true;
+        metrics.recordVisit(node);
 
-        for (var edge : graph.getEdges(node)) {
-            incrementEdgeRelaxation();
-            int neighbor = edge.getTo();
+        for (int i = graph.edgeStart(node), end = graph.edgeEnd(node); i < end; i++) {
+            metrics.incrementEdgeRelaxation();
+            int neighbor = graph.target(i);
             if (!dfsVisit(graph, neighbor, visited, inStack, order)) {
                 return false;
             }
@@ -61,37 +74,43 @@ public class TopologicalSort implements Metrics {
 
 
     public List<Integer> kahnTopologicalSort(Graph graph) {
+        return kahnTopologicalSort(graph.toCSR());
+    }
+
+    public List<Integer> kahnTopologicalSort(CSRGraph graph) {
         reset();
         int n = graph.getN();
         int[] inDegree = new int[n];
 
 
-        for (int u = 0; u < n; u++) {
-            for (var edge : graph.getEdges(u)) {
-                incrementEdgeRelaxation();
-                inDegree[edge.getTo()]++;
-            }
+        int[] targets = graph.getTargets();
+        for (int i = 0; i < targets.length; i++) {
+            metrics.incrementEdgeRelaxation();
+            inDegree[targets[i]]++;
         }
 
-        Queue<Integer> queue = new LinkedList<>();
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
         for (int i = 0; i < n; i++) {
             if (inDegree[i] == 0) {
-                queue.offer(i);
+                queue[tail++] = i;
             }
         }
 
-        List<Integer> result = new ArrayList<>();
-        while (!queue.isEmpty()) {
-            incrementKahnOperation();
-            int u = queue.poll();
+        List<Integer> result = new ArrayList<>(n);
+        while (head < tail) {
+            int u = queue[head++];
+            metrics.incrementKahnOperation();
+            metrics.recordVisit(u);
             result.add(u);
 
-            for (var edge : graph.getEdges(u)) {
-                incrementEdgeRelaxation();
-                int v = edge.getTo();
+            for (int i = graph.edgeStart(u), end = graph.edgeEnd(u); i < end; i++) {
+                metrics.incrementEdgeRelaxation();
+                int v = graph.target(i);
                 inDegree[v]--;
                 if (inDegree[v] == 0) {
-                    queue.offer(v);
+                    queue[tail++] = v;
                 }
             }
         }
@@ -133,6 +152,7 @@ public class TopologicalSort implements Metrics {
     }
 
 
+    /** Materializes every order; TopologicalOrderEnumerator streams them with O(V) state instead. */
     public List<List<Integer>> findAllTopologicalOrders(Graph graph) {
         List<List<Integer>> allOrders = new ArrayList<>();
         int n = graph.getN();
@@ -239,36 +259,25 @@ public class TopologicalSort implements Metrics {
     }
 
 
+    // Metrics implementation
     @Override
-    public void incrementDFSCount() {
-        dfsCount++;
-    }
+    public void incrementDFSCount() { metrics.incrementDFSCount(); }
     @Override
-    public void incrementEdgeRelaxation() {
-        edgeRelaxations++;
-    }
+    public void incrementEdgeRelaxation() { metrics.incrementEdgeRelaxation(); }
     @Override
-    public void incrementKahnOperation() {
-        kahnOperations++;
-    }
+    public void incrementKahnOperation() { metrics.incrementKahnOperation(); }
     @Override
-    public long getDFSCount() {
-        return dfsCount;
-    }
+    public void recordVisit(int vertex) { metrics.recordVisit(vertex); }
     @Override
-    public long getEdgeRelaxations() {
-        return edgeRelaxations;
-    }
+    public long getDFSCount() { return metrics.getDFSCount(); }
     @Override
-    public long getKahnOperations() {
-        return kahnOperations;
-    }
+    public long getEdgeRelaxations() { return metrics.getEdgeRelaxations(); }
     @Override
-    public void reset() {
-        dfsCount = 0;
-        edgeRelaxations = 0;
-        kahnOperations = 0;
-    }
+    public long getKahnOperations() { return metrics.getKahnOperations(); }
+    @Override
+    public void reset() { metrics.reset(); }
+
+    public Metrics getMetrics() { return metrics; }
 
 
     public void compareAlgorithms(Graph graph) {
@@ -0,0 +1,287 @@
+package smartcity.model;
+
+import java.util.*;
+
+/**
+ * Frozen compressed sparse row view of a directed graph.
+ * Out-edges of vertex u occupy positions offsets[u] .. offsets[u + 1] - 1
+ * of the targets and weights arrays, so a traversal never touches an Edge object.
+ */
+public final class CSRGraph {
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final boolean directed;
+    private String weightModel;
+    private int source;
+
+    public CSRGraph(int n, int[] offsets, int[] targets, double[] weights, boolean directed) {
+        if (offsets.length != n + 1) {
+            throw new IllegalArgumentException("offsets must have n + 1 entries, got " + offsets.length);
+        }
+        if (targets.length != weights.length || offsets[n] != targets.length) {
+            throw new IllegalArgumentException("targets/weights length does not match offsets[n]");
+        }
+        this.n = n;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.directed = directed;
+        this.weightModel = "edge";
+        this.source = -1;
+    }
+
+
+    public static CSRGraph fromGraph(Graph graph) {
+        int n = graph.getN();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + graph.getEdges(u).size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int pos = offsets[u];
+            for (Edge edge : graph.getEdges(u)) {
+                targets[pos] = edge.getTo();
+                weights[pos] = edge.getWeight();
+                pos++;
+            }
+        }
+
+        CSRGraph csr = new CSRGraph(n, offsets, targets, weights, graph.isDirected());
+        csr.setWeightModel(graph.getWeightModel());
+        csr.setSource(graph.getSource());
+        return csr;
+    }
+
+
+    public Graph toGraph() {
+        Graph graph = new Graph(n, true);
+        graph.setWeightModel(weightModel);
+        graph.setSource(source);
+        for (int u = 0; u < n; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                graph.addEdge(u, targets[i], weights[i]);
+            }
+        }
+        return graph;
+    }
+
+
+    public CSRGraph reverse() {
+        int[] revOffsets = new int[n + 1];
+        for (int i = 0; i < targets.length; i++) {
+            revOffsets[targets[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            revOffsets[v + 1] += revOffsets[v];
+        }
+
+        int[] cursor = Arrays.copyOf(revOffsets, n);
+        int[] revTargets = new int[targets.length];
+        double[] revWeights = new double[weights.length];
+        for (int u = 0; u < n; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int pos = cursor[targets[i]]++;
+                revTargets[pos] = u;
+                revWeights[pos] = weights[i];
+            }
+        }
+
+        CSRGraph reversed = new CSRGraph(n, revOffsets, revTargets, revWeights, directed);
+        reversed.setWeightModel(weightModel);
+        return reversed;
+    }
+
+
+    public CSRGraph withWeights(double[] newWeights) {
+        CSRGraph copy = new CSRGraph(n, offsets, targets, newWeights, directed);
+        copy.setWeightModel(weightModel);
+        copy.setSource(source);
+        return copy;
+    }
+
+
+    public int outDegree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    public int edgeStart(int u) {
+        return offsets[u];
+    }
+
+    public int edgeEnd(int u) {
+        return offsets[u + 1];
+    }
+
+    public int target(int edgeIndex) {
+        return targets[edgeIndex];
+    }
+
+    public double weight(int edgeIndex) {
+        return weights[edgeIndex];
+    }
+
+    // Getters and setters
+    public int getN() { return n; }
+    public int getEdgeCount() { return targets.length; }
+    public boolean isDirected() { return directed; }
+    public int[] getOffsets() { return offsets; }
+    public int[] getTargets() { return targets; }
+    public double[] getWeights() { return weights; }
+    public String getWeightModel() { return weightModel; }
+    public void setWeightModel(String weightModel) { this.weightModel = weightModel; }
+    public int getSource() { return source; }
+    public void setSource(int source) { this.source = source; }
+
+
+    /**
+     * Accumulates edges in flat primitive buffers and scatters them into CSR order on build().
+     * Edges of the same source keep their insertion order. Undirected edges are recorded once and
+     * mirrored on build(), so the vertex count and direction may also be supplied after the edges,
+     * which is what streaming loaders need.
+     */
+    public static class Builder {
+        private int n;
+        private boolean directed;
+        private int[] from;
+        private int[] to;
+        private double[] w;
+        private int size;
+        private int maxVertex = -1;
+        private String weightModel = "edge";
+        private int source = -1;
+
+        public Builder() {
+            this.n = -1;
+            this.directed = true;
+            allocate(16);
+        }
+
+        public Builder(int n, boolean directed) {
+            this(n, directed, 16);
+        }
+
+        public Builder(int n, boolean directed, int expectedEdges) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Vertex count must be non-negative: " + n);
+            }
+            this.n = n;
+            this.directed = directed;
+            allocate(Math.max(16, expectedEdges));
+        }
+
+        private void allocate(int capacity) {
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.w = new double[capacity];
+        }
+
+        public Builder addEdge(int u, int v, double weight) {
+            if (u < 0 || v < 0 || (n >= 0 && (u >= n || v >= n))) {
+                throw new IllegalArgumentException("Invalid vertex index in edge: " + u + "->" + v);
+            }
+            if (size == from.length) {
+                int capacity = from.length + (from.length >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                w = Arrays.copyOf(w, capacity);
+            }
+            from[size] = u;
+            to[size] = v;
+            w[size] = weight;
+            size++;
+            maxVertex = Math.max(maxVertex, Math.max(u, v));
+            return this;
+        }
+
+        public Builder setN(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Vertex count must be non-negative: " + n);
+            }
+            this.n = n;
+            return this;
+        }
+
+        public Builder setDirected(boolean directed) {
+            this.directed = directed;
+            return this;
+        }
+
+        public Builder setWeightModel(String weightModel) {
+            this.weightModel = weightModel;
+            return this;
+        }
+
+        public Builder setSource(int source) {
+            this.source = source;
+            return this;
+        }
+
+        public int getN() { return n; }
+        public boolean isDirected() { return directed; }
+        public int getEdgeCount() { return size; }
+
+        private void validate() {
+            if (n < 0) {
+                throw new IllegalStateException("Vertex count was never set");
+            }
+            if (maxVertex >= n) {
+                for (int i = 0; i < size; i++) {
+                    if (from[i] >= n || to[i] >= n) {
+                        throw new IllegalArgumentException("Invalid vertex index in edge: " + from[i] + "->" + to[i]);
+                    }
+                }
+            }
+        }
+
+        public CSRGraph build() {
+            validate();
+            int total = directed ? size : size * 2;
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+                if (!directed) {
+                    offsets[to[i] + 1]++;
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] += offsets[u];
+            }
+
+            int[] cursor = Arrays.copyOf(offsets, n);
+            int[] targets = new int[total];
+            double[] weights = new double[total];
+            for (int i = 0; i < size; i++) {
+                int pos = cursor[from[i]]++;
+                targets[pos] = to[i];
+                weights[pos] = w[i];
+                if (!directed) {
+                    pos = cursor[to[i]]++;
+                    targets[pos] = from[i];
+                    weights[pos] = w[i];
+                }
+            }
+
+            CSRGraph csr = new CSRGraph(n, offsets, targets, weights, directed);
+            csr.setWeightModel(weightModel);
+            csr.setSource(source);
+            return csr;
+        }
+
+        /** Replays the recorded edges, in insertion order, into a mutable Graph. */
+        public Graph toGraph() {
+            validate();
+            Graph graph = new Graph(n, directed);
+            graph.setWeightModel(weightModel);
+            graph.setSource(source);
+            for (int i = 0; i < size; i++) {
+                graph.addEdge(from[i], to[i], w[i]);
+            }
+            return graph;
+        }
+    }
+}
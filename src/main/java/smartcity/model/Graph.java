@@ -1,8 +1,14 @@
 package smartcity.model;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class Graph {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final AtomicLongFieldUpdater<Graph> VERSION =
+            AtomicLongFieldUpdater.newUpdater(Graph.class, "version");
+
     private final int n;
     private final List<List<Edge>> adj;
     private final List<List<Edge>> reverseAdj;
@@ -10,6 +16,8 @@ public class Graph {
     private String weightModel;
     private int source;
     private Map<Integer, Vertex> vertices;
+    private CSRGraph csr;
+    private volatile long version;
 
     public Graph(int n, boolean directed) {
         this.n = n;
@@ -27,6 +35,8 @@ public class Graph {
     }
 
     public void addEdge(int u, int v, double weight) {
+        csr = null;
+        version = 0;
         Edge edge = new Edge(u, v, weight);
         adj.get(u).add(edge);
         reverseAdj.get(v).add(new Edge(v, u, weight));
@@ -45,6 +55,31 @@ public class Graph {
         return reverseAdj.get(u);
     }
 
+    public CSRGraph toCSR() {
+        if (csr == null) {
+            csr = CSRGraph.fromGraph(this);
+        }
+        csr.setWeightModel(weightModel);
+        csr.setSource(source);
+        return csr;
+    }
+
+    /**
+     * Stamp of the current edges and vertex table, unique across all Graph instances: it changes
+     * whenever addEdge, setVertex or initializeSmartCityVertices is called, so results cached under
+     * it go stale automatically. Changing a Vertex in place is not seen; replace it with setVertex.
+     * Assigned lazily, so building a graph edge by edge costs nothing extra; the first stamp is
+     * set with a compare-and-set, so threads reading an unchanged graph all see the same value.
+     */
+    public long getVersion() {
+        long current = version;
+        if (current == 0) {
+            long stamp = VERSIONS.incrementAndGet();
+            current = VERSION.compareAndSet(this, 0, stamp) ? stamp : version;
+        }
+        return current;
+    }
+
     public int getEdgeCount() {
         int count = 0;
         for (List<Edge> edges : adj) {
@@ -66,6 +101,7 @@ public class Graph {
 
     public void setVertex(int id, Vertex vertex) {
         if (id >= 0 && id < n) {
+            version = 0;
             vertices.put(id, vertex);
         }
     }
@@ -99,6 +135,16 @@ public class Graph {
     }
 
 
+    /** Durations of all vertices indexed by id, for algorithms that run on primitive arrays. */
+    public double[] getVertexDurations() {
+        double[] durations = new double[n];
+        for (int i = 0; i < n; i++) {
+            durations[i] = getVertexDuration(i);
+        }
+        return durations;
+    }
+
+
     public String getVertexName(int id) {
         Vertex vertex = vertices.get(id);
         return vertex != null ? vertex.getName() : "Task_" + id;
@@ -110,6 +156,7 @@ public class Graph {
         String[] taskTypes = {"street_cleaning", "repair", "maintenance", "analytics"};
         double[] durations = {1.0, 2.0, 3.0, 4.0, 5.0};
         int[] priorities = {1, 2, 3};
+        version = 0;
 
         for (int i = 0; i < n; i++) {
             String taskType = taskTypes[random.nextInt(taskTypes.length)];
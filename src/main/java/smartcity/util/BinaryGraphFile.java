@@ -0,0 +1,468 @@
+package smartcity.util;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.Vertex;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Little-endian binary graph file that stores the CSR arrays exactly as they sit in memory.
+ *
+ * Layout (every section starts on an 8-byte boundary):
+ *   header     magic "SCGB", version, flags (1 = directed, 2 = vertex attributes),
+ *              n, source, edge count, weight model (length-prefixed UTF-8)
+ *   offsets    int[n + 1]
+ *   targets    int[m]
+ *   weights    double[m]
+ *   attributes double[n] durations, int[n] priorities, int[n] task type ids,
+ *              then the task type dictionary (count, length-prefixed UTF-8 strings)
+ *
+ * The loader maps each section with FileChannel.map and bulk-copies it into the CSR arrays,
+ * so there is no per-edge decoding.
+ */
+public final class BinaryGraphFile {
+    public static final int MAGIC = 0x42474353; // "SCGB" read little-endian
+    public static final int VERSION = 1;
+    private static final int FLAG_DIRECTED = 1;
+    private static final int FLAG_ATTRIBUTES = 2;
+    private static final int HEADER_SIZE = 36;
+    private static final long MAX_CHUNK = 1L << 30;
+
+    private BinaryGraphFile() {}
+
+    public static void write(Graph graph, String filename) throws IOException {
+        write(graph.toCSR(), graph, filename);
+    }
+
+    public static void write(CSRGraph csr, String filename) throws IOException {
+        write(csr, null, filename);
+    }
+
+    private static void write(CSRGraph csr, Graph attributes, String filename) throws IOException {
+        Path path = createParent(filename);
+
+        int n = csr.getN();
+        int flags = (csr.isDirected() ? FLAG_DIRECTED : 0) | (attributes != null ? FLAG_ATTRIBUTES : 0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SectionWriter out = new SectionWriter(channel, 0);
+            writeHeader(out, flags, n, csr.getSource(), csr.getEdgeCount(), csr.getWeightModel());
+
+            out.putInts(csr.getOffsets(), n + 1).align();
+            out.putInts(csr.getTargets(), csr.getEdgeCount()).align();
+            out.putDoubles(csr.getWeights(), csr.getEdgeCount());
+
+            if (attributes != null) {
+                double[] durations = new double[n];
+                int[] priorities = new int[n];
+                int[] typeIds = new int[n];
+                Map<String, Integer> types = new LinkedHashMap<>();
+                for (int v = 0; v < n; v++) {
+                    durations[v] = attributes.getVertexDuration(v);
+                    priorities[v] = attributes.getVertexPriority(v);
+                    typeIds[v] = types.computeIfAbsent(attributes.getVertexTaskType(v), t -> types.size());
+                }
+                out.putDoubles(durations, n);
+                out.putInts(priorities, n);
+                out.putInts(typeIds, n).align();
+                out.putInt(types.size());
+                for (String type : types.keySet()) {
+                    byte[] bytes = type.getBytes(StandardCharsets.UTF_8);
+                    out.putInt(bytes.length).putBytes(bytes);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private static void writeHeader(SectionWriter out, int flags, int n, int source, long m, String weightModel)
+            throws IOException {
+        byte[] model = weightModel == null ? new byte[0] : weightModel.getBytes(StandardCharsets.UTF_8);
+        out.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n)
+                .putInt(source).putInt(0).putLong(m);
+        out.putInt(model.length).putBytes(model).align();
+    }
+
+    private static Path createParent(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        Path parentDir = path.getParent();
+        if (parentDir != null && !Files.exists(parentDir)) {
+            Files.createDirectories(parentDir);
+        }
+        return path;
+    }
+
+    public static CSRGraph loadCSR(String filename) throws IOException {
+        try (FileChannel channel = open(filename)) {
+            Header header = readHeader(channel, filename);
+            return readCSR(channel, header);
+        }
+    }
+
+    /** Loads the graph together with its vertex attributes when the file carries them. */
+    public static Graph loadGraph(String filename) throws IOException {
+        try (FileChannel channel = open(filename)) {
+            Header header = readHeader(channel, filename);
+            CSRGraph csr = readCSR(channel, header);
+            Graph graph = toGraph(csr);
+
+            if ((header.flags & FLAG_ATTRIBUTES) != 0) {
+                int n = header.n;
+                long position = header.attributesStart();
+                double[] durations = new double[n];
+                int[] priorities = new int[n];
+                int[] typeIds = new int[n];
+                readDoubles(channel, position, durations);
+                position += 8L * n;
+                readInts(channel, position, priorities);
+                position += 4L * n;
+                readInts(channel, position, typeIds);
+                position = align(position + 4L * n);
+
+                ByteBuffer dictionary = map(channel, position, channel.size() - position);
+                String[] types = new String[dictionary.getInt()];
+                for (int t = 0; t < types.length; t++) {
+                    byte[] bytes = new byte[dictionary.getInt()];
+                    dictionary.get(bytes);
+                    types[t] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                for (int v = 0; v < n; v++) {
+                    graph.setVertex(v, new Vertex(v, "Task_" + v, types[typeIds[v]], durations[v], priorities[v]));
+                }
+            }
+            return graph;
+        }
+    }
+
+    /** Converts a JSON graph file into the binary format, keeping the original edge order. */
+    public static void convertJSON(String jsonFile, String binaryFile) throws IOException {
+        write(new StreamingJSONParser().parseCSR(jsonFile), binaryFile);
+    }
+
+    // Undirected CSR graphs hold every edge twice; only one copy of each is replayed
+    private static Graph toGraph(CSRGraph csr) {
+        if (csr.isDirected()) {
+            return csr.toGraph();
+        }
+        Graph graph = new Graph(csr.getN(), false);
+        graph.setWeightModel(csr.getWeightModel());
+        graph.setSource(csr.getSource());
+        for (int u = 0; u < csr.getN(); u++) {
+            boolean skipLoop = false;
+            for (int i = csr.edgeStart(u); i < csr.edgeEnd(u); i++) {
+                int v = csr.target(i);
+                if (v == u) {
+                    skipLoop = !skipLoop;
+                    if (!skipLoop) continue;
+                } else if (v < u) {
+                    continue;
+                }
+                graph.addEdge(u, v, csr.weight(i));
+            }
+        }
+        return graph;
+    }
+
+    private static FileChannel open(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + filename);
+        }
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    private static Header readHeader(FileChannel channel, String filename) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a binary graph file: " + filename);
+        }
+        ByteBuffer buffer = map(channel, 0, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary graph file: " + filename);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary graph version " + version + " in " + filename);
+        }
+
+        Header header = new Header();
+        header.flags = buffer.getInt();
+        header.n = buffer.getInt();
+        header.source = buffer.getInt();
+        buffer.getInt();
+        long m = buffer.getLong();
+        int modelLength = buffer.getInt();
+        if (header.n < 0 || m < 0 || m > Integer.MAX_VALUE - 8 || modelLength < 0) {
+            throw new IOException("Corrupt binary graph header in " + filename);
+        }
+        header.m = (int) m;
+
+        ByteBuffer modelBytes = map(channel, HEADER_SIZE, modelLength);
+        byte[] bytes = new byte[modelLength];
+        modelBytes.get(bytes);
+        header.weightModel = modelLength == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+        header.offsetsStart = align((long) HEADER_SIZE + modelLength);
+
+        if (channel.size() < header.attributesStart()) {
+            throw new IOException("Truncated binary graph file: " + filename);
+        }
+        return header;
+    }
+
+    private static CSRGraph readCSR(FileChannel channel, Header header) throws IOException {
+        int[] offsets = new int[header.n + 1];
+        int[] targets = new int[header.m];
+        double[] weights = new double[header.m];
+        readInts(channel, header.offsetsStart, offsets);
+        readInts(channel, header.targetsStart(), targets);
+        readDoubles(channel, header.weightsStart(), weights);
+
+        CSRGraph csr = new CSRGraph(header.n, offsets, targets, weights, (header.flags & FLAG_DIRECTED) != 0);
+        csr.setWeightModel(header.weightModel);
+        csr.setSource(header.source);
+        return csr;
+    }
+
+    private static void readInts(FileChannel channel, long position, int[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int count = (int) Math.min(dst.length - done, MAX_CHUNK / 4);
+            map(channel, position + 4L * done, 4L * count).asIntBuffer().get(dst, done, count);
+            done += count;
+        }
+    }
+
+    private static void readDoubles(FileChannel channel, long position, double[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int count = (int) Math.min(dst.length - done, MAX_CHUNK / 8);
+            map(channel, position + 8L * done, 8L * count).asDoubleBuffer().get(dst, done, count);
+            done += count;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Writes a graph row by row without holding its edge arrays. Targets go straight to the file and
+     * weights to a temporary file that is appended on close(), once the edge count is known; only the
+     * n + 1 offsets stay in memory. Rows must be appended in vertex order.
+     */
+    public static class StreamWriter implements Closeable {
+        private final Path path;
+        private final Path weightsPath;
+        private final FileChannel channel;
+        private final FileChannel weightsChannel;
+        private final SectionWriter targetsOut;
+        private final SectionWriter weightsOut;
+        private final int n;
+        private final boolean directed;
+        private final String weightModel;
+        private final int source;
+        private final int[] offsets;
+        private final long offsetsStart;
+        private final long targetsStart;
+        private int nextRow;
+        private long m;
+
+        public StreamWriter(String filename, int n, boolean directed, String weightModel, int source)
+                throws IOException {
+            this.path = createParent(filename);
+            this.weightsPath = Files.createTempFile(path.toAbsolutePath().getParent(), "weights", ".tmp");
+            this.n = n;
+            this.directed = directed;
+            this.weightModel = weightModel;
+            this.source = source;
+            this.offsets = new int[n + 1];
+
+            int modelLength = weightModel == null ? 0 : weightModel.getBytes(StandardCharsets.UTF_8).length;
+            this.offsetsStart = align((long) HEADER_SIZE + modelLength);
+            this.targetsStart = align(offsetsStart + 4L * (n + 1));
+
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.weightsChannel = FileChannel.open(weightsPath, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            this.targetsOut = new SectionWriter(channel, targetsStart);
+            this.weightsOut = new SectionWriter(weightsChannel, 0);
+        }
+
+        /** Appends rows nextRow .. nextRow + rows - 1; rowOffsets holds rows + 1 entries into targets/weights. */
+        public void appendRows(int rows, int[] rowOffsets, int[] targets, double[] weights) throws IOException {
+            if (nextRow + rows > n) {
+                throw new IllegalStateException("More than " + n + " rows appended");
+            }
+            int count = rowOffsets[rows] - rowOffsets[0];
+            if (m + count > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Edge count exceeds the int-indexed CSR limit");
+            }
+            for (int r = 0; r < rows; r++) {
+                offsets[nextRow + r + 1] = (int) (m + rowOffsets[r + 1] - rowOffsets[0]);
+            }
+            for (int i = rowOffsets[0]; i < rowOffsets[rows]; i++) {
+                if (targets[i] < 0 || targets[i] >= n) {
+                    throw new IllegalArgumentException("Invalid target vertex: " + targets[i]);
+                }
+            }
+            targetsOut.putInts(targets, rowOffsets[0], count);
+            weightsOut.putDoubles(weights, rowOffsets[0], count);
+            nextRow += rows;
+            m += count;
+        }
+
+        public long getEdgeCount() { return m; }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (nextRow != n) {
+                    throw new IllegalStateException("Only " + nextRow + " of " + n + " rows were appended");
+                }
+                targetsOut.align();
+                targetsOut.flush();
+                weightsOut.flush();
+
+                long weightsStart = align(targetsStart + 4L * m);
+                long copied = 0;
+                long size = weightsChannel.size();
+                while (copied < size) {
+                    copied += channel.transferFrom(weightsChannel.position(copied), weightsStart + copied, size - copied);
+                }
+
+                SectionWriter header = new SectionWriter(channel, 0);
+                writeHeader(header, directed ? FLAG_DIRECTED : 0, n, source, m, weightModel);
+                header.flush();
+                SectionWriter offsetsOut = new SectionWriter(channel, offsetsStart);
+                offsetsOut.putInts(offsets, 0, n + 1);
+                offsetsOut.flush();
+            } finally {
+                weightsChannel.close();
+                channel.close();
+            }
+        }
+    }
+
+    private static class Header {
+        int flags;
+        int n;
+        int m;
+        int source;
+        String weightModel;
+        long offsetsStart;
+
+        long targetsStart() { return align(offsetsStart + 4L * (n + 1)); }
+        long weightsStart() { return align(targetsStart() + 4L * m); }
+        long attributesStart() { return weightsStart() + 8L * m; }
+    }
+
+    // Buffers writes through one direct buffer and tracks the file position for alignment
+    private static class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            this.position = position;
+            channel.position(position);
+        }
+
+        SectionWriter putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+            return this;
+        }
+
+        SectionWriter putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+            return this;
+        }
+
+        SectionWriter putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+            position += bytes.length;
+            return this;
+        }
+
+        SectionWriter putInts(int[] values, int count) throws IOException {
+            return putInts(values, 0, count);
+        }
+
+        SectionWriter putInts(int[] values, int from, int count) throws IOException {
+            int done = 0;
+            while (done < count) {
+                ensure(4);
+                int chunk = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, from + done, chunk);
+                buffer.position(buffer.position() + 4 * chunk);
+                done += chunk;
+            }
+            position += 4L * count;
+            return this;
+        }
+
+        SectionWriter putDoubles(double[] values, int count) throws IOException {
+            return putDoubles(values, 0, count);
+        }
+
+        SectionWriter putDoubles(double[] values, int from, int count) throws IOException {
+            int done = 0;
+            while (done < count) {
+                ensure(8);
+                int chunk = Math.min(count - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, from + done, chunk);
+                buffer.position(buffer.position() + 8 * chunk);
+                done += chunk;
+            }
+            position += 8L * count;
+            return this;
+        }
+
+        SectionWriter align() throws IOException {
+            while ((position & 7) != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+            return this;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
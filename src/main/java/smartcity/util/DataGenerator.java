@@ -1,5 +1,6 @@
 package smartcity.util;
 
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
 import smartcity.model.Edge;
 import org.json.JSONArray;
@@ -315,6 +316,16 @@ public class DataGenerator {
         Files.write(path, json.toString(2).getBytes());
     }
 
+    public void saveGraphToBinary(Graph graph, String filename, int source) throws IOException {
+        int previous = graph.getSource();
+        graph.setSource(source);
+        try {
+            BinaryGraphFile.write(graph, filename);
+        } finally {
+            graph.setSource(previous);
+        }
+    }
+
 
     public Graph generateCustomGraph(int nodes, int edges, boolean hasCycles, boolean isDense) {
         Graph graph = new Graph(nodes, true);
@@ -334,16 +345,25 @@ public class DataGenerator {
         int edgesAdded = graph.getEdgeCount();
         double density = isDense ? 0.4 : 0.1;
 
+        LongIntHashMap existing = new LongIntHashMap(Math.max(16, edges));
+        for (int u = 0; u < nodes; u++) {
+            for (Edge edge : graph.getEdges(u)) {
+                existing.put(LongIntHashMap.pack(u, edge.getTo()), 0);
+            }
+        }
+
         while (edgesAdded < edges) {
             int u = random.nextInt(nodes);
             int v = random.nextInt(nodes);
-            if (u != v && !edgeExists(graph, u, v)) {
+            long key = LongIntHashMap.pack(u, v);
+            if (u != v && !existing.containsKey(key)) {
+                existing.put(key, 0);
                 graph.addEdge(u, v, randomWeight());
                 edgesAdded++;
             }
 
 
-            if (edgesAdded >= nodes * (nodes - 1) * 0.9) {
+            if (edgesAdded >= (double) nodes * (nodes - 1) * 0.9) {
                 break;
             }
         }
@@ -351,12 +371,14 @@ public class DataGenerator {
         return graph;
     }
 
-    private boolean edgeExists(Graph graph, int u, int v) {
-        for (Edge edge : graph.getEdges(u)) {
-            if (edge.getTo() == v) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Million-scale graph in CSR form; see ScalableGraphGenerator. About sccRatio of the vertices
+     * end up in strongly connected components of at most maxComponentSize vertices.
+     */
+    public CSRGraph generateScaleGraph(int nodes, double averageDegree, double sccRatio, int maxComponentSize) {
+        return new ScalableGraphGenerator(nodes, random.nextLong())
+                .setAverageDegree(averageDegree)
+                .setComponentStructure(sccRatio, maxComponentSize)
+                .generate();
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package smartcity.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids ordered by an external double[] of keys, ties broken by the smaller
+ * id. Ids and keys stay primitive, so offer and poll are O(log n) without boxing or comparator
+ * calls. Keys must not change while their id is in the queue; negate them for a max-heap.
+ */
+public final class IntPriorityQueue {
+    private final double[] keys;
+    private int[] heap;
+    private int size;
+
+    public IntPriorityQueue(double[] keys) {
+        this(keys, 16);
+    }
+
+    public IntPriorityQueue(double[] keys, int initialCapacity) {
+        this.keys = keys;
+        this.heap = new int[Math.max(1, initialCapacity)];
+    }
+
+    public void offer(int id) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(id, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = id;
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        return heap[0];
+    }
+
+    public int poll() {
+        int top = peek();
+        int last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], last)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    public double peekKey() { return keys[peek()]; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public void clear() { size = 0; }
+}
@@ -0,0 +1,116 @@
+package smartcity.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative long values (HdrHistogram layout with 7 significant bits,
+ * i.e. under 1% relative error) covering the whole long range in 3712 fixed buckets.
+ *
+ * Each instance has a single writer thread; record() only does plain reads and ordered writes,
+ * so it never allocates or contends. Any thread may read it while it is being written.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    static final int BUCKET_COUNT = SUB_COUNT + (Long.SIZE - 1 - SUB_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    /** Must only be called by the owning thread. */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = bucketIndex(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        count.lazySet(count.get() + 1);
+        total.lazySet(total.get() + value);
+        if (value > max.get()) max.lazySet(value);
+        if (value < min.get()) min.lazySet(value);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.lazySet(i, 0);
+        }
+        count.lazySet(0);
+        total.lazySet(0);
+        max.lazySet(Long.MIN_VALUE);
+        min.lazySet(Long.MAX_VALUE);
+    }
+
+    /** Adds this histogram's current contents to a snapshot under construction. */
+    void addTo(Snapshot snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot.counts[i] += counts.get(i);
+        }
+        snapshot.count += count.get();
+        snapshot.total += total.get();
+        snapshot.max = Math.max(snapshot.max, max.get());
+        snapshot.min = Math.min(snapshot.min, min.get());
+    }
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        addTo(snapshot);
+        return snapshot;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) ((value >>> shift) - HALF_COUNT);
+    }
+
+    // Largest value that lands in the bucket
+    static long highestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+        long sub = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Immutable merged view; percentiles are bucket upper bounds clamped to the exact max. */
+    public static final class Snapshot {
+        private final long[] counts = new long[BUCKET_COUNT];
+        private long count;
+        private long total;
+        private long max = Long.MIN_VALUE;
+        private long min = Long.MAX_VALUE;
+
+        Snapshot() {}
+
+        public long getCount() { return count; }
+        public long getTotal() { return total; }
+        public long getMax() { return count == 0 ? 0 : max; }
+        public long getMin() { return count == 0 ? 0 : min; }
+        public double getMean() { return count == 0 ? 0 : (double) total / count; }
+        public long getP50() { return getValueAtPercentile(50); }
+        public long getP99() { return getValueAtPercentile(99); }
+
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(getMin(), Math.min(highestValue(i), max));
+                }
+            }
+            return max;
+        }
+    }
+}
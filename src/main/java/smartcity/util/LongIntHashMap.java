@@ -0,0 +1,122 @@
+package smartcity.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing long -> int map with linear probing. Keys and values are stored in primitive
+ * arrays, so lookups and inserts neither box nor allocate once the table is large enough.
+ */
+public class LongIntHashMap {
+    private static final long FREE = Long.MIN_VALUE;
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * MIX) >>> shift);
+    }
+
+    public int getOrDefault(long key, int defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == FREE) {
+                return defaultValue;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == FREE) {
+                return false;
+            }
+        }
+    }
+
+    public void put(long key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == FREE) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) {
+                    rehash();
+                }
+                return;
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != FREE) {
+                int i = slot(key);
+                while (keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+}
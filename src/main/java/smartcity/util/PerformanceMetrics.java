@@ -1,39 +1,81 @@
 package smartcity.util;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Process-wide timings and counters, safe to use from any number of threads.
+ *
+ * Every operation keeps one LatencyHistogram per recording thread; snapshots merge them, so
+ * repeated runs build up a distribution (p50 / p99 / max) instead of overwriting each other.
+ * After a thread's first use of an operation, timing it allocates nothing:
+ *
+ *   private static final PerformanceMetrics.Operation SCC = PerformanceMetrics.operation("SCC");
+ *   try (PerformanceMetrics.Scope ignored = SCC.time()) { ... }
+ *
+ * The string-keyed start/end/incrementCount methods remain for existing callers; they only add
+ * a ConcurrentHashMap lookup.
+ */
 public class PerformanceMetrics {
-    private static Map<String, Long> startTimes = new HashMap<>();
-    private static Map<String, Long> endTimes = new HashMap<>();
-    private static Map<String, Long> operationCounts = new HashMap<>();
+    private static final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public static Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static Scope time(String operation) {
+        return operation(operation).time();
+    }
 
     public static void start(String operation) {
-        startTimes.put(operation, System.nanoTime());
+        operation(operation).recorder().push();
     }
 
     public static void end(String operation) {
-        endTimes.put(operation, System.nanoTime());
+        operation(operation).recorder().close();
     }
 
+    /** Most recent duration recorded for the operation on any thread, or -1 if it never ran. */
     public static long getDuration(String operation) {
-        Long start = startTimes.get(operation);
-        Long end = endTimes.get(operation);
-        if (start != null && end != null) {
-            return end - start;
-        }
-        return -1;
+        Operation op = operations.get(operation);
+        return op == null ? -1 : op.getLastDuration();
+    }
+
+    public static LatencyHistogram.Snapshot getSnapshot(String operation) {
+        Operation op = operations.get(operation);
+        return op == null ? new LatencyHistogram.Snapshot() : op.snapshot();
     }
 
     public static void incrementCount(String operation) {
-        operationCounts.put(operation, operationCounts.getOrDefault(operation, 0L) + 1);
+        counter(operation).increment();
+    }
+
+    public static long getCount(String operation) {
+        LongAdder adder = counters.get(operation);
+        return adder == null ? 0 : adder.sum();
     }
 
     public static void printSummary() {
         System.out.println("\n=== Performance Summary ===");
-        for (String operation : startTimes.keySet()) {
-            long duration = getDuration(operation);
-            long count = operationCounts.getOrDefault(operation, 0L);
-            System.out.printf("%s: %d ns", operation, duration);
+        for (Operation op : new TreeMap<>(operations).values()) {
+            LatencyHistogram.Snapshot snapshot = op.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            System.out.printf("%s: %d ns", op.getName(), op.getLastDuration());
+            if (snapshot.getCount() > 1) {
+                System.out.printf(" (runs=%d, p50=%d ns, p99=%d ns, max=%d ns)",
+                        snapshot.getCount(), snapshot.getP50(), snapshot.getP99(), snapshot.getMax());
+            }
+            long count = getCount(op.getName());
             if (count > 0) {
                 System.out.printf(" (%d operations)", count);
             }
@@ -41,9 +83,113 @@ public class PerformanceMetrics {
         }
     }
 
+    /** Zeroes all recorded values; Operation handles held by callers stay valid. */
     public static void resetAll() {
-        startTimes.clear();
-        endTimes.clear();
-        operationCounts.clear();
+        for (Operation op : operations.values()) {
+            op.reset();
+        }
+        for (LongAdder adder : counters.values()) {
+            adder.reset();
+        }
+    }
+
+    /** A timing scope that does not throw from close(). */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<Recorder> local = ThreadLocal.withInitial(this::register);
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        /** Starts timing on the calling thread; the returned scope is the thread's reusable recorder. */
+        public Scope time() {
+            Recorder recorder = local.get();
+            recorder.push();
+            return recorder;
+        }
+
+        public void record(long nanos) {
+            local.get().record(nanos, System.nanoTime());
+        }
+
+        /** Duration of the run that finished last on any thread, or -1. */
+        public long getLastDuration() {
+            long latest = 0;
+            long duration = -1;
+            for (Recorder recorder : recorders) {
+                long end = recorder.lastEnd.get();
+                if (recorder.lastDuration.get() >= 0 && (duration < 0 || end - latest > 0)) {
+                    latest = end;
+                    duration = recorder.lastDuration.get();
+                }
+            }
+            return duration;
+        }
+
+        public LatencyHistogram.Snapshot snapshot() {
+            LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+            for (Recorder recorder : recorders) {
+                recorder.histogram.addTo(snapshot);
+            }
+            return snapshot;
+        }
+
+        Recorder recorder() {
+            return local.get();
+        }
+
+        private Recorder register() {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            return recorder;
+        }
+
+        private void reset() {
+            for (Recorder recorder : recorders) {
+                recorder.histogram.reset();
+                recorder.lastDuration.set(-1);
+            }
+        }
+    }
+
+    // One per (operation, thread), so recording never writes shared state; nested scopes of the
+    // same operation use the start-time stack
+    private static final class Recorder implements Scope {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong lastDuration = new AtomicLong(-1);
+        private final AtomicLong lastEnd = new AtomicLong();
+        private long[] starts = new long[4];
+        private int depth;
+
+        void push() {
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, depth * 2);
+            }
+            starts[depth++] = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (depth == 0) {
+                return;
+            }
+            long end = System.nanoTime();
+            record(end - starts[--depth], end);
+        }
+
+        void record(long duration, long end) {
+            histogram.record(duration);
+            lastDuration.lazySet(duration);
+            lastEnd.lazySet(end);
+        }
     }
-}
\ No newline at end of file
+}
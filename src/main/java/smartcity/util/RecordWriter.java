@@ -0,0 +1,297 @@
+package smartcity.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams flat analysis records (named scalars and numeric arrays) as JSON, NDJSON or CSV.
+ *
+ * Values go straight to the underlying Writer as they are added, so no record, array or table
+ * is ever built as a String; wrap the target in a BufferedWriter. Integers are formatted into a
+ * reusable char buffer, and integral doubles are written without a fraction. Non-finite numbers
+ * become null in JSON and an empty cell in CSV.
+ *
+ * JSON is one array of records, NDJSON one record per line, and CSV the long form
+ * "file,stage,name,index,value" with one row per scalar and per array element.
+ */
+public abstract class RecordWriter implements AutoCloseable {
+    public enum Format { JSON, NDJSON, CSV }
+
+    protected final Writer out;
+    private final char[] digits = new char[20];
+
+    protected RecordWriter(Writer out) {
+        this.out = out;
+    }
+
+    public static RecordWriter create(Format format, Writer out) {
+        switch (format) {
+            case JSON: return new JsonRecordWriter(out, true);
+            case NDJSON: return new JsonRecordWriter(out, false);
+            case CSV: return new CsvRecordWriter(out);
+            default: throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    /** Starts a record; every record carries the file and the stage it belongs to. */
+    public abstract void begin(String file, String stage) throws IOException;
+
+    public abstract void field(String name, long value) throws IOException;
+
+    public abstract void field(String name, double value) throws IOException;
+
+    public abstract void field(String name, String value) throws IOException;
+
+    public abstract void field(String name, boolean value) throws IOException;
+
+    public abstract void array(String name, int[] values) throws IOException;
+
+    public abstract void array(String name, double[] values) throws IOException;
+
+    public abstract void end() throws IOException;
+
+    /** Finishes the output and flushes it; the underlying Writer is left open. */
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+
+    protected void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        long rest = negative ? -value : value;
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    /** Writes a finite value; integral ones as integers. */
+    protected void writeFinite(double value) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            out.write(Double.toString(value));
+        }
+    }
+
+    private static class JsonRecordWriter extends RecordWriter {
+        private final boolean array;
+        private boolean firstRecord = true;
+        private boolean firstField;
+
+        JsonRecordWriter(Writer out, boolean array) {
+            super(out);
+            this.array = array;
+        }
+
+        @Override
+        public void begin(String file, String stage) throws IOException {
+            if (array) {
+                out.write(firstRecord ? "[\n" : ",\n");
+            }
+            firstRecord = false;
+            out.write('{');
+            firstField = true;
+            field("file", file);
+            field("stage", stage);
+        }
+
+        private void name(String name) throws IOException {
+            if (!firstField) {
+                out.write(',');
+            }
+            firstField = false;
+            string(name);
+            out.write(':');
+        }
+
+        private void string(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+
+        private void number(double value) throws IOException {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                out.write("null");
+            } else {
+                writeFinite(value);
+            }
+        }
+
+        @Override
+        public void field(String name, long value) throws IOException {
+            name(name);
+            writeLong(value);
+        }
+
+        @Override
+        public void field(String name, double value) throws IOException {
+            name(name);
+            number(value);
+        }
+
+        @Override
+        public void field(String name, String value) throws IOException {
+            name(name);
+            if (value == null) {
+                out.write("null");
+            } else {
+                string(value);
+            }
+        }
+
+        @Override
+        public void field(String name, boolean value) throws IOException {
+            name(name);
+            out.write(value ? "true" : "false");
+        }
+
+        @Override
+        public void array(String name, int[] values) throws IOException {
+            name(name);
+            out.write('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                writeLong(values[i]);
+            }
+            out.write(']');
+        }
+
+        @Override
+        public void array(String name, double[] values) throws IOException {
+            name(name);
+            out.write('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                number(values[i]);
+            }
+            out.write(']');
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.write(array ? "}" : "}\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (array) {
+                out.write(firstRecord ? "[]\n" : "\n]\n");
+            }
+            super.close();
+        }
+    }
+
+    private static class CsvRecordWriter extends RecordWriter {
+        private boolean header = true;
+        private String prefix;
+
+        CsvRecordWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void begin(String file, String stage) throws IOException {
+            if (header) {
+                out.write("file,stage,name,index,value\n");
+                header = false;
+            }
+            prefix = cell(file) + ',' + cell(stage) + ',';
+        }
+
+        private static String cell(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        private void row(String name, int index) throws IOException {
+            out.write(prefix);
+            out.write(cell(name));
+            out.write(',');
+            if (index >= 0) {
+                writeLong(index);
+            }
+            out.write(',');
+        }
+
+        private void number(double value) throws IOException {
+            if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+                writeFinite(value);
+            }
+        }
+
+        @Override
+        public void field(String name, long value) throws IOException {
+            row(name, -1);
+            writeLong(value);
+            out.write('\n');
+        }
+
+        @Override
+        public void field(String name, double value) throws IOException {
+            row(name, -1);
+            number(value);
+            out.write('\n');
+        }
+
+        @Override
+        public void field(String name, String value) throws IOException {
+            row(name, -1);
+            if (value != null) {
+                out.write(cell(value));
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void field(String name, boolean value) throws IOException {
+            row(name, -1);
+            out.write(value ? "true" : "false");
+            out.write('\n');
+        }
+
+        @Override
+        public void array(String name, int[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                row(name, i);
+                writeLong(values[i]);
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public void array(String name, double[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                row(name, i);
+                number(values[i]);
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package smartcity.util;
+
+import smartcity.model.CSRGraph;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generator for directed graphs with millions of vertices and up to ~10^9 edges.
+ *
+ * Vertices are split into fixed-size shards of consecutive source vertices. Each shard draws its
+ * edges with its own seed derived from (seed, shard index), so the output is identical for any
+ * number of threads. Within a shard every candidate (u, v) pair has an index; Erdős–Rényi edges
+ * are picked by geometric skips over those indices (cost proportional to the edges, not to n^2),
+ * and exact edge counts are drawn uniformly with a primitive hash set rejecting duplicates.
+ *
+ * With setComponentStructure the vertices are cut into consecutive blocks; every block of two or
+ * more vertices is closed by a cycle and random edges never point to an earlier block, so the
+ * strongly connected components are exactly those blocks.
+ */
+public class ScalableGraphGenerator {
+    public static final int DEFAULT_SHARD_SIZE = 1 << 16;
+
+    private final int n;
+    private final long seed;
+    private double averageDegree = 4;
+    private long edgeCount = -1;
+    private double sccRatio = -1;
+    private int maxComponentSize = 1;
+    private int maxWeight = 10;
+    private int shardSize = DEFAULT_SHARD_SIZE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // Filled by prepare()
+    private int[] boundaries;
+    private long[] shardPairs;
+    private int[] shardQuota;
+    private long totalPairs;
+    private long cycleEdges;
+    private double probability;
+
+    public ScalableGraphGenerator(int n, long seed) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Vertex count must be positive: " + n);
+        }
+        this.n = n;
+        this.seed = seed;
+    }
+
+    /** Erdős–Rényi mode: every allowed pair becomes an edge with the probability giving this mean out-degree. */
+    public ScalableGraphGenerator setAverageDegree(double averageDegree) {
+        if (averageDegree < 0) {
+            throw new IllegalArgumentException("Average degree must be non-negative: " + averageDegree);
+        }
+        this.averageDegree = averageDegree;
+        this.edgeCount = -1;
+        this.boundaries = null;
+        return this;
+    }
+
+    /** Exact mode: exactly this many distinct edges (cycle edges included). */
+    public ScalableGraphGenerator setEdgeCount(long edgeCount) {
+        if (edgeCount < 0) {
+            throw new IllegalArgumentException("Edge count must be non-negative: " + edgeCount);
+        }
+        this.edgeCount = edgeCount;
+        this.boundaries = null;
+        return this;
+    }
+
+    /**
+     * Puts about sccRatio of the vertices into strongly connected components of 2..maxComponentSize
+     * vertices; the rest stay singletons and the condensation is a DAG.
+     */
+    public ScalableGraphGenerator setComponentStructure(double sccRatio, int maxComponentSize) {
+        if (sccRatio < 0 || sccRatio > 1) {
+            throw new IllegalArgumentException("SCC ratio must be in [0, 1]: " + sccRatio);
+        }
+        this.sccRatio = sccRatio;
+        this.maxComponentSize = maxComponentSize;
+        this.boundaries = null;
+        return this;
+    }
+
+    public ScalableGraphGenerator setMaxWeight(int maxWeight) {
+        this.maxWeight = maxWeight;
+        return this;
+    }
+
+    public ScalableGraphGenerator setShardSize(int shardSize) {
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("Shard size must be positive: " + shardSize);
+        }
+        this.shardSize = shardSize;
+        this.boundaries = null;
+        return this;
+    }
+
+    public ScalableGraphGenerator setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /** Component block boundaries (block i is [b[i], b[i + 1])), or null without setComponentStructure. */
+    public int[] getComponentBoundaries() {
+        prepare();
+        return sccRatio < 0 ? null : boundaries;
+    }
+
+    public CSRGraph generate() {
+        prepare();
+        int shardCount = shardPairs.length - 1;
+        List<ForkJoinTask<Shard>> tasks = new ArrayList<>(shardCount);
+        for (int s = 0; s < shardCount; s++) {
+            int index = s;
+            tasks.add(pool.submit(() -> generateShard(index)));
+        }
+
+        Shard[] shards = new Shard[shardCount];
+        long m = 0;
+        for (int s = 0; s < shardCount; s++) {
+            shards[s] = tasks.get(s).join();
+            m += shards[s].size();
+        }
+        if (m > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Edge count " + m + " exceeds the int-indexed CSR limit");
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[(int) m];
+        double[] weights = new double[(int) m];
+        int pos = 0;
+        for (int s = 0; s < shardCount; s++) {
+            Shard shard = shards[s];
+            int lo = s * shardSize;
+            for (int r = 0; r < shard.rows; r++) {
+                offsets[lo + r + 1] = pos + shard.offsets[r + 1];
+            }
+            System.arraycopy(shard.targets, 0, targets, pos, shard.size());
+            System.arraycopy(shard.weights, 0, weights, pos, shard.size());
+            pos += shard.size();
+            shards[s] = null;
+        }
+
+        CSRGraph csr = new CSRGraph(n, offsets, targets, weights, true);
+        csr.setWeightModel("edge");
+        csr.setSource(0);
+        return csr;
+    }
+
+    /**
+     * Streams the graph into a BinaryGraphFile without materializing it: shards are generated
+     * ahead by at most twice the pool parallelism and written in order as they complete.
+     */
+    public long writeBinary(String filename) throws IOException {
+        prepare();
+        int shardCount = shardPairs.length - 1;
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<ForkJoinTask<Shard>> inFlight = new ArrayDeque<>();
+
+        try (BinaryGraphFile.StreamWriter writer = new BinaryGraphFile.StreamWriter(filename, n, true, "edge", 0)) {
+            int submitted = 0;
+            for (int s = 0; s < shardCount; s++) {
+                while (submitted < shardCount && inFlight.size() < window) {
+                    int index = submitted++;
+                    inFlight.add(pool.submit(() -> generateShard(index)));
+                }
+                Shard shard = inFlight.poll().join();
+                writer.appendRows(shard.rows, shard.offsets, shard.targets, shard.weights);
+            }
+            return writer.getEdgeCount();
+        } finally {
+            for (ForkJoinTask<Shard> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    // Sequential O(n) pass: component blocks, candidate pairs per shard and the sampling rate
+    private void prepare() {
+        if (boundaries != null) {
+            return;
+        }
+
+        int[] blocks = new int[Math.min(n, 1 << 16) + 1];
+        int count = 0;
+        if (sccRatio < 0) {
+            blocks = new int[] {0, n};
+            count = 1;
+        } else {
+            SplittableRandom random = new SplittableRandom(seed);
+            double meanSize = (2 + maxComponentSize) / 2.0;
+            double blockProbability = maxComponentSize < 2 ? 0
+                    : sccRatio >= 1 ? 1 : sccRatio / (sccRatio + meanSize * (1 - sccRatio));
+            int start = 0;
+            while (start < n) {
+                int size = random.nextDouble() < blockProbability ? 2 + random.nextInt(maxComponentSize - 1) : 1;
+                if (count + 1 == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, Math.min(n + 1, blocks.length * 2));
+                }
+                blocks[count++] = start;
+                start = Math.min(n, start + size);
+            }
+            blocks[count] = n;
+        }
+        int[] bounds = Arrays.copyOf(blocks, count + 1);
+
+        int shardCount = (n + shardSize - 1) / shardSize;
+        long[] pairs = new long[shardCount + 1];
+        long[] usable = new long[shardCount];
+        long cycles = 0;
+        boolean constrained = sccRatio >= 0;
+        for (int b = 0; b < count; b++) {
+            int lo = bounds[b];
+            int hi = bounds[b + 1];
+            if (constrained && hi - lo > 1) {
+                cycles += hi - lo;
+            }
+            long perVertex = n - (constrained ? lo : 0) - 1L;
+            long successors = constrained && hi - lo > 1 ? 1 : 0;
+            for (int u = lo; u < hi; u++) {
+                pairs[u / shardSize + 1] += perVertex;
+                usable[u / shardSize] += perVertex - successors;
+            }
+        }
+        for (int s = 0; s < shardCount; s++) {
+            pairs[s + 1] += pairs[s];
+        }
+
+        this.totalPairs = pairs[shardCount];
+        this.cycleEdges = cycles;
+        if (edgeCount >= 0) {
+            long random = edgeCount - cycles;
+            if (random < 0 || random > (totalPairs - cycles) / 2) {
+                throw new IllegalArgumentException("Edge count " + edgeCount + " must lie in [" + cycles + ", "
+                        + (cycles + (totalPairs - cycles) / 2) + "]; use setAverageDegree for denser graphs");
+            }
+            this.shardQuota = apportion(random, usable, totalPairs - cycles);
+        } else {
+            double wanted = averageDegree * n - cycles;
+            this.probability = totalPairs == 0 ? 0 : Math.min(1, Math.max(0, wanted / totalPairs));
+        }
+        this.shardPairs = pairs;
+        this.boundaries = bounds;
+    }
+
+    // Largest-remainder split of the random edges in proportion to each shard's usable pairs
+    // (candidates minus cycle successors), never giving a shard more than it can hold
+    private static int[] apportion(long edges, long[] usable, long totalUsable) {
+        int shardCount = usable.length;
+        long[] quota = new long[shardCount];
+        double[] remainder = new double[shardCount];
+        long left = edges;
+        for (int s = 0; s < shardCount && totalUsable > 0; s++) {
+            double ideal = (double) edges * usable[s] / totalUsable;
+            quota[s] = Math.min(usable[s], (long) ideal);
+            remainder[s] = ideal - quota[s];
+            left -= quota[s];
+        }
+
+        Integer[] byRemainder = new Integer[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            byRemainder[s] = s;
+        }
+        Arrays.sort(byRemainder, (a, b) -> remainder[a] != remainder[b]
+                ? Double.compare(remainder[b], remainder[a]) : Integer.compare(a, b));
+        // Rounding can leave the floors a few edges off in either direction; settle them one per shard
+        while (left > 0) {
+            for (int k = 0; k < shardCount && left > 0; k++) {
+                int s = byRemainder[k];
+                if (quota[s] < usable[s]) {
+                    quota[s]++;
+                    left--;
+                }
+            }
+        }
+        while (left < 0) {
+            for (int k = shardCount - 1; k >= 0 && left < 0; k--) {
+                int s = byRemainder[k];
+                if (quota[s] > 0) {
+                    quota[s]--;
+                    left++;
+                }
+            }
+        }
+
+        int[] result = new int[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            if (quota[s] > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Shard " + s + " would hold " + quota[s] + " edges; use a smaller shard size");
+            }
+            result[s] = (int) quota[s];
+        }
+        return result;
+    }
+
+    private Shard generateShard(int index) {
+        int lo = index * shardSize;
+        int rows = Math.min(shardSize, n - lo);
+        SplittableRandom random = new SplittableRandom(mix(seed, index));
+
+        // Per-row candidate window [rowStart, n) minus u itself, cycle successor and pair-index prefix
+        int[] rowStart = new int[rows];
+        int[] successor = new int[rows];
+        long[] prefix = new long[rows + 1];
+        boolean constrained = sccRatio >= 0;
+        int block = Arrays.binarySearch(boundaries, lo);
+        if (block < 0) block = -block - 2;
+        for (int r = 0; r < rows; r++) {
+            int u = lo + r;
+            while (boundaries[block + 1] <= u) block++;
+            int start = boundaries[block];
+            int end = boundaries[block + 1];
+            rowStart[r] = constrained ? start : 0;
+            successor[r] = constrained && end - start > 1 ? (u + 1 < end ? u + 1 : start) : -1;
+            prefix[r + 1] = prefix[r] + (n - rowStart[r] - 1);
+        }
+
+        return edgeCount >= 0
+                ? sampleExact(index, lo, rows, random, rowStart, successor, prefix)
+                : sampleGeometric(lo, rows, random, rowStart, successor, prefix);
+    }
+
+    private Shard sampleGeometric(int lo, int rows, SplittableRandom random,
+                                  int[] rowStart, int[] successor, long[] prefix) {
+        int expected = (int) Math.min(Integer.MAX_VALUE - 8, probability * prefix[rows] * 1.05 + rows + 16);
+        Shard shard = new Shard(rows, expected);
+        double logQ = Math.log1p(-probability);
+        long next = skip(-1, random, logQ);
+
+        for (int r = 0; r < rows; r++) {
+            int u = lo + r;
+            shard.offsets[r] = shard.size;
+            if (successor[r] >= 0) {
+                shard.add(successor[r], weight(random));
+            }
+            while (next < prefix[r + 1]) {
+                int v = target(u, rowStart[r], next - prefix[r]);
+                if (v != successor[r]) {
+                    shard.add(v, weight(random));
+                }
+                next = skip(next, random, logQ);
+            }
+        }
+        shard.offsets[rows] = shard.size;
+        return shard;
+    }
+
+    private Shard sampleExact(int index, int lo, int rows, SplittableRandom random,
+                              int[] rowStart, int[] successor, long[] prefix) {
+        // Quota fixed by prepare(), at most the shard's usable pairs, so the loop always finishes
+        int quota = shardQuota[index];
+
+        LongIntHashMap seen = new LongIntHashMap(quota);
+        int[] pickRow = new int[quota];
+        int[] pickTarget = new int[quota];
+        int[] rowCount = new int[rows + 1];
+        int drawn = 0;
+        while (drawn < quota) {
+            long pair = random.nextLong(prefix[rows]);
+            if (seen.containsKey(pair)) {
+                continue;
+            }
+            int r = Arrays.binarySearch(prefix, pair);
+            r = r >= 0 ? r : -r - 2;
+            while (prefix[r + 1] == pair) r++;
+            int v = target(lo + r, rowStart[r], pair - prefix[r]);
+            if (v == successor[r]) {
+                continue;
+            }
+            seen.put(pair, 0);
+            pickRow[drawn] = r;
+            pickTarget[drawn] = v;
+            rowCount[r + 1]++;
+            drawn++;
+        }
+
+        Shard shard = new Shard(rows, quota + rows);
+        for (int r = 0; r < rows; r++) {
+            if (successor[r] >= 0) rowCount[r + 1]++;
+            shard.offsets[r + 1] = shard.offsets[r] + rowCount[r + 1];
+        }
+        int[] cursor = Arrays.copyOf(shard.offsets, rows);
+        for (int r = 0; r < rows; r++) {
+            if (successor[r] >= 0) {
+                shard.set(cursor[r]++, successor[r], weight(random));
+            }
+        }
+        for (int i = 0; i < quota; i++) {
+            shard.set(cursor[pickRow[i]]++, pickTarget[i], weight(random));
+        }
+        shard.size = shard.offsets[rows];
+        return shard;
+    }
+
+    // k-th candidate of row u: vertices rowStart .. n - 1 with u itself left out
+    private static int target(int u, int rowStart, long k) {
+        int v = (int) (rowStart + k);
+        return v >= u ? v + 1 : v;
+    }
+
+    private long skip(long position, SplittableRandom random, double logQ) {
+        if (probability >= 1) {
+            return position + 1;
+        }
+        if (probability <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double jump = Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+        return jump >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : position + 1 + (long) jump;
+    }
+
+    private double weight(SplittableRandom random) {
+        return 1 + random.nextInt(maxWeight);
+    }
+
+    private static long mix(long seed, int shard) {
+        long z = seed + 0x9E3779B97F4A7C15L * (shard + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class Shard {
+        final int rows;
+        final int[] offsets;
+        int[] targets;
+        double[] weights;
+        int size;
+
+        Shard(int rows, int capacity) {
+            this.rows = rows;
+            this.offsets = new int[rows + 1];
+            this.targets = new int[Math.max(16, capacity)];
+            this.weights = new double[targets.length];
+        }
+
+        void add(int v, double w) {
+            if (size == targets.length) {
+                int capacity = targets.length + (targets.length >> 1);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            targets[size] = v;
+            weights[size] = w;
+            size++;
+        }
+
+        void set(int pos, int v, double w) {
+            targets[pos] = v;
+            weights[pos] = w;
+        }
+
+        int size() { return size; }
+    }
+}
@@ -0,0 +1,391 @@
+package smartcity.util;
+
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pull parser for the {n, directed, weight_model, source, edges:[{u,v,w}]} graph schema.
+ *
+ * Bytes are pulled through a fixed 64 KB buffer and every edge goes straight into a
+ * CSRGraph.Builder, so apart from the graph itself memory use does not grow with the file.
+ * Top-level keys may appear in any order (DataGenerator writes "n" after "edges"); unknown
+ * keys are skipped.
+ */
+public class StreamingJSONParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final StringBuilder text = new StringBuilder();
+    private ReadableByteChannel channel;
+    private long offset;
+
+    public CSRGraph parseCSR(String filename) throws IOException {
+        return read(filename).build();
+    }
+
+    public Graph parseGraph(String filename) throws IOException {
+        return read(filename).toGraph();
+    }
+
+    public CSRGraph.Builder read(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + filename);
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(file);
+        }
+    }
+
+    public CSRGraph.Builder read(ReadableByteChannel source) throws IOException {
+        this.channel = source;
+        this.offset = 0;
+        buffer.clear().flip();
+
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        boolean hasN = false;
+        boolean hasDirected = false;
+        boolean hasEdges = false;
+
+        expect('{');
+        if (peekToken() == '}') {
+            next();
+        } else {
+            do {
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "n":
+                        builder.setN(readInt());
+                        hasN = true;
+                        break;
+                    case "directed":
+                        builder.setDirected(readBoolean());
+                        hasDirected = true;
+                        break;
+                    case "weight_model":
+                        builder.setWeightModel(readString());
+                        break;
+                    case "source":
+                        builder.setSource(readInt());
+                        break;
+                    case "edges":
+                        readEdges(builder);
+                        hasEdges = true;
+                        break;
+                    default:
+                        skipValue();
+                }
+            } while (nextSeparator('}'));
+        }
+        if (peekToken() != -1) {
+            throw error("unexpected data after the graph object");
+        }
+
+        if (!hasN || !hasDirected || !hasEdges) {
+            throw new IOException("Graph JSON must contain \"n\", \"directed\" and \"edges\"");
+        }
+        channel = null;
+        return builder;
+    }
+
+    private void readEdges(CSRGraph.Builder builder) throws IOException {
+        expect('[');
+        if (peekToken() == ']') {
+            next();
+            return;
+        }
+        do {
+            expect('{');
+            int u = -1;
+            int v = -1;
+            double w = Double.NaN;
+            if (peekToken() == '}') {
+                next();
+            } else {
+                do {
+                    int key = readEdgeKey();
+                    expect(':');
+                    if (key == 'u') u = readInt();
+                    else if (key == 'v') v = readInt();
+                    else if (key == 'w') w = readNumber();
+                    else skipValue();
+                } while (nextSeparator('}'));
+            }
+            if (u < 0 || v < 0 || Double.isNaN(w)) {
+                throw error("edge needs non-negative \"u\", \"v\" and a numeric \"w\"");
+            }
+            builder.addEdge(u, v, w);
+        } while (nextSeparator(']'));
+    }
+
+    // Returns the single-character key of an edge field, or 0 for anything longer; never allocates
+    private int readEdgeKey() throws IOException {
+        expect('"');
+        int first = next();
+        if (first == '"') {
+            return 0;
+        }
+        int second = next();
+        if (second == '"' && first != '\\') {
+            return first;
+        }
+        int c = second;
+        boolean escaped = first == '\\';
+        while (escaped || c != '"') {
+            escaped = !escaped && c == '\\';
+            c = next();
+        }
+        return 0;
+    }
+
+    // Consumes ',' (returns true) or the closing bracket (returns false)
+    private boolean nextSeparator(char close) throws IOException {
+        int c = nextToken();
+        if (c == ',') {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw error("expected ',' or '" + close + "'");
+    }
+
+    private String readString() throws IOException {
+        if (peekToken() == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            int c = next();
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == '\\') {
+                int e = next();
+                switch (e) {
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            code = code * 16 + Character.digit(next(), 16);
+                        }
+                        text.append((char) code);
+                        break;
+                    default: text.append((char) e);
+                }
+            } else if (c < 0x80) {
+                text.append((char) c);
+            } else {
+                appendUtf8(c);
+            }
+        }
+    }
+
+    private void appendUtf8(int lead) throws IOException {
+        int extra = lead >= 0xF0 ? 3 : lead >= 0xE0 ? 2 : 1;
+        int code = lead & (0x3F >> extra);
+        for (int i = 0; i < extra; i++) {
+            code = (code << 6) | (next() & 0x3F);
+        }
+        text.appendCodePoint(code);
+    }
+
+    private boolean readBoolean() throws IOException {
+        if (peekToken() == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        expectLiteral("false");
+        return false;
+    }
+
+    private int readInt() throws IOException {
+        double value = readNumber();
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("expected an integer but got " + value);
+        }
+        return (int) value;
+    }
+
+    // Exact for up to 15 significant digits and |exponent| <= 22 (mantissa and power of ten are
+    // both exact doubles, so one IEEE operation rounds correctly); otherwise falls back to the JDK
+    private double readNumber() throws IOException {
+        int c = nextToken();
+        boolean negative = c == '-';
+        if (negative) {
+            c = next();
+        }
+        if (c < '0' || c > '9') {
+            throw error("expected a number");
+        }
+
+        text.setLength(0);
+        if (negative) text.append('-');
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        while (c >= '0' && c <= '9') {
+            text.append((char) c);
+            if (mantissa != 0 || c != '0') digits++;
+            mantissa = mantissa * 10 + (c - '0');
+            c = peek();
+            if (c >= '0' && c <= '9') next();
+        }
+        if (c == '.') {
+            next();
+            text.append('.');
+            c = next();
+            if (c < '0' || c > '9') {
+                throw error("expected a digit after '.'");
+            }
+            while (c >= '0' && c <= '9') {
+                text.append((char) c);
+                if (mantissa != 0 || c != '0') digits++;
+                mantissa = mantissa * 10 + (c - '0');
+                scale++;
+                c = peek();
+                if (c >= '0' && c <= '9') next();
+            }
+        }
+        int exponent = 0;
+        if (c == 'e' || c == 'E') {
+            next();
+            text.append('e');
+            c = next();
+            boolean negativeExponent = c == '-';
+            if (c == '-' || c == '+') {
+                text.append((char) c);
+                c = next();
+            }
+            if (c < '0' || c > '9') {
+                throw error("expected a digit in the exponent");
+            }
+            while (c >= '0' && c <= '9') {
+                text.append((char) c);
+                exponent = Math.min(exponent * 10 + (c - '0'), 100_000);
+                c = peek();
+                if (c >= '0' && c <= '9') next();
+            }
+            if (negativeExponent) exponent = -exponent;
+        }
+
+        int power = exponent - scale;
+        if (digits <= 15 && Math.abs(power) <= 22) {
+            double value = power >= 0 ? mantissa * POWERS_OF_TEN[power] : mantissa / POWERS_OF_TEN[-power];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text.toString());
+    }
+
+    private void skipValue() throws IOException {
+        int c = peekToken();
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            do {
+                c = next();
+                if (inString) {
+                    if (escaped) escaped = false;
+                    else if (c == '\\') escaped = true;
+                    else if (c == '"') inString = false;
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else if (c == 't' || c == 'f') {
+            readBoolean();
+        } else if (c == 'n') {
+            expectLiteral("null");
+        } else {
+            readNumber();
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        skipWhitespace();
+        for (int i = 0; i < literal.length(); i++) {
+            if (next() != literal.charAt(i)) {
+                throw error("expected " + literal);
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextToken() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    private int nextToken() throws IOException {
+        skipWhitespace();
+        return next();
+    }
+
+    private int peekToken() throws IOException {
+        skipWhitespace();
+        return peek();
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            next();
+            c = peek();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private int next() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            throw error("unexpected end of input");
+        }
+        offset++;
+        return buffer.get() & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed graph JSON at byte " + offset + ": " + message);
+    }
+}
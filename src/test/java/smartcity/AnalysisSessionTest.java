@@ -0,0 +1,128 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.Vertex;
+import smartcity.graph.AnalysisSession;
+import smartcity.graph.dagsp.CriticalPathMethod;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.topo.KahnTopological;
+import java.util.*;
+
+public class AnalysisSessionTest {
+
+    private static Graph randomGraph(int n, int edges, boolean cycles, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph(n, true);
+        graph.initializeSmartCityVertices();
+        for (int i = 0; i < edges; i++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if (u != v && (u < v || (cycles && random.nextInt(10) == 0))) {
+                graph.addEdge(u, v, 1 + random.nextInt(9));
+            }
+        }
+        return graph;
+    }
+
+    private static boolean respectsEdges(CSRGraph graph, int[] order) {
+        int[] position = new int[graph.getN()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) position[order[i]] = i;
+        for (int u = 0; u < graph.getN(); u++) {
+            for (int i = graph.edgeStart(u); i < graph.edgeEnd(u); i++) {
+                if (position[u] < 0 || position[u] >= position[graph.target(i)]) return false;
+            }
+        }
+        return order.length == graph.getN();
+    }
+
+    @Test
+    public void testIntermediatesComputedOnce() {
+        Graph graph = randomGraph(200, 600, true, 5);
+        AnalysisSession session = new AnalysisSession(graph);
+        session.condensation();
+        session.taskOrder();
+        session.levels();
+        session.criticalPathMethod();
+        session.condensationShortestPath(0, -1);
+        long computations = session.getComputations();
+
+        assertSame(session.sccs(), session.sccs());
+        assertSame(session.condensationOrder(), session.condensationOrder());
+        session.condensation();
+        session.taskOrder();
+        session.levels();
+        session.criticalPathMethod();
+        session.condensationShortestPath(0, -1);
+        assertEquals(computations, session.getComputations());
+
+        // A new edge invalidates everything
+        int[] before = session.condensationOrder();
+        graph.addEdge(0, 199, 1);
+        assertNotSame(before, session.condensationOrder());
+        assertTrue(session.getComputations() > computations);
+    }
+
+    @Test
+    public void testSetVertexInvalidatesCriticalPath() {
+        Graph graph = new Graph(3, true);
+        graph.addEdge(0, 1, 0);
+        graph.addEdge(1, 2, 0);
+        AnalysisSession session = new AnalysisSession(graph);
+        assertEquals(3.0, session.criticalPathMethod().projectDuration, 1e-9);
+
+        graph.setVertex(1, new Vertex(1, "Task_1", "repair", 5.0, 1));
+        assertEquals(7.0, session.criticalPathMethod().projectDuration, 1e-9);
+
+        graph.initializeSmartCityVertices();
+        assertEquals(graph.getVertexDuration(0) + graph.getVertexDuration(1) + graph.getVertexDuration(2),
+                session.criticalPathMethod().projectDuration, 1e-9);
+    }
+
+    @Test
+    public void testAgreesWithStandaloneAlgorithms() {
+        for (boolean cycles : new boolean[]{false, true}) {
+            Graph graph = randomGraph(300, 900, cycles, cycles ? 7 : 8);
+            AnalysisSession session = new AnalysisSession(graph);
+            KahnTopological kahn = new KahnTopological();
+            assertEquals(kahn.isDAG(graph), session.isDAG());
+            assertEquals(!cycles, session.isDAG());
+
+            CSRGraph components = session.componentGraph();
+            assertTrue(respectsEdges(components, session.condensationOrder()));
+            int[] levels = session.levels();
+            for (int u = 0; u < components.getN(); u++) {
+                for (int i = components.edgeStart(u); i < components.edgeEnd(u); i++) {
+                    assertTrue(levels[u] < levels[components.target(i)]);
+                }
+            }
+
+            CriticalPathMethod.Result expected = new CriticalPathMethod().analyzeCondensation(graph);
+            CriticalPathMethod.Result actual = session.criticalPathMethod();
+            assertEquals(expected.projectDuration, actual.projectDuration, 1e-9);
+            assertArrayEquals(expected.latestStart, actual.latestStart, 1e-9);
+
+            int source = session.componentIds()[0];
+            DAGShortestPath.Result sp = new DAGShortestPath()
+                    .findShortestPath(session.condensation().getCondensationGraph(), source, -1);
+            assertArrayEquals(sp.distances, session.condensationShortestPath(source, -1).distances, 1e-9);
+
+            if (!cycles) {
+                assertTrue(respectsEdges(graph.toCSR(), session.topologicalOrder()));
+                DAGShortestPath.Result direct = new DAGShortestPath().findShortestPath(graph, 0, -1);
+                assertArrayEquals(direct.distances, session.shortestPath(0, -1).distances, 1e-9);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTopologicalOrderOfCyclicGraph() {
+        Graph graph = new Graph(2, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 0, 1);
+        new AnalysisSession(graph).topologicalOrder();
+    }
+}
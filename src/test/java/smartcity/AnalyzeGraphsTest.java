@@ -0,0 +1,138 @@
+package smartcity;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import smartcity.model.Graph;
+import smartcity.graph.AnalysisSession;
+import smartcity.util.DataGenerator;
+import smartcity.util.RecordWriter;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class AnalyzeGraphsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path taskGraph() throws Exception {
+        // Cycle 1->2->3->1, chain 4->5->6->7, isolated 0; source 4
+        Graph graph = new Graph(8, true);
+        graph.addEdge(0, 1, 3);
+        graph.addEdge(1, 2, 2);
+        graph.addEdge(2, 3, 4);
+        graph.addEdge(3, 1, 1);
+        graph.addEdge(4, 5, 2);
+        graph.addEdge(5, 6, 5);
+        graph.addEdge(6, 7, 1);
+        File file = folder.newFile("task.json");
+        new DataGenerator(1).saveGraphToJSON(graph, file.getPath(), 4);
+        return file.toPath();
+    }
+
+    private static String run(AnalyzeGraphs cli, RecordWriter.Format format, List<Path> files) throws Exception {
+        StringWriter text = new StringWriter();
+        try (RecordWriter out = RecordWriter.create(format, text)) {
+            cli.run(files, out);
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testNdjsonRecords() throws Exception {
+        Path file = taskGraph();
+        AnalyzeGraphs cli = new AnalyzeGraphs(AnalyzeGraphs.parseStages("all"), false);
+        String[] lines = run(cli, RecordWriter.Format.NDJSON, Collections.singletonList(file)).split("\n");
+        assertEquals(6, lines.length);
+
+        Map<String, JSONObject> records = new HashMap<>();
+        for (String line : lines) {
+            JSONObject record = new JSONObject(line);
+            assertEquals(file.toString(), record.getString("file"));
+            records.put(record.getString("stage"), record);
+        }
+        AnalysisSession session = new AnalysisSession(BatchAnalysis.loadGraph(file));
+
+        JSONObject scc = records.get("scc");
+        assertEquals(6, scc.getInt("components"));
+        assertEquals(3, scc.getInt("largestComponent"));
+        assertFalse(scc.getBoolean("dag"));
+        assertEquals(8, scc.getJSONArray("componentId").length());
+
+        assertEquals(4, records.get("condensation").getInt("edges"));
+        assertEquals(6, records.get("topo").getJSONArray("componentOrder").length());
+
+        // Cyclic graph: distances are between components, unreachable ones are null
+        JSONObject sp = records.get("sp");
+        assertEquals("components", sp.getString("over"));
+        assertEquals(8, sp.getInt("farthest"));
+        JSONArray distances = sp.getJSONArray("distances");
+        assertTrue(distances.isNull(session.componentIds()[0]));
+        assertEquals(0, distances.getInt(session.componentIds()[4]));
+
+        JSONObject critical = records.get("critical");
+        assertEquals(session.criticalPathMethod().projectDuration, critical.getDouble("projectDuration"), 1e-9);
+        assertEquals(critical.getInt("pathLength"), critical.getJSONArray("criticalPath").length());
+
+        JSONObject stats = new JSONObject(lines[lines.length - 1]);
+        assertEquals("stats", stats.getString("stage"));
+        assertEquals(8, stats.getInt("vertices"));
+        assertTrue(stats.has("criticalMs"));
+        assertTrue(stats.has("componentsMs"));
+        assertTrue(stats.has("orderMs"));
+    }
+
+    @Test
+    public void testJsonAndCsvWithQuietAndFailures() throws Exception {
+        Path file = taskGraph();
+        Path broken = folder.newFile("broken.json").toPath();
+        Files.write(broken, "{\"n\": 3, \"edges\": [".getBytes());
+        List<Path> files = Arrays.asList(file, broken);
+
+        AnalyzeGraphs cli = new AnalyzeGraphs(AnalyzeGraphs.parseStages("scc,critical"), true);
+        JSONArray records = new JSONArray(run(cli, RecordWriter.Format.JSON, files));
+        assertEquals(3, records.length());
+        assertEquals("scc", records.getJSONObject(0).getString("stage"));
+        assertFalse(records.getJSONObject(0).has("componentId"));
+        assertEquals("critical", records.getJSONObject(1).getString("stage"));
+        assertEquals("error", records.getJSONObject(2).getString("stage"));
+
+        String csv = run(cli, RecordWriter.Format.CSV, Collections.singletonList(file));
+        assertTrue(csv.startsWith("file,stage,name,index,value\n"));
+        assertTrue(csv.contains(file + ",scc,components,,6\n"));
+        assertFalse(csv.contains("stats"));
+
+        // Arrays become one row per element
+        String detailed = run(new AnalyzeGraphs(EnumSet.of(AnalyzeGraphs.Stage.SCC), false),
+                RecordWriter.Format.CSV, Collections.singletonList(file));
+        assertTrue(detailed.contains(file + ",scc,componentId,7,"));
+
+        assertEquals("[]\n", run(cli, RecordWriter.Format.JSON, Collections.emptyList()));
+    }
+
+    @Test
+    public void testSharedPassesTimedApart() throws Exception {
+        Path file = taskGraph();
+        String[] lines = run(new AnalyzeGraphs(AnalyzeGraphs.parseStages("scc,stats"), true),
+                RecordWriter.Format.NDJSON, Collections.singletonList(file)).split("\n");
+        JSONObject stats = new JSONObject(lines[lines.length - 1]);
+        assertTrue(stats.has("componentsMs"));
+        assertTrue(stats.has("sccMs"));
+        assertFalse(stats.has("orderMs"));
+
+        lines = run(new AnalyzeGraphs(AnalyzeGraphs.parseStages("stats"), true),
+                RecordWriter.Format.NDJSON, Collections.singletonList(file)).split("\n");
+        assertEquals(1, lines.length);
+        assertFalse(new JSONObject(lines[0]).has("componentsMs"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStage() {
+        AnalyzeGraphs.parseStages("scc,layout");
+    }
+}
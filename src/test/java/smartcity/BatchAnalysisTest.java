@@ -0,0 +1,58 @@
+package smartcity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import smartcity.model.Graph;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.util.DataGenerator;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class BatchAnalysisTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBatchContinuesPastFailures() throws Exception {
+        DataGenerator generator = new DataGenerator(23);
+        List<Graph> graphs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Graph graph = generator.generateCustomGraph(20 + 10 * i, 40 + 25 * i, i % 2 == 0, false);
+            graphs.add(graph);
+            File file = folder.newFile(String.format("graph_%02d.json", i));
+            generator.saveGraphToJSON(graph, file.getPath(), 0);
+        }
+        Files.write(folder.newFile("graph_99.json").toPath(), "{\"n\": 3, \"edges\": [".getBytes());
+        folder.newFile("notes.txt");
+
+        List<Path> files = BatchAnalysis.collectFiles(Collections.singletonList(folder.getRoot().getPath()));
+        assertEquals(13, files.size());
+
+        BatchAnalysis.Report report = new BatchAnalysis(3, 2).run(files);
+        assertEquals(12, report.getSucceeded());
+        assertEquals(1, report.getFailed());
+
+        List<BatchAnalysis.FileResult> results = report.getResults();
+        for (int i = 0; i < 12; i++) {
+            BatchAnalysis.FileResult result = results.get(i);
+            assertEquals(files.get(i), result.getFile());
+            assertTrue(result.isSucceeded());
+            assertEquals(graphs.get(i).getN(), result.getVertices());
+            assertEquals(new TarjanSCC(graphs.get(i)).findSCCs().size(), result.getComponents());
+            assertTrue(result.getProjectDuration() > 0);
+        }
+        BatchAnalysis.FileResult broken = results.get(12);
+        assertFalse(broken.isSucceeded());
+        assertNotNull(broken.getError());
+
+        StringWriter text = new StringWriter();
+        report.write(text);
+        assertTrue(text.toString().contains("Files: 12 ok, 1 failed"));
+        assertTrue(text.toString().matches("(?s).*graph_99\\.json +FAILED.*"));
+    }
+}
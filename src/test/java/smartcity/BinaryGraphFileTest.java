@@ -0,0 +1,72 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.Vertex;
+import smartcity.util.BinaryGraphFile;
+import smartcity.util.DataGenerator;
+import smartcity.util.JSONParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class BinaryGraphFileTest {
+
+    @Test
+    public void testConvertedDatasetsRoundTrip() throws IOException {
+        String[] files = {"data/task.json", "data/medium_3.json", "data/large_2.json"};
+        for (String json : files) {
+            File binary = tempFile();
+            BinaryGraphFile.convertJSON(json, binary.getPath());
+
+            CSRGraph expected = new JSONParser().parseGraph(json).toCSR();
+            CSRGraph actual = BinaryGraphFile.loadCSR(binary.getPath());
+
+            assertEquals(json, expected.getN(), actual.getN());
+            assertEquals(json, expected.getSource(), actual.getSource());
+            assertEquals(json, expected.getWeightModel(), actual.getWeightModel());
+            assertArrayEquals(json, expected.getOffsets(), actual.getOffsets());
+            assertArrayEquals(json, expected.getTargets(), actual.getTargets());
+            assertArrayEquals(json, expected.getWeights(), actual.getWeights(), 0.0);
+        }
+    }
+
+    @Test
+    public void testVertexAttributesAndUndirectedGraph() throws IOException {
+        Graph graph = new Graph(4, false);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(1, 2, 3.5);
+        graph.addEdge(3, 3, 1);
+        graph.setVertex(2, Vertex.createRepair(2, 7.5));
+        graph.setVertex(3, Vertex.createAnalytics(3, 2));
+
+        File binary = tempFile();
+        new DataGenerator().saveGraphToBinary(graph, binary.getPath(), 1);
+        Graph loaded = BinaryGraphFile.loadGraph(binary.getPath());
+
+        assertFalse(loaded.isDirected());
+        assertEquals(1, loaded.getSource());
+        assertEquals(graph.getEdgeCount(), loaded.getEdgeCount());
+        assertArrayEquals(graph.toCSR().getTargets(), loaded.toCSR().getTargets());
+        assertEquals("repair", loaded.getVertexTaskType(2));
+        assertEquals(7.5, loaded.getVertexDuration(2), 0.0);
+        assertEquals(3, loaded.getVertexPriority(2));
+        assertEquals("analytics", loaded.getVertexTaskType(3));
+        assertEquals("general", loaded.getVertexTaskType(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsNonGraphFile() throws IOException {
+        File file = tempFile();
+        Files.write(file.toPath(), "{\"n\": 1, \"directed\": true, \"edges\": []}".getBytes());
+        BinaryGraphFile.loadCSR(file.getPath());
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,110 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.CriticalPath;
+import java.util.*;
+
+public class CSRGraphTest {
+
+    @Test
+    public void testFromGraphPreservesEdgeOrder() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 2, 1.5);
+        graph.addEdge(0, 1, 2.5);
+        graph.addEdge(2, 3, 4);
+
+        CSRGraph csr = graph.toCSR();
+
+        assertEquals(4, csr.getN());
+        assertEquals(3, csr.getEdgeCount());
+        assertEquals(2, csr.outDegree(0));
+        assertEquals(0, csr.outDegree(1));
+        assertEquals(2, csr.target(csr.edgeStart(0)));
+        assertEquals(1, csr.target(csr.edgeStart(0) + 1));
+        assertEquals(2.5, csr.weight(csr.edgeStart(0) + 1), 0.001);
+    }
+
+    @Test
+    public void testBuilderMatchesGraphConversion() {
+        CSRGraph built = new CSRGraph.Builder(5, true)
+                .addEdge(3, 4, 1)
+                .addEdge(0, 1, 2)
+                .addEdge(3, 0, 5)
+                .addEdge(1, 3, 3)
+                .build();
+
+        Graph graph = new Graph(5, true);
+        graph.addEdge(3, 4, 1);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(3, 0, 5);
+        graph.addEdge(1, 3, 3);
+        CSRGraph converted = CSRGraph.fromGraph(graph);
+
+        assertArrayEquals(converted.getOffsets(), built.getOffsets());
+        assertArrayEquals(converted.getTargets(), built.getTargets());
+        assertArrayEquals(converted.getWeights(), built.getWeights(), 0.0);
+    }
+
+    @Test
+    public void testReverse() {
+        CSRGraph csr = new CSRGraph.Builder(3, true)
+                .addEdge(0, 1, 1)
+                .addEdge(2, 1, 2)
+                .build();
+
+        CSRGraph reversed = csr.reverse();
+
+        assertEquals(2, reversed.outDegree(1));
+        assertEquals(0, reversed.target(reversed.edgeStart(1)));
+        assertEquals(2, reversed.target(reversed.edgeStart(1) + 1));
+        assertEquals(0, reversed.outDegree(0));
+    }
+
+    @Test
+    public void testCacheInvalidatedByAddEdge() {
+        Graph graph = new Graph(3, true);
+        graph.addEdge(0, 1, 1);
+        CSRGraph first = graph.toCSR();
+        assertSame(first, graph.toCSR());
+
+        graph.addEdge(1, 2, 1);
+        CSRGraph second = graph.toCSR();
+        assertNotSame(first, second);
+        assertEquals(2, second.getEdgeCount());
+    }
+
+    @Test
+    public void testAlgorithmsOnCSR() {
+        CSRGraph csr = new CSRGraph.Builder(6, true)
+                .addEdge(0, 1, 1).addEdge(1, 2, 1).addEdge(2, 0, 1)
+                .addEdge(2, 3, 2).addEdge(3, 4, 3).addEdge(4, 5, 1)
+                .build();
+
+        TarjanSCC tarjan = new TarjanSCC(csr);
+        List<List<Integer>> sccs = tarjan.findSCCs();
+        assertEquals(4, sccs.size());
+        assertEquals(4, tarjan.buildCondensationGraph().getN());
+
+        CSRGraph dag = new CSRGraph.Builder(4, true)
+                .addEdge(0, 1, 2).addEdge(0, 2, 1).addEdge(1, 3, 2).addEdge(2, 3, 5)
+                .build();
+
+        int[] order = new KahnTopological().topologicalOrder(dag);
+        assertEquals(0, order[0]);
+        assertEquals(3, order[3]);
+
+        DAGShortestPath.Result sp = new DAGShortestPath().findShortestPath(dag, 0, 3);
+        assertEquals(4.0, sp.distances[3], 0.001);
+        assertEquals(Arrays.asList(0, 1, 3), sp.path);
+
+        DAGShortestPath.Result cp = new CriticalPath().findCriticalPath(dag, 0, 3);
+        assertEquals(6.0, cp.distances[3], 0.001);
+        assertEquals(Arrays.asList(0, 2, 3), cp.path);
+    }
+}
@@ -5,6 +5,8 @@ import static org.junit.Assert.*;
 import smartcity.model.Graph;
 import smartcity.graph.scc.TarjanSCC;
 import smartcity.graph.scc.CondensationGraph;
+import smartcity.graph.scc.EdgeWeightAggregation;
+import smartcity.model.Edge;
 import java.util.*;
 
 public class CondensationGraphTest {
@@ -216,4 +218,55 @@ public class CondensationGraphTest {
 
         assertEquals(4, cg.getCondensationGraph().getEdgeCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEdgeWeightAggregation() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 1, 1); graph.addEdge(1, 0, 1);
+        graph.addEdge(2, 3, 1); graph.addEdge(3, 2, 1);
+
+        graph.addEdge(0, 2, 4);
+        graph.addEdge(1, 3, 2);
+        graph.addEdge(1, 2, 9);
+
+        double[] expected = {2, 9, 15, 3, 5};
+        EdgeWeightAggregation[] modes = {
+                EdgeWeightAggregation.MIN, EdgeWeightAggregation.MAX, EdgeWeightAggregation.SUM,
+                EdgeWeightAggregation.COUNT, EdgeWeightAggregation.MEAN
+        };
+
+        for (int i = 0; i < modes.length; i++) {
+            TarjanSCC tarjan = new TarjanSCC(graph);
+            Graph condensation = tarjan.buildCondensationGraph(modes[i]);
+
+            assertEquals(1, condensation.getEdgeCount());
+            int source = tarjan.getComponentId()[0];
+            Edge edge = condensation.getEdges(source).get(0);
+            assertEquals(tarjan.getComponentId()[2], edge.getTo());
+            assertEquals(modes[i].name(), expected[i], edge.getWeight(), 0.001);
+        }
+    }
+
+    @Test
+    public void testCondensationEdgesDeduplicated() {
+        Graph graph = new Graph(6, true);
+        graph.addEdge(0, 1, 1); graph.addEdge(1, 2, 1); graph.addEdge(2, 0, 1);
+        for (int u = 0; u < 3; u++) {
+            for (int v = 3; v < 6; v++) {
+                graph.addEdge(u, v, u + v);
+            }
+        }
+
+        TarjanSCC tarjan = new TarjanSCC(graph);
+        Graph condensation = tarjan.buildCondensationGraph();
+
+        assertEquals(4, condensation.getN());
+        assertEquals(3, condensation.getEdgeCount());
+        int cycle = tarjan.getComponentId()[0];
+        for (Edge edge : condensation.getEdges(cycle)) {
+            // Minimum over the three edges entering each target vertex v is 0 + v
+            int target = tarjan.getCondensationGraphObject().getComponent(edge.getTo()).get(0);
+            assertEquals(target, edge.getWeight(), 0.001);
+        }
+    }
+}
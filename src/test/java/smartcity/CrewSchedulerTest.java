@@ -0,0 +1,102 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.Vertex;
+import smartcity.graph.topo.CrewScheduler;
+import smartcity.graph.topo.CrewScheduler.Crew;
+import java.util.*;
+
+public class CrewSchedulerTest {
+
+    @Test
+    public void testTypedCrews() {
+        // Two repairs feeding one analytics task; a cleaning task on the side
+        Graph graph = new Graph(4, true);
+        graph.setVertex(0, new Vertex(0, "r0", "repair", 3.0, 1));
+        graph.setVertex(1, new Vertex(1, "r1", "repair", 2.0, 1));
+        graph.setVertex(2, new Vertex(2, "a", "analytics", 1.0, 1));
+        graph.setVertex(3, new Vertex(3, "c", "street_cleaning", 4.0, 1));
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(1, 2, 1);
+
+        CrewScheduler scheduler = new CrewScheduler(Arrays.asList(
+                new Crew("repairers", "repair"),
+                new Crew("general")));
+        CrewScheduler.Schedule schedule = scheduler.schedule(graph);
+
+        // Highest-level first: r0 (rank 4) on the specialist, cleaning (rank 4, higher id) on the
+        // generalist; r1 waits for the repairers, then analytics runs after both repairs
+        assertEquals(0, schedule.getCrew(0));
+        assertEquals(0.0, schedule.getStart(0), 0);
+        assertEquals(1, schedule.getCrew(3));
+        assertEquals(0.0, schedule.getStart(3), 0);
+        assertEquals(3.0, schedule.getStart(1), 0);
+        assertEquals(5.0, schedule.getStart(2), 0);
+        assertEquals(6.0, schedule.getMakespan(), 0);
+        assertArrayEquals(new int[]{0, 3, 1, 2}, schedule.getDispatchOrder());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUncoveredTaskType() {
+        Graph graph = new Graph(2, true);
+        graph.setVertex(1, new Vertex(1, "a", "analytics", 1.0, 1));
+        new CrewScheduler(Collections.singletonList(new Crew("cleaners", "general"))).schedule(graph);
+    }
+
+    @Test
+    public void testScheduleIsFeasible() {
+        Random random = new Random(21);
+        int n = 3000;
+        Graph graph = new Graph(n, true);
+        graph.initializeSmartCityVertices();
+        for (int i = 0; i < 3 * n; i++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            // Mostly forward edges, some backward ones forming cycles
+            if (u != v && (u < v || random.nextInt(20) == 0)) {
+                graph.addEdge(u, v, 1);
+            }
+        }
+        List<Crew> crews = Arrays.asList(
+                new Crew("cleaning", "street_cleaning"),
+                new Crew("repair-1", "repair", "maintenance"),
+                new Crew("repair-2", "repair", "maintenance"),
+                new Crew("analysts", "analytics"),
+                new Crew("general"));
+        CrewScheduler.Schedule schedule = new CrewScheduler(crews).schedule(graph);
+
+        CSRGraph precedence = CrewScheduler.precedenceGraph(graph);
+        double[] durations = graph.getVertexDurations();
+        double lastFinish = 0;
+        for (int u = 0; u < n; u++) {
+            assertTrue(crews.get(schedule.getCrew(u)).canDo(graph.getVertexTaskType(u)));
+            assertEquals(schedule.getStart(u) + durations[u], schedule.getFinish(u), 1e-9);
+            for (int i = precedence.edgeStart(u); i < precedence.edgeEnd(u); i++) {
+                assertTrue(schedule.getFinish(u) <= schedule.getStart(precedence.target(i)) + 1e-9);
+            }
+            lastFinish = Math.max(lastFinish, schedule.getFinish(u));
+        }
+        assertEquals(lastFinish, schedule.getMakespan(), 1e-9);
+
+        // No crew works on two tasks at once
+        Integer[] byStart = new Integer[n];
+        for (int v = 0; v < n; v++) byStart[v] = v;
+        Arrays.sort(byStart, Comparator.comparingDouble(schedule::getStart));
+        double[] crewFree = new double[crews.size()];
+        for (int v : byStart) {
+            int crew = schedule.getCrew(v);
+            assertTrue(crewFree[crew] <= schedule.getStart(v) + 1e-9);
+            crewFree[crew] = schedule.getFinish(v);
+        }
+
+        // A single crew that can do everything just runs the tasks back to back
+        CrewScheduler.Schedule serial = new CrewScheduler(Collections.singletonList(new Crew("all"))).schedule(graph);
+        double total = 0;
+        for (double d : durations) total += d;
+        assertEquals(total, serial.getMakespan(), 1e-6);
+        assertEquals(1.0, serial.getUtilization(0), 1e-9);
+    }
+}
@@ -2,9 +2,14 @@ package smartcity;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import smartcity.graph.dagsp.DAGShortestPath;
 import smartcity.graph.dagsp.CriticalPath;
+import smartcity.graph.dagsp.CriticalPathMethod;
+import smartcity.model.Vertex;
 import java.util.Arrays;
 import java.util.List;
 
@@ -173,4 +178,176 @@ public class DAGShortestPathTest {
 
         assertEquals(15.0, result.distances[6], 0.001);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCriticalPathMatchesNegatedShortestPath() {
+        Random random = new Random(7);
+        Graph graph = new Graph(200, true);
+        for (int u = 0; u < 200; u++) {
+            for (int k = 0; k < 3; k++) {
+                int v = u + 1 + random.nextInt(20);
+                if (v < 200) graph.addEdge(u, v, 1 + random.nextInt(10));
+            }
+        }
+        CSRGraph csr = graph.toCSR();
+        double[] negated = csr.getWeights().clone();
+        for (int i = 0; i < negated.length; i++) negated[i] = -negated[i];
+
+        DAGShortestPath.Result expected = new DAGShortestPath().findShortestPath(csr.withWeights(negated), 0, 199);
+        DAGShortestPath.Result actual = new CriticalPath().findCriticalPath(csr, 0, 199);
+
+        for (int v = 0; v < 200; v++) {
+            double want = expected.distances[v] == Double.POSITIVE_INFINITY ? expected.distances[v] : -expected.distances[v];
+            assertEquals(want, actual.distances[v], 1e-9);
+        }
+        assertEquals(expected.path, actual.path);
+    }
+
+    @Test
+    public void testSharedOrderAndStopAtTarget() {
+        Graph graph = new Graph(5, true);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(0, 2, 5);
+        graph.addEdge(1, 3, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 4, 1);
+        CSRGraph csr = graph.toCSR();
+
+        DAGShortestPath sp = new DAGShortestPath();
+        int[] order = sp.topologicalOrder(csr);
+        CriticalPath cp = new CriticalPath();
+        cp.setStopAtTarget(true);
+
+        DAGShortestPath.Result shortest = sp.findShortestPath(csr, order, 0, 4);
+        DAGShortestPath.Result longest = cp.findCriticalPath(csr, order, 0, 3);
+
+        assertEquals(4.0, shortest.distances[4], 0.001);
+        assertEquals(6.0, longest.distances[3], 0.001);
+        assertEquals(Arrays.asList(0, 2, 3), longest.path);
+        // Stopped at 3, so its out-edge was never relaxed
+        assertEquals(Double.POSITIVE_INFINITY, longest.distances[4], 0.001);
+    }
+
+    @Test
+    public void testBatchMatchesSingleSource() {
+        Random random = new Random(11);
+        Graph graph = new Graph(300, true);
+        for (int u = 0; u < 300; u++) {
+            for (int k = 0; k < 3; k++) {
+                int v = u + 1 + random.nextInt(30);
+                if (v < 300) graph.addEdge(u, v, 1 + random.nextInt(10));
+            }
+        }
+        CSRGraph csr = graph.toCSR();
+        int[] sources = new int[21];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(300);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DAGShortestPath.BatchResult batch = new DAGShortestPath().findShortestPaths(csr, sources, pool);
+            DAGShortestPath single = new DAGShortestPath();
+            for (int i = 0; i < sources.length; i++) {
+                DAGShortestPath.Result expected = single.findShortestPath(csr, sources[i], 299);
+                assertArrayEquals(expected.distances, batch.distances[i], 1e-9);
+                assertArrayEquals(expected.predecessors, batch.predecessors[i]);
+                assertEquals(expected.path, batch.path(i, 299));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCriticalPathMethod() {
+        Graph graph = new Graph(4, true);
+        double[] durations = {3, 2, 4, 1};
+        for (int v = 0; v < 4; v++) {
+            graph.setVertex(v, new Vertex(v, "t" + v, "repair", durations[v], 1));
+        }
+        graph.addEdge(0, 1, 0);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(1, 3, 0);
+        graph.addEdge(2, 3, 0);
+
+        CriticalPathMethod.Result cpm = new CriticalPathMethod().analyze(graph);
+        assertEquals(9.0, cpm.projectDuration, 0);
+        assertArrayEquals(new double[]{0, 3, 4, 8}, cpm.earliestStart, 0);
+        assertArrayEquals(new double[]{3, 5, 8, 9}, cpm.earliestFinish, 0);
+        assertArrayEquals(new double[]{0, 6, 4, 8}, cpm.latestStart, 0);
+        assertArrayEquals(new double[]{3, 8, 8, 9}, cpm.latestFinish, 0);
+        assertEquals(3.0, cpm.getSlack(1), 0);
+        assertArrayEquals(new int[]{0, 2, 3}, cpm.getCriticalTasks());
+        assertEquals(Arrays.asList(0, 2, 3), cpm.getCriticalPath());
+
+        CSRGraph csr = graph.toCSR();
+        int critical = 0;
+        for (int u = 0; u < 4; u++) {
+            for (int i = csr.edgeStart(u); i < csr.edgeEnd(u); i++) {
+                boolean expected = (u == 0 && csr.target(i) == 2) || (u == 2 && csr.target(i) == 3);
+                assertEquals(expected, cpm.isCriticalEdge(i));
+                if (expected) critical++;
+            }
+        }
+        assertEquals(critical, cpm.getCriticalEdges().length);
+    }
+
+    @Test
+    public void testCriticalPathMethodOnCondensation() {
+        // {0, 1} is a cycle taking 1 + 2; the largest lag into task 2 is 5
+        Graph graph = new Graph(3, true);
+        graph.setVertex(0, new Vertex(0, "a", "repair", 1, 1));
+        graph.setVertex(1, new Vertex(1, "b", "repair", 2, 1));
+        graph.setVertex(2, new Vertex(2, "c", "repair", 3, 1));
+        graph.addEdge(0, 1, 0);
+        graph.addEdge(1, 0, 0);
+        graph.addEdge(1, 2, 5);
+        graph.addEdge(0, 2, 1);
+
+        CriticalPathMethod.Result cpm = new CriticalPathMethod().analyzeCondensation(graph);
+        assertEquals(11.0, cpm.projectDuration, 0);
+        assertEquals(2, cpm.getCriticalPath().size());
+    }
+
+    @Test
+    public void testCriticalPathMethodMatchesLongestPaths() {
+        Random random = new Random(22);
+        int n = 400;
+        Graph graph = new Graph(n, true);
+        graph.initializeSmartCityVertices();
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < 3; k++) {
+                int v = u + 1 + random.nextInt(30);
+                if (v < n) graph.addEdge(u, v, random.nextInt(4));
+            }
+        }
+        double[] durations = graph.getVertexDurations();
+        CriticalPathMethod.Result cpm = new CriticalPathMethod().analyze(graph);
+
+        // Vertex ids are already a topological order, so a direct DP gives the earliest starts
+        CSRGraph csr = graph.toCSR();
+        double[] start = new double[n];
+        double total = 0;
+        for (int u = 0; u < n; u++) {
+            total = Math.max(total, start[u] + durations[u]);
+            for (int i = csr.edgeStart(u); i < csr.edgeEnd(u); i++) {
+                int v = csr.target(i);
+                start[v] = Math.max(start[v], start[u] + durations[u] + csr.weight(i));
+            }
+        }
+        assertArrayEquals(start, cpm.earliestStart, 1e-9);
+        assertEquals(total, cpm.projectDuration, 1e-9);
+
+        List<Integer> path = cpm.getCriticalPath();
+        for (int u : path) {
+            assertTrue(cpm.isCritical(u));
+        }
+        assertEquals(0.0, cpm.earliestStart[path.get(0)], 0);
+        assertEquals(total, cpm.earliestFinish[path.get(path.size() - 1)], 1e-9);
+        for (int v = 0; v < n; v++) {
+            assertTrue(cpm.getSlack(v) > -1e-9);
+            assertTrue(cpm.latestFinish[v] <= total + 1e-9);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.Graph;
+import smartcity.model.SCCResult;
+import smartcity.graph.scc.DynamicSCC;
+import smartcity.graph.scc.TarjanSCC;
+import java.util.*;
+
+public class DynamicSCCTest {
+
+    @Test
+    public void testInsertClosingCycleMerges() {
+        Graph graph = new Graph(5, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 4, 1);
+
+        DynamicSCC dynamic = new DynamicSCC(graph);
+        assertEquals(5, dynamic.getComponentCount());
+
+        DynamicSCC.ComponentChange change = dynamic.insertEdge(3, 1, 1);
+
+        assertEquals(DynamicSCC.ChangeKind.MERGE, change.getKind());
+        assertEquals(3, change.getBefore().size());
+        assertEquals(3, dynamic.getComponentCount());
+        assertTrue(dynamic.isSameComponent(1, 3));
+        assertTrue(dynamic.isSameComponent(2, 3));
+        assertFalse(dynamic.isSameComponent(0, 1));
+        assertEquals(change.getAfter().get(0).intValue(), dynamic.getComponentId(2));
+    }
+
+    @Test
+    public void testDeleteBreakingCycleSplits() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 0, 1);
+        graph.addEdge(2, 3, 1);
+
+        DynamicSCC dynamic = new DynamicSCC(graph);
+        assertEquals(2, dynamic.getComponentCount());
+
+        DynamicSCC.ComponentChange change = dynamic.deleteEdge(2, 0);
+
+        assertEquals(DynamicSCC.ChangeKind.SPLIT, change.getKind());
+        assertEquals(3, change.getAfter().size());
+        assertEquals(4, dynamic.getComponentCount());
+        assertTopologicalOrderConsistent(dynamic, graphEdges(dynamic));
+    }
+
+    @Test
+    public void testOrderPreservingInsertIsNoChange() {
+        Graph graph = new Graph(3, true);
+        graph.addEdge(0, 1, 1);
+
+        DynamicSCC dynamic = new DynamicSCC(graph);
+        assertEquals(DynamicSCC.ChangeKind.NONE, dynamic.insertEdge(1, 2, 1).getKind());
+        assertEquals(DynamicSCC.ChangeKind.NONE, dynamic.insertEdge(0, 2, 1).getKind());
+        assertEquals(3, dynamic.getComponentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeleteMissingEdge() {
+        DynamicSCC dynamic = new DynamicSCC(new Graph(3, true));
+        dynamic.deleteEdge(0, 1);
+    }
+
+    @Test
+    public void testRandomUpdatesMatchRecomputation() {
+        Random random = new Random(11);
+        int n = 60;
+        Graph graph = new Graph(n, true);
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            graph.addEdge(u, v, 1);
+            edges.add(new int[]{u, v});
+        }
+
+        DynamicSCC dynamic = new DynamicSCC(graph);
+        for (int step = 0; step < 400; step++) {
+            if (!edges.isEmpty() && random.nextInt(3) == 0) {
+                int[] edge = edges.remove(random.nextInt(edges.size()));
+                dynamic.deleteEdge(edge[0], edge[1]);
+            } else {
+                int u = random.nextInt(n);
+                int v = random.nextInt(n);
+                dynamic.insertEdge(u, v, 1);
+                edges.add(new int[]{u, v});
+            }
+
+            Graph current = new Graph(n, true);
+            for (int[] edge : edges) {
+                current.addEdge(edge[0], edge[1], 1);
+            }
+            List<List<Integer>> expected = new TarjanSCC(current).findSCCs();
+            assertEquals("step " + step, expected.size(), dynamic.getComponentCount());
+            for (List<Integer> component : expected) {
+                for (int v : component) {
+                    assertTrue(dynamic.isSameComponent(component.get(0), v));
+                }
+            }
+            assertTopologicalOrderConsistent(dynamic, edges);
+        }
+
+        SCCResult snapshot = dynamic.toSCCResult();
+        assertEquals(dynamic.getComponentCount(), snapshot.getComponentCount());
+    }
+
+    private static List<int[]> graphEdges(DynamicSCC dynamic) {
+        List<int[]> edges = new ArrayList<>();
+        var csr = dynamic.toCSR();
+        for (int u = 0; u < csr.getN(); u++) {
+            for (int i = csr.edgeStart(u); i < csr.edgeEnd(u); i++) {
+                edges.add(new int[]{u, csr.target(i)});
+            }
+        }
+        return edges;
+    }
+
+    private static void assertTopologicalOrderConsistent(DynamicSCC dynamic, List<int[]> edges) {
+        List<Integer> order = dynamic.getTopologicalOrder();
+        assertEquals(dynamic.getComponentCount(), order.size());
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            position.put(order.get(i), i);
+        }
+
+        Set<Long> expectedEdges = new HashSet<>();
+        for (int[] edge : edges) {
+            int cu = dynamic.getComponentId(edge[0]);
+            int cv = dynamic.getComponentId(edge[1]);
+            if (cu != cv) {
+                assertTrue(position.get(cu) < position.get(cv));
+                expectedEdges.add(((long) cu << 32) | cv);
+            }
+        }
+
+        Set<Long> actualEdges = new HashSet<>();
+        for (int c : order) {
+            for (int d : dynamic.getCondensationSuccessors(c)) {
+                actualEdges.add(((long) c << 32) | d);
+            }
+        }
+        assertEquals(expectedEdges, actualEdges);
+    }
+}
@@ -0,0 +1,116 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.graph.dagsp.CriticalPath;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.IncrementalDAGPath;
+import smartcity.model.Graph;
+import java.util.*;
+
+public class IncrementalDAGPathTest {
+
+    private static Graph build(int n, List<double[]> edges) {
+        Graph graph = new Graph(n, true);
+        for (double[] e : edges) {
+            graph.addEdge((int) e[0], (int) e[1], e[2]);
+        }
+        return graph;
+    }
+
+    // Updates address an edge by its endpoints, so the random graphs avoid parallel edges
+    private static boolean hasEdge(List<double[]> edges, int u, int v) {
+        for (double[] e : edges) {
+            if (e[0] == u && e[1] == v) return true;
+        }
+        return false;
+    }
+
+    private void randomUpdates(IncrementalDAGPath.Objective objective) {
+        Random random = new Random(objective.ordinal() + 3);
+        int n = 150;
+        List<double[]> edges = new ArrayList<>();
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < 2; k++) {
+                int v = u + 1 + random.nextInt(15);
+                if (v < n && !hasEdge(edges, u, v)) edges.add(new double[]{u, v, 1 + random.nextInt(10)});
+            }
+        }
+        IncrementalDAGPath incremental = new IncrementalDAGPath(build(n, edges), 0, objective);
+
+        for (int step = 0; step < 300; step++) {
+            double[] before = new double[n];
+            for (int v = 0; v < n; v++) before[v] = incremental.getDistance(v);
+
+            int[] changed;
+            int op = random.nextInt(3);
+            if (op == 0 && !edges.isEmpty()) {
+                double[] e = edges.get(random.nextInt(edges.size()));
+                e[2] = 1 + random.nextInt(10);
+                changed = incremental.updateWeight((int) e[0], (int) e[1], e[2]);
+            } else if (op == 1 && !edges.isEmpty()) {
+                double[] e = edges.remove(random.nextInt(edges.size()));
+                changed = incremental.deleteEdge((int) e[0], (int) e[1]);
+            } else {
+                // Forward edges in vertex order always keep the graph acyclic
+                int u = random.nextInt(n - 1);
+                int v = u + 1 + random.nextInt(n - 1 - u);
+                if (hasEdge(edges, u, v)) continue;
+                double w = 1 + random.nextInt(10);
+                edges.add(new double[]{u, v, w});
+                changed = incremental.insertEdge(u, v, w);
+            }
+
+            Graph graph = build(n, edges);
+            DAGShortestPath.Result expected = objective == IncrementalDAGPath.Objective.SHORTEST
+                    ? new DAGShortestPath().findShortestPath(graph, 0, -1)
+                    : new CriticalPath().findCriticalPath(graph, 0, -1);
+            Set<Integer> changedSet = new HashSet<>();
+            for (int v : changed) changedSet.add(v);
+            for (int v = 0; v < n; v++) {
+                assertEquals(expected.distances[v], incremental.getDistance(v), 1e-9);
+                if (before[v] != expected.distances[v]) {
+                    assertTrue("vertex " + v + " changed but was not reported", changedSet.contains(v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testShortestMatchesRecomputation() {
+        randomUpdates(IncrementalDAGPath.Objective.SHORTEST);
+    }
+
+    @Test
+    public void testLongestMatchesRecomputation() {
+        randomUpdates(IncrementalDAGPath.Objective.LONGEST);
+    }
+
+    @Test
+    public void testInsertionAgainstOrderAndCycleRejection() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(2, 3, 1);
+        IncrementalDAGPath incremental = new IncrementalDAGPath(graph, 0, IncrementalDAGPath.Objective.LONGEST);
+        assertEquals(2.0, incremental.getDistance(3), 0.001);
+
+        // Kahn puts 1 before 3, so 3 -> 1 forces a local reorder
+        assertArrayEquals(new int[]{1}, incremental.insertEdge(3, 1, 5));
+        assertEquals(7.0, incremental.getDistance(1), 0.001);
+        assertEquals(Arrays.asList(0, 2, 3, 1), incremental.getPath(1));
+
+        int[] position = new int[4];
+        int[] order = incremental.getTopologicalOrder();
+        for (int i = 0; i < 4; i++) position[order[i]] = i;
+        assertTrue(position[3] < position[1]);
+        assertTrue(position[2] < position[3]);
+
+        try {
+            incremental.insertEdge(1, 2, 1);
+            fail("1 -> 2 closes the cycle 1 -> 2 -> 3 -> 1");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(7.0, incremental.getDistance(1), 0.001);
+        }
+    }
+}
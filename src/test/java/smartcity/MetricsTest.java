@@ -0,0 +1,72 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.graph.dagsp.CountingMetrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.DetailedMetrics;
+import smartcity.graph.dagsp.NoOpMetrics;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.model.Graph;
+import java.util.*;
+
+public class MetricsTest {
+
+    private Graph createDAG() {
+        Graph graph = new Graph(5, true);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(1, 3, 4);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 4, 3);
+        return graph;
+    }
+
+    @Test
+    public void testNoOpRecordsNothing() {
+        KahnTopological kahn = new KahnTopological(NoOpMetrics.INSTANCE);
+        List<Integer> order = kahn.topologicalSort(createDAG());
+
+        assertEquals(5, order.size());
+        assertEquals(0, kahn.getKahnOperations());
+        assertEquals(0, kahn.getEdgeRelaxations());
+    }
+
+    @Test
+    public void testCountingMatchesDefault() {
+        Graph graph = createDAG();
+        TarjanSCC defaultTarjan = new TarjanSCC(graph);
+        defaultTarjan.findSCCs();
+        TarjanSCC counting = new TarjanSCC(graph, new CountingMetrics());
+        counting.findSCCs();
+
+        assertEquals(5, counting.getDFSCount());
+        assertEquals(5, counting.getEdgeRelaxations());
+        assertEquals(defaultTarjan.getDFSCount(), counting.getDFSCount());
+    }
+
+    @Test
+    public void testDetailedRecordsVisitOrder() {
+        DetailedMetrics metrics = new DetailedMetrics();
+        new TarjanSCC(createDAG(), metrics).findSCCs();
+        assertArrayEquals(new int[] {0, 1, 3, 4, 2}, metrics.getVisitOrder());
+
+        metrics.reset();
+        int[] order = new KahnTopological(metrics).topologicalOrder(createDAG().toCSR());
+        assertArrayEquals(order, metrics.getVisitOrder());
+        assertEquals(5, metrics.getKahnOperations());
+    }
+
+    @Test
+    public void testShortestPathSharesMetricsWithSort() {
+        DetailedMetrics metrics = new DetailedMetrics();
+        DAGShortestPath sp = new DAGShortestPath(metrics);
+        sp.findShortestPath(createDAG(), 1, -1);
+
+        // Kahn visits all 5 vertices, relaxation then only the ones reachable from 1
+        assertEquals(5, sp.getKahnOperations());
+        assertEquals(8, metrics.getVisitCount());
+        assertSame(metrics, sp.getMetrics());
+    }
+}
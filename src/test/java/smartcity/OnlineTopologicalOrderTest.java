@@ -0,0 +1,75 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.topo.OnlineTopologicalOrder;
+import smartcity.model.Graph;
+import java.util.*;
+
+public class OnlineTopologicalOrderTest {
+
+    @Test
+    public void testRandomInsertionsKeepValidOrder() {
+        Random random = new Random(9);
+        int n = 200;
+        OnlineTopologicalOrder online = new OnlineTopologicalOrder(n);
+        Graph graph = new Graph(n, true);
+        int rejected = 0;
+
+        for (int step = 0; step < 1500; step++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            List<Integer> cycle = online.insertEdge(u, v);
+            if (cycle.isEmpty()) {
+                graph.addEdge(u, v, 1);
+            } else {
+                rejected++;
+                assertCycle(graph, cycle, u, v);
+            }
+            assertTrue(new KahnTopological().isValidTopologicalOrder(graph, online.getTopologicalOrder()));
+        }
+        assertTrue(rejected > 0);
+        assertEquals(graph.getEdgeCount(), online.getEdgeCount());
+    }
+
+    // Every step of the reported cycle except the closing u -> v must be an existing edge
+    private void assertCycle(Graph graph, List<Integer> cycle, int u, int v) {
+        assertEquals(Integer.valueOf(u), cycle.get(0));
+        assertEquals(Integer.valueOf(u), cycle.get(cycle.size() - 1));
+        if (u == v) {
+            return;
+        }
+        assertEquals(Integer.valueOf(v), cycle.get(1));
+        for (int i = 1; i + 1 < cycle.size(); i++) {
+            int from = cycle.get(i);
+            int to = cycle.get(i + 1);
+            assertTrue(graph.getEdges(from).stream().anyMatch(e -> e.getTo() == to));
+        }
+    }
+
+    @Test
+    public void testDeletionAllowsReverseEdge() {
+        Graph graph = new Graph(3, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        OnlineTopologicalOrder online = new OnlineTopologicalOrder(graph);
+
+        assertEquals(Arrays.asList(2, 0, 1, 2), online.insertEdge(2, 0));
+        assertTrue(online.precedes(0, 2));
+
+        online.deleteEdge(1, 2);
+        assertTrue(online.insertEdge(2, 0).isEmpty());
+        assertTrue(online.precedes(2, 0));
+        assertTrue(online.precedes(0, 1));
+    }
+
+    @Test
+    public void testConsistentInsertIsConstantWork() {
+        OnlineTopologicalOrder online = new OnlineTopologicalOrder(1000);
+        for (int v = 0; v + 1 < 1000; v++) {
+            online.insertEdge(v, v + 1);
+        }
+        assertEquals(0, online.getUpdateWork());
+    }
+}
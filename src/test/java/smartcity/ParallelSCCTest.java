@@ -0,0 +1,108 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.model.SCCResult;
+import smartcity.graph.scc.ParallelSCC;
+import smartcity.graph.scc.TarjanSCC;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelSCCTest {
+
+    @Test
+    public void testMatchesTarjanOnSmallGraph() {
+        Graph graph = new Graph(8, true);
+        graph.addEdge(0, 1, 3);
+        graph.addEdge(1, 2, 2);
+        graph.addEdge(2, 3, 4);
+        graph.addEdge(3, 1, 1);
+        graph.addEdge(4, 5, 2);
+        graph.addEdge(5, 6, 5);
+        graph.addEdge(6, 7, 1);
+
+        ParallelSCC parallel = new ParallelSCC(graph);
+        List<List<Integer>> sccs = parallel.findSCCs();
+
+        assertEquals(6, sccs.size());
+        assertEquals(partition(new TarjanSCC(graph).findSCCs()), partition(sccs));
+        assertEquals(5, parallel.buildCondensationGraph().getN() - 1);
+    }
+
+    @Test
+    public void testMatchesTarjanOnRandomGraphs() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 5; seed++) {
+                CSRGraph graph = randomGraph(5_000, 3, seed);
+
+                TarjanSCC tarjan = new TarjanSCC(graph);
+                ParallelSCC parallel = new ParallelSCC(graph, pool);
+
+                List<List<Integer>> expected = tarjan.findSCCs();
+                List<List<Integer>> actual = parallel.findSCCs();
+
+                assertEquals(expected.size(), actual.size());
+                assertEquals(partition(expected), partition(actual));
+                assertEquals(tarjan.buildCondensationGraph().getEdgeCount(),
+                        parallel.buildCondensationGraph().getEdgeCount());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testComponentIdsFollowReverseTopologicalOrder() {
+        CSRGraph graph = randomGraph(5_000, 2, 7);
+        ParallelSCC parallel = new ParallelSCC(graph);
+        parallel.findSCCs();
+        int[] componentId = parallel.getComponentId();
+
+        for (int u = 0; u < graph.getN(); u++) {
+            for (int i = graph.edgeStart(u); i < graph.edgeEnd(u); i++) {
+                assertTrue(componentId[u] >= componentId[graph.target(i)]);
+            }
+        }
+    }
+
+    @Test
+    public void testResultAndEmptyGraph() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 0, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(3, 3, 1);
+
+        ParallelSCC parallel = new ParallelSCC(graph);
+        parallel.findSCCs();
+        SCCResult result = parallel.getResult();
+        assertEquals(3, result.getComponentCount());
+        assertEquals(result.getComponentId(0), result.getComponentId(1));
+        assertEquals(3, result.getCondensationGraph().getN());
+
+        assertEquals(0, new ParallelSCC(new Graph(0, true)).findSCCs().size());
+    }
+
+    private static Set<Set<Integer>> partition(List<List<Integer>> components) {
+        Set<Set<Integer>> result = new HashSet<>();
+        for (List<Integer> component : components) {
+            result.add(new HashSet<>(component));
+        }
+        return result;
+    }
+
+    private static CSRGraph randomGraph(int n, int avgDegree, long seed) {
+        Random random = new Random(seed);
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true);
+        for (int i = 0; i < n * avgDegree; i++) {
+            int u = random.nextInt(n);
+            // Mostly forward edges with occasional back edges, so SCCs of many sizes appear
+            int v = random.nextDouble() < 0.8 ? Math.min(n - 1, u + 1 + random.nextInt(20)) : random.nextInt(n);
+            builder.addEdge(u, v, 1);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,101 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.graph.dagsp.CriticalPath;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.PathQueryCache;
+import smartcity.model.Graph;
+import java.util.Arrays;
+
+public class PathQueryCacheTest {
+
+    private Graph createDAG() {
+        Graph graph = new Graph(5, true);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(1, 3, 4);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 4, 3);
+        return graph;
+    }
+
+    @Test
+    public void testRepeatedQueriesHit() {
+        Graph graph = createDAG();
+        PathQueryCache cache = new PathQueryCache(100, 1 << 20);
+
+        DAGShortestPath.Result first = cache.findShortestPath(graph, 0, 4);
+        DAGShortestPath.Result second = cache.findShortestPath(graph, 0, 4);
+        DAGShortestPath.Result otherTarget = cache.findShortestPath(graph, 0, 3);
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertSame(first.distances, second.distances);
+        assertEquals(Arrays.asList(0, 2, 3, 4), second.path);
+        assertEquals(Arrays.asList(0, 2, 3), otherTarget.path);
+
+        DAGShortestPath.Result expected = new CriticalPath().findCriticalPath(graph, 0, 4);
+        DAGShortestPath.Result critical = cache.findCriticalPath(graph, 0, 4);
+        assertArrayEquals(expected.distances, critical.distances, 1e-9);
+        assertEquals(expected.path, critical.path);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testAddEdgeInvalidates() {
+        Graph graph = createDAG();
+        PathQueryCache cache = new PathQueryCache(100, 1 << 20);
+        long version = graph.getVersion();
+        assertEquals(5.0, cache.findShortestPath(graph, 0, 4).distances[4], 0.001);
+
+        graph.addEdge(0, 4, 1);
+        assertNotEquals(version, graph.getVersion());
+        assertEquals(1.0, cache.findShortestPath(graph, 0, 4).distances[4], 0.001);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testVersionsDifferAcrossGraphs() {
+        assertNotEquals(createDAG().getVersion(), createDAG().getVersion());
+    }
+
+    @Test
+    public void testEvictionBySizeAndMemory() {
+        Graph graph = createDAG();
+        PathQueryCache bySize = new PathQueryCache(3, Long.MAX_VALUE);
+        for (int source = 0; source < 5; source++) {
+            bySize.findShortestPath(graph, source, -1);
+        }
+        assertEquals(3, bySize.size());
+        assertTrue(bySize.getEvictions() > 0);
+
+        PathQueryCache byMemory = new PathQueryCache(100, 200);
+        for (int source = 0; source < 5; source++) {
+            byMemory.findShortestPath(graph, source, -1);
+            assertTrue(byMemory.getEstimatedBytes() <= 200 || byMemory.size() == 1);
+        }
+        // Most recently used entry survives
+        long misses = byMemory.getMisses();
+        byMemory.findShortestPath(graph, 4, -1);
+        assertEquals(misses, byMemory.getMisses());
+    }
+
+    @Test
+    public void testOrderSurvivesEviction() {
+        Graph graph = createDAG();
+        PathQueryCache cache = new PathQueryCache(1, Long.MAX_VALUE);
+        for (int source = 0; source < 5; source++) {
+            cache.findShortestPath(graph, source, -1);
+            cache.findCriticalPath(graph, source, -1);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.getMisses());
+        assertEquals(1, cache.getSorts());
+
+        graph.addEdge(0, 4, 1);
+        cache.findShortestPath(graph, 0, -1);
+        assertEquals(2, cache.getSorts());
+    }
+}
@@ -0,0 +1,96 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.util.LatencyHistogram;
+import smartcity.util.PerformanceMetrics;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+public class PerformanceMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000L, snapshot.getMax());
+        assertEquals(1000L, snapshot.getMin());
+        assertEquals(50_000_000L, snapshot.getP50(), 50_000_000 * 0.01);
+        assertEquals(99_000_000L, snapshot.getP99(), 99_000_000 * 0.01);
+        assertEquals(snapshot.getMax(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testRepeatedRunsAreKept() {
+        PerformanceMetrics.Operation op = PerformanceMetrics.operation("test.repeated");
+        for (int i = 1; i <= 5; i++) {
+            op.record(i * 100);
+        }
+        PerformanceMetrics.start("test.repeated");
+        PerformanceMetrics.end("test.repeated");
+
+        assertEquals(6, PerformanceMetrics.getSnapshot("test.repeated").getCount());
+        assertEquals(100, PerformanceMetrics.getSnapshot("test.repeated").getMin());
+        assertTrue(PerformanceMetrics.getDuration("test.repeated") >= 0);
+        assertEquals(-1, PerformanceMetrics.getDuration("test.never"));
+    }
+
+    @Test
+    public void testConcurrentRecordingAndCounters() throws InterruptedException {
+        PerformanceMetrics.Operation op = PerformanceMetrics.operation("test.concurrent");
+        int threads = 8;
+        int perThread = 20_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try (PerformanceMetrics.Scope ignored = op.time()) {
+                        PerformanceMetrics.incrementCount("test.concurrent.count");
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, op.snapshot().getCount());
+        assertEquals(threads * perThread, PerformanceMetrics.getCount("test.concurrent.count"));
+    }
+
+    @Test
+    public void testScopedTimerDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        PerformanceMetrics.Operation op = PerformanceMetrics.operation("test.allocation");
+        LongAdderHolder.counter.increment();
+        try (PerformanceMetrics.Scope ignored = op.time()) {
+            LongAdderHolder.counter.increment();
+        }
+
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            try (PerformanceMetrics.Scope ignored = op.time()) {
+                LongAdderHolder.counter.increment();
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    private static class LongAdderHolder {
+        static final java.util.concurrent.atomic.LongAdder counter = PerformanceMetrics.counter("test.allocation");
+    }
+}
@@ -2,6 +2,7 @@ package smartcity;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
 import smartcity.graph.scc.TarjanSCC;
 import smartcity.model.Vertex;
@@ -93,4 +94,36 @@ public class SCCTest {
         assertEquals(3, condensation.getN());
         assertTrue(condensation.getEdgeCount() >= 2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLongChainDoesNotOverflowStack() {
+        int n = 1_000_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true, n);
+        for (int i = 0; i < n - 1; i++) {
+            builder.addEdge(i, i + 1, 1);
+        }
+
+        TarjanSCC tarjan = new TarjanSCC(builder.build());
+        List<List<Integer>> sccs = tarjan.findSCCs();
+
+        assertEquals(n, sccs.size());
+        // Sinks complete first, so the last vertex of the chain is component 0
+        assertEquals(0, tarjan.getComponentId()[n - 1]);
+        assertEquals(n - 1, tarjan.getComponentId()[0]);
+    }
+
+    @Test
+    public void testLongCycleIsSingleComponent() {
+        int n = 1_000_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, true, n);
+        for (int i = 0; i < n; i++) {
+            builder.addEdge(i, (i + 1) % n, 1);
+        }
+
+        TarjanSCC tarjan = new TarjanSCC(builder.build());
+        List<List<Integer>> sccs = tarjan.findSCCs();
+
+        assertEquals(1, sccs.size());
+        assertEquals(n, sccs.get(0).size());
+    }
+}
@@ -0,0 +1,130 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.model.CSRGraph;
+import smartcity.util.BinaryGraphFile;
+import smartcity.util.ScalableGraphGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class ScalableGraphGeneratorTest {
+
+    @Test
+    public void testDeterministicAcrossPoolSizes() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool quad = new ForkJoinPool(4);
+        try {
+            CSRGraph a = new ScalableGraphGenerator(50_000, 7).setAverageDegree(5).setShardSize(4096)
+                    .setPool(single).generate();
+            CSRGraph b = new ScalableGraphGenerator(50_000, 7).setAverageDegree(5).setShardSize(4096)
+                    .setPool(quad).generate();
+
+            assertArrayEquals(a.getOffsets(), b.getOffsets());
+            assertArrayEquals(a.getTargets(), b.getTargets());
+            assertArrayEquals(a.getWeights(), b.getWeights(), 0.0);
+            assertEquals(5.0, (double) a.getEdgeCount() / a.getN(), 0.1);
+        } finally {
+            single.shutdown();
+            quad.shutdown();
+        }
+    }
+
+    @Test
+    public void testComponentStructureIsExact() {
+        ScalableGraphGenerator generator = new ScalableGraphGenerator(40_000, 3)
+                .setAverageDegree(3)
+                .setComponentStructure(0.5, 20)
+                .setShardSize(1000);
+        CSRGraph graph = generator.generate();
+        int[] blocks = generator.getComponentBoundaries();
+
+        TarjanSCC tarjan = new TarjanSCC(graph);
+        List<List<Integer>> sccs = tarjan.findSCCs();
+        assertEquals(blocks.length - 1, sccs.size());
+
+        int inCycles = 0;
+        for (int b = 0; b + 1 < blocks.length; b++) {
+            int size = blocks[b + 1] - blocks[b];
+            if (size > 1) inCycles += size;
+            assertEquals(tarjan.getComponentId()[blocks[b]], tarjan.getComponentId()[blocks[b + 1] - 1]);
+        }
+        assertEquals(0.5, (double) inCycles / graph.getN(), 0.05);
+    }
+
+    @Test
+    public void testExactEdgeCountWithoutDuplicates() {
+        CSRGraph graph = new ScalableGraphGenerator(20_000, 11)
+                .setEdgeCount(150_000)
+                .setComponentStructure(0.2, 10)
+                .setShardSize(1500)
+                .generate();
+
+        assertEquals(150_000, graph.getEdgeCount());
+        for (int u = 0; u < graph.getN(); u++) {
+            Set<Integer> seen = new HashSet<>();
+            for (int i = graph.edgeStart(u); i < graph.edgeEnd(u); i++) {
+                assertNotEquals(u, graph.target(i));
+                assertTrue("duplicate edge " + u + "->" + graph.target(i), seen.add(graph.target(i)));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testExactEdgeCountWithSingleVertexShards() {
+        // The last shard's only candidate is its cycle successor, so it must get no random edge
+        CSRGraph tiny = new ScalableGraphGenerator(6, 0)
+                .setComponentStructure(1.0, 2)
+                .setShardSize(1)
+                .setEdgeCount(9)
+                .generate();
+        assertEquals(9, tiny.getEdgeCount());
+
+        for (long seed = 0; seed < 20; seed++) {
+            ScalableGraphGenerator generator = new ScalableGraphGenerator(40, seed)
+                    .setComponentStructure(0.6, 4)
+                    .setShardSize(3);
+            int[] blocks = generator.getComponentBoundaries();
+            long cycles = 0;
+            long pairs = 0;
+            for (int b = 0; b + 1 < blocks.length; b++) {
+                int size = blocks[b + 1] - blocks[b];
+                cycles += size > 1 ? size : 0;
+                pairs += (long) size * (40 - blocks[b] - 1);
+            }
+            long edges = cycles + (pairs - cycles) / 2;
+            CSRGraph graph = generator.setEdgeCount(edges).generate();
+
+            assertEquals(edges, graph.getEdgeCount());
+            for (int u = 0; u < graph.getN(); u++) {
+                Set<Integer> seen = new HashSet<>();
+                for (int i = graph.edgeStart(u); i < graph.edgeEnd(u); i++) {
+                    assertNotEquals(u, graph.target(i));
+                    assertTrue("duplicate edge " + u + "->" + graph.target(i), seen.add(graph.target(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStreamedBinaryMatchesInMemory() throws IOException {
+        ScalableGraphGenerator generator = new ScalableGraphGenerator(30_000, 5)
+                .setAverageDegree(4)
+                .setComponentStructure(0.3, 8)
+                .setShardSize(2048);
+        File file = File.createTempFile("scale", ".bin");
+        file.deleteOnExit();
+
+        long edges = generator.writeBinary(file.getPath());
+        CSRGraph expected = generator.generate();
+        CSRGraph loaded = BinaryGraphFile.loadCSR(file.getPath());
+
+        assertEquals(expected.getEdgeCount(), edges);
+        assertArrayEquals(expected.getOffsets(), loaded.getOffsets());
+        assertArrayEquals(expected.getTargets(), loaded.getTargets());
+        assertArrayEquals(expected.getWeights(), loaded.getWeights(), 0.0);
+    }
+}
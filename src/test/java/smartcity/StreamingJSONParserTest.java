@@ -0,0 +1,88 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
+import smartcity.model.Graph;
+import smartcity.util.JSONParser;
+import smartcity.util.StreamingJSONParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class StreamingJSONParserTest {
+
+    @Test
+    public void testMatchesJSONParserOnDatasets() throws IOException {
+        String[] files = {"data/small_1.json", "data/medium_2.json", "data/large_1.json", "data/task.json"};
+        for (String file : files) {
+            CSRGraph expected = new JSONParser().parseGraph(file).toCSR();
+            CSRGraph actual = new StreamingJSONParser().parseCSR(file);
+
+            assertEquals(file, expected.getN(), actual.getN());
+            assertEquals(file, expected.isDirected(), actual.isDirected());
+            assertEquals(file, expected.getSource(), actual.getSource());
+            assertEquals(file, expected.getWeightModel(), actual.getWeightModel());
+            assertArrayEquals(file, expected.getOffsets(), actual.getOffsets());
+            assertArrayEquals(file, expected.getTargets(), actual.getTargets());
+            assertArrayEquals(file, expected.getWeights(), actual.getWeights(), 0.0);
+        }
+    }
+
+    @Test
+    public void testKeysInAnyOrderAndUndirected() throws IOException {
+        File file = write("{\"edges\": [{\"w\": 2.5e0, \"v\": 1, \"u\": 0, \"note\": [1, {\"x\": \"]\"}]},"
+                + " {\"u\": 1, \"v\": 2, \"w\": -0.125}], \"extra\": null, \"directed\": false, \"n\": 3}");
+
+        Graph graph = new StreamingJSONParser().parseGraph(file.getPath());
+
+        assertEquals(3, graph.getN());
+        assertFalse(graph.isDirected());
+        assertEquals(1, graph.getEdges(0).size());
+        assertEquals(2, graph.getEdges(1).size());
+        assertEquals(2.5, graph.getEdges(1).get(0).getWeight(), 0.0);
+        assertEquals(-0.125, graph.getEdges(2).get(0).getWeight(), 0.0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedInput() throws IOException {
+        File file = write("{\"n\": 2, \"directed\": true, \"edges\": [{\"u\": 0, \"v\": 1}]}");
+        new StreamingJSONParser().parseCSR(file.getPath());
+    }
+
+    @Test
+    public void testRejectsEmptyExponentAndTrailingData() throws IOException {
+        String[] inputs = {
+                "{\"n\": 2, \"directed\": true, \"edges\": [{\"u\": 0, \"v\": 1, \"w\": 1e}]}",
+                "{\"n\": 2, \"directed\": true, \"edges\": [{\"u\": 0, \"v\": 1, \"w\": 1e+, \"x\": 0}]}",
+                "{\"n\": 2, \"directed\": true, \"edges\": []} {}"
+        };
+        String[] messages = {
+                "at byte 62: expected a digit in the exponent",
+                "at byte 63: expected a digit in the exponent",
+                "unexpected data after the graph object"
+        };
+        for (int i = 0; i < inputs.length; i++) {
+            try {
+                new StreamingJSONParser().parseCSR(write(inputs[i]).getPath());
+                fail("accepted " + inputs[i]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith(messages[i]));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVertexOutOfRange() throws IOException {
+        File file = write("{\"edges\": [{\"u\": 0, \"v\": 5, \"w\": 1}], \"n\": 2, \"directed\": true}");
+        new StreamingJSONParser().parseCSR(file.getPath());
+    }
+
+    private static File write(String json) throws IOException {
+        File file = File.createTempFile("graph", ".json");
+        file.deleteOnExit();
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,163 @@
+package smartcity;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import smartcity.model.Graph;
+import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.topo.TopologicalOrderCounter;
+import smartcity.graph.topo.TopologicalOrderSampler;
+import java.math.BigInteger;
+import java.util.*;
+
+public class TopologicalOrderCounterTest {
+
+    @Test
+    public void testCountMatchesEnumeration() {
+        Random random = new Random(19);
+        TopologicalOrderCounter counter = new TopologicalOrderCounter();
+        KahnTopological kahn = new KahnTopological();
+        for (int trial = 0; trial < 30; trial++) {
+            int n = 2 + random.nextInt(8);
+            Graph graph = new Graph(n, true);
+            for (int u = 0; u < n; u++) {
+                for (int v = u + 1; v < n; v++) {
+                    if (random.nextInt(3) == 0) {
+                        graph.addEdge(u, v, 1);
+                    }
+                }
+            }
+            long expected = kahn.findAllTopologicalSorts(graph).size();
+            assertEquals(BigInteger.valueOf(expected), counter.count(graph));
+        }
+    }
+
+    @Test
+    public void testForestsAndIndependentParts() {
+        TopologicalOrderCounter counter = new TopologicalOrderCounter();
+
+        // 200 independent vertices
+        assertEquals(factorial(200), counter.count(new Graph(200, true)));
+
+        // Binary out-tree on 7 vertices: 7! / (7 * 3 * 3) = 80, and the reversed in-tree alike
+        Graph tree = new Graph(7, true);
+        Graph inTree = new Graph(7, true);
+        for (int v = 1; v < 7; v++) {
+            tree.addEdge((v - 1) / 2, v, 1);
+            inTree.addEdge(v, (v - 1) / 2, 1);
+        }
+        assertEquals(BigInteger.valueOf(80), counter.count(tree));
+        assertEquals(BigInteger.valueOf(80), counter.count(inTree));
+
+        // Two chains of 30: C(60, 30) interleavings
+        Graph chains = new Graph(60, true);
+        for (int v = 0; v < 29; v++) {
+            chains.addEdge(v, v + 1, 1);
+            chains.addEdge(30 + v, 31 + v, 1);
+        }
+        assertEquals(factorial(60).divide(factorial(30).pow(2)), counter.count(chains));
+
+        // A long narrow DAG beyond the bitmask limit: 50 stages of a diamond a -> {b, c} -> next a
+        Graph ladder = new Graph(3 * 50 + 1, true);
+        for (int s = 0; s < 50; s++) {
+            int a = 3 * s;
+            ladder.addEdge(a, a + 1, 1);
+            ladder.addEdge(a, a + 2, 1);
+            ladder.addEdge(a + 1, a + 3, 1);
+            ladder.addEdge(a + 2, a + 3, 1);
+        }
+        assertEquals(BigInteger.valueOf(2).pow(50), counter.count(ladder));
+    }
+
+    @Test
+    public void testCountComponentOrders() {
+        Graph graph = new Graph(5, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 0, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 2, 1);
+        // Three SCCs, no edges between them
+        assertEquals(BigInteger.valueOf(6), new TopologicalOrderCounter().countComponentOrders(graph));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountRejectsCycle() {
+        Graph graph = new Graph(3, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 0, 1);
+        new TopologicalOrderCounter().count(graph);
+    }
+
+    @Test
+    public void testSamplerIsUniformOnSmallGraphs() {
+        // A dense component, an out-tree and an in-tree, sampled exactly
+        Graph graph = new Graph(9, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(1, 3, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(4, 5, 1);
+        graph.addEdge(4, 6, 1);
+        graph.addEdge(7, 8, 1);
+
+        KahnTopological kahn = new KahnTopological();
+        int orders = kahn.findAllTopologicalSorts(graph).size();
+        assertEquals(BigInteger.valueOf(orders), new TopologicalOrderCounter().count(graph));
+
+        TopologicalOrderSampler sampler = new TopologicalOrderSampler(graph, 42);
+        assertTrue(sampler.isExact());
+        Map<String, Integer> frequency = new HashMap<>();
+        int samples = orders * 50;
+        for (int[] order : sampler.sample(samples)) {
+            assertTrue(kahn.isValidTopologicalOrder(graph, toList(order)));
+            frequency.merge(Arrays.toString(order), 1, Integer::sum);
+        }
+        assertEquals(orders, frequency.size());
+
+        double chiSquare = 0;
+        for (int observed : frequency.values()) {
+            chiSquare += Math.pow(observed - 50, 2) / 50;
+        }
+        // Mean orders - 1, standard deviation about sqrt(2 * orders)
+        assertTrue("chi-square " + chiSquare, chiSquare < orders + 6 * Math.sqrt(2.0 * orders));
+    }
+
+    @Test
+    public void testChainSamplerProducesValidOrders() {
+        Random random = new Random(7);
+        int n = 40;
+        Graph graph = new Graph(n, true);
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                if (random.nextInt(8) == 0) {
+                    graph.addEdge(u, v, 1);
+                }
+            }
+        }
+        TopologicalOrderSampler sampler = new TopologicalOrderSampler(graph, 3).setMixingSteps(2000);
+        assertFalse(sampler.isExact());
+        KahnTopological kahn = new KahnTopological();
+        Set<String> distinct = new HashSet<>();
+        for (int[] order : sampler.sample(20)) {
+            assertTrue(kahn.isValidTopologicalOrder(graph, toList(order)));
+            distinct.add(Arrays.toString(order));
+        }
+        assertTrue(distinct.size() > 1);
+    }
+
+    private static BigInteger factorial(int n) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    private static List<Integer> toList(int[] order) {
+        List<Integer> list = new ArrayList<>();
+        for (int v : order) {
+            list.add(v);
+        }
+        return list;
+    }
+}
@@ -2,10 +2,17 @@ package smartcity;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import smartcity.model.CSRGraph;
 import smartcity.model.Graph;
 import smartcity.graph.topo.TopologicalSort;
 import smartcity.graph.topo.KahnTopological;
+import smartcity.graph.topo.ParallelKahnTopological;
+import smartcity.graph.topo.PriorityScheduler;
+import smartcity.graph.topo.TopologicalOrderEnumerator;
+import smartcity.model.Edge;
+import smartcity.model.Vertex;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class TopologicalSortTest {
 
@@ -190,4 +197,198 @@ public class TopologicalSortTest {
         assertEquals(graph.getN(), dfsOrder.size());
         assertEquals(graph.getN(), kahnOrder.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelKahnLevels() {
+        Random random = new Random(5);
+        int n = 5000;
+        Graph graph = new Graph(n, true);
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < 3; k++) {
+                int v = u + 1 + random.nextInt(2000);
+                if (v < n) graph.addEdge(u, v, 1);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelKahnTopological kahn = new ParallelKahnTopological(pool);
+            List<Integer> order = kahn.topologicalSort(graph);
+            assertEquals(n, order.size());
+            assertTrue(new KahnTopological().isValidTopologicalOrder(graph, order));
+            assertEquals(n, kahn.getKahnOperations());
+
+            // Level of a vertex is the length of the longest path reaching it
+            int[] offsets = kahn.getLevelOffsets();
+            int[] level = new int[n];
+            for (int k = 0; k < kahn.getLevelCount(); k++) {
+                for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+                    level[order.get(i)] = k;
+                }
+            }
+            int[] depth = new int[n];
+            for (int u : order) {
+                for (Edge edge : graph.getEdges(u)) {
+                    depth[edge.getTo()] = Math.max(depth[edge.getTo()], depth[u] + 1);
+                }
+            }
+            assertArrayEquals(depth, level);
+            assertEquals(order, new ParallelKahnTopological(pool).topologicalSort(graph));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelKahnWideFrontierIsDeterministic() {
+        // 16384 sources feed 8192 targets; target t has predecessors t and 16383 - t, in different chunks
+        int sources = 16384;
+        int sinks = 8192;
+        Graph graph = new Graph(sources + sinks, true);
+        for (int t = 0; t < sinks; t++) {
+            graph.addEdge(t, sources + t, 1);
+            graph.addEdge(sources - 1 - t, sources + t, 1);
+        }
+        CSRGraph csr = graph.toCSR();
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelKahnTopological sequential = new ParallelKahnTopological(single);
+            int[] expected = sequential.topologicalOrder(csr);
+            for (int run = 0; run < 20; run++) {
+                ParallelKahnTopological kahn = new ParallelKahnTopological(pool);
+                assertArrayEquals(expected, kahn.topologicalOrder(csr));
+                assertArrayEquals(new int[]{0, sources, sources + sinks}, kahn.getLevelOffsets());
+                assertEquals(sequential.getEdgeRelaxations(), kahn.getEdgeRelaxations());
+            }
+            assertEquals(4L * sinks, sequential.getEdgeRelaxations());
+        } finally {
+            single.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelKahnRejectsCycle() {
+        Graph graph = new Graph(4, true);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 1, 1);
+        graph.addEdge(2, 3, 1);
+        new ParallelKahnTopological().topologicalSort(graph);
+    }
+
+    @Test
+    public void testEnumeratorMatchesFindAll() {
+        Graph graph = new Graph(6, true);
+        graph.addEdge(5, 2, 1);
+        graph.addEdge(5, 0, 1);
+        graph.addEdge(4, 0, 1);
+        graph.addEdge(4, 1, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 1, 1);
+
+        KahnTopological kahn = new KahnTopological();
+        List<List<Integer>> all = kahn.findAllTopologicalSorts(graph);
+        TopologicalOrderEnumerator enumerator = kahn.enumerateTopologicalSorts(graph);
+        List<List<Integer>> streamed = new ArrayList<>();
+        enumerator.streamLists().forEach(streamed::add);
+
+        assertEquals(all, streamed);
+        assertEquals(TopologicalOrderEnumerator.StopReason.EXHAUSTED, enumerator.getStopReason());
+    }
+
+    @Test
+    public void testEnumeratorBounds() {
+        // 60 independent vertices have 60! orders; only the bounds end the enumeration
+        Graph graph = new Graph(60, true);
+
+        TopologicalOrderEnumerator limited = new TopologicalOrderEnumerator(graph).limit(1000);
+        Set<String> distinct = new HashSet<>();
+        limited.forEachRemaining(order -> distinct.add(Arrays.toString(order)));
+        assertEquals(1000, distinct.size());
+        assertEquals(TopologicalOrderEnumerator.StopReason.LIMIT, limited.getStopReason());
+
+        TopologicalOrderEnumerator timed = new TopologicalOrderEnumerator(graph).deadline(20_000_000L);
+        long count = timed.stream().count();
+        assertTrue(count > 0);
+        assertEquals(TopologicalOrderEnumerator.StopReason.DEADLINE, timed.getStopReason());
+
+        TopologicalOrderEnumerator cancelled = new TopologicalOrderEnumerator(graph);
+        cancelled.next();
+        cancelled.cancel();
+        assertFalse(cancelled.hasNext());
+        assertEquals(TopologicalOrderEnumerator.StopReason.CANCELLED, cancelled.getStopReason());
+        assertEquals(1, cancelled.getCount());
+    }
+
+    @Test
+    public void testPrioritySchedulerKeys() {
+        // 0 -> 1 -> 2 is a long chain of short tasks; 3 is a single long task; 4 is urgent
+        Graph graph = new Graph(5, true);
+        graph.setVertex(0, new Vertex(0, "a", "repair", 1.0, 1));
+        graph.setVertex(1, new Vertex(1, "b", "repair", 4.0, 1));
+        graph.setVertex(2, new Vertex(2, "c", "repair", 4.0, 1));
+        graph.setVertex(3, new Vertex(3, "d", "repair", 5.0, 2));
+        graph.setVertex(4, new Vertex(4, "e", "repair", 1.0, 3));
+        graph.addEdge(0, 1, 0);
+        graph.addEdge(1, 2, 0);
+
+        assertEquals(Arrays.asList(4, 3, 0, 1, 2),
+                new PriorityScheduler(PriorityScheduler.Key.PRIORITY).schedule(graph));
+        assertEquals(Arrays.asList(3, 0, 1, 2, 4),
+                new PriorityScheduler(PriorityScheduler.Key.DURATION).schedule(graph));
+        // Downstream lengths 9, 8, 4, 5, 1
+        assertEquals(Arrays.asList(0, 1, 3, 2, 4),
+                new PriorityScheduler(PriorityScheduler.Key.CRITICAL_PATH).schedule(graph));
+
+        // Priority pulls the urgent task 4 ahead of the chain's tail
+        Map<PriorityScheduler.Key, Double> mixed = new EnumMap<>(PriorityScheduler.Key.class);
+        mixed.put(PriorityScheduler.Key.CRITICAL_PATH, 1.0);
+        mixed.put(PriorityScheduler.Key.PRIORITY, 0.8);
+        assertEquals(Arrays.asList(0, 1, 3, 4, 2), new PriorityScheduler(mixed).schedule(graph));
+    }
+
+    @Test
+    public void testPrioritySchedulerMatchesPriorityQueue() {
+        Random random = new Random(20);
+        int n = 500;
+        Graph graph = new Graph(n, true);
+        graph.initializeSmartCityVertices();
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < 3; k++) {
+                int v = u + 1 + random.nextInt(20);
+                if (v < n) {
+                    graph.addEdge(u, v, random.nextInt(5));
+                }
+            }
+        }
+
+        PriorityScheduler scheduler = new PriorityScheduler(PriorityScheduler.Key.CRITICAL_PATH);
+        double[] scores = scheduler.scores(graph, graph.toCSR());
+        int[] inDegree = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (Edge edge : graph.getEdges(u)) {
+                inDegree[edge.getTo()]++;
+            }
+        }
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) ->
+                scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) queue.offer(v);
+        }
+        List<Integer> expected = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            expected.add(u);
+            for (Edge edge : graph.getEdges(u)) {
+                if (--inDegree[edge.getTo()] == 0) queue.offer(edge.getTo());
+            }
+        }
+
+        List<Integer> order = scheduler.schedule(graph);
+        assertEquals(expected, order);
+        assertTrue(new KahnTopological().isValidTopologicalOrder(graph, order));
+    }
+}